@@ -0,0 +1,80 @@
+package org.example.testtask.benchmark;
+
+import org.example.testtask.TestTaskApplication;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JPA-backed store on an in-memory H2 database with the tuning from {@code application-jpa.properties},
+ * for comparison with {@link UserServiceBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JpaUserServiceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int storeSize;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestTaskApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("jpa")
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark", "spring.jpa.hibernate.ddl-auto=create-drop")
+                .run();
+        userService = context.getBean(UserService.class);
+        UserFixtures.populate(userService, storeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<UserEntity> findByEmail() {
+        return userService.findByEmail(UserFixtures.email(ThreadLocalRandom.current().nextInt(storeSize)));
+    }
+
+    @Benchmark
+    public List<UserEntity> findUsersForBirthDateRange() {
+        LocalDate from = UserFixtures.FIRST_BIRTH_DATE
+                .plusDays(ThreadLocalRandom.current().nextInt(UserFixtures.BIRTH_DATE_SPREAD_DAYS - 30));
+        return userService.findUsersForBirthDateRange(from, true, from.plusDays(30), false);
+    }
+
+    @Benchmark
+    public UserEntity patchUser() {
+        int i = ThreadLocalRandom.current().nextInt(storeSize);
+        return userService.patchUser(UserFixtures.email(i), PatchedUserDTO.builder().firstName("Patched" + i).build());
+    }
+}
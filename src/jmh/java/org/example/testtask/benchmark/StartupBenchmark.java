@@ -0,0 +1,225 @@
+package org.example.testtask.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+/**
+ * Cold start of the packaged application: wall time from launching the JVM until {@code GET /users} first answers
+ * 200, and the resident set size at that moment (read from {@code /proc}, so Linux only). Every configuration is
+ * launched several times and the medians are reported: the defaults, the {@code startup} profile, the AOT-processed
+ * bean graph when the jar was built with {@code -Paot}, and all of that again on top of a class-data-sharing
+ * archive recorded by a training run that exits once the context is refreshed.
+ * <p>
+ * The executable jar is unpacked into a thin application jar plus its libraries first, since CDS cannot archive
+ * classes loaded from nested jars. Build and run with
+ * {@code mvn -Paot package -DskipTests} and
+ * {@code mvn -Pbenchmark test-compile exec:exec -Djmh.runner=org.example.testtask.benchmark.StartupBenchmark};
+ * {@code -Djmh.args="<jar> <runs>"} overrides the jar found in {@code target} and the default of five runs.
+ */
+public class StartupBenchmark {
+    private static final int DEFAULT_RUNS = 5;
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final String PROBE_PATH = "/users?from=1990-01-01&to=2000-01-01";
+    private static final String CLASSES_PREFIX = "BOOT-INF/classes/";
+    private static final String LIB_PREFIX = "BOOT-INF/lib/";
+    private static final String AOT_INITIALIZER = CLASSES_PREFIX
+            + "org/example/testtask/TestTaskApplication__ApplicationContextInitializer.class";
+
+    public static void main(String[] args) throws Exception {
+        Path jar = args.length > 0 ? Path.of(args[0]) : findJar(Path.of("target"));
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_RUNS;
+        Path directory = Path.of("target", "startup");
+        Path application = unpack(jar, directory);
+
+        List<String> startup = List.of("-Dspring.profiles.active=startup");
+        List<String> fastest = new ArrayList<>(startup);
+        Map<String, List<String>> configurations = new LinkedHashMap<>();
+        configurations.put("default", List.of());
+        configurations.put("startup", startup);
+        boolean aot = hasAotInitializer(jar);
+        if (aot) {
+            fastest.add("-Dspring.aot.enabled=true");
+            configurations.put("startup+aot", List.copyOf(fastest));
+        }
+        Path archive = directory.resolve("application.jsa");
+        train(application, fastest, archive);
+        fastest.add("-XX:SharedArchiveFile=" + archive);
+        configurations.put(aot ? "startup+aot+cds" : "startup+cds", fastest);
+
+        System.out.printf("%-20s %14s %10s%n", "configuration", "first GET ms", "RSS MB");
+        for (Map.Entry<String, List<String>> configuration : configurations.entrySet()) {
+            long[] millis = new long[runs];
+            long[] residentKb = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long[] sample = launch(application, configuration.getValue());
+                millis[run] = sample[0];
+                residentKb[run] = sample[1];
+            }
+            System.out.printf("%-20s %14d %10d%n", configuration.getKey(), median(millis), median(residentKb) / 1024);
+        }
+    }
+
+    private static Path findJar(Path target) throws IOException {
+        try (Stream<Path> files = Files.list(target)) {
+            return files.filter(path -> path.getFileName().toString().endsWith("-SNAPSHOT.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + target
+                            + "; run mvn -Paot package -DskipTests first"));
+        }
+    }
+
+    private static boolean hasAotInitializer(Path jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            return jarFile.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    /**
+     * Copies the nested libraries into {@code directory/lib} and repackages the application classes into a jar
+     * whose manifest puts those libraries on the class path in the order of the executable jar.
+     */
+    private static Path unpack(Path jar, Path directory) throws IOException {
+        Path lib = directory.resolve("lib");
+        Files.createDirectories(lib);
+        Path application = directory.resolve("application.jar");
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            List<String> classPath = new ArrayList<>();
+            Manifest manifest = new Manifest();
+            manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS,
+                    jarFile.getManifest().getMainAttributes().getValue("Start-Class"));
+            List<JarEntry> classes = new ArrayList<>();
+            for (JarEntry entry : jarFile.stream().toList()) {
+                String name = entry.getName();
+                if (name.startsWith(LIB_PREFIX) && !entry.isDirectory()) {
+                    Path library = lib.resolve(name.substring(LIB_PREFIX.length()));
+                    try (InputStream in = jarFile.getInputStream(entry)) {
+                        Files.copy(in, library, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                    classPath.add("lib/" + library.getFileName());
+                } else if (name.startsWith(CLASSES_PREFIX) && name.length() > CLASSES_PREFIX.length()) {
+                    classes.add(entry);
+                }
+            }
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, String.join(" ", classPath));
+            try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(application), manifest)) {
+                for (JarEntry entry : classes) {
+                    out.putNextEntry(new JarEntry(entry.getName().substring(CLASSES_PREFIX.length())));
+                    if (!entry.isDirectory()) {
+                        try (InputStream in = jarFile.getInputStream(entry)) {
+                            in.transferTo(out);
+                        }
+                    }
+                    out.closeEntry();
+                }
+            }
+        }
+        return application;
+    }
+
+    private static void train(Path application, List<String> jvmArgs, Path archive)
+            throws IOException, InterruptedException {
+        Files.deleteIfExists(archive);
+        List<String> command = new ArrayList<>(jvmArgs);
+        command.add("-XX:ArchiveClassesAtExit=" + archive);
+        command.add("-Dspring.context.exit=onRefresh");
+        Process process = start(application, command, freePort());
+        if (process.waitFor() != 0 || !Files.exists(archive)) {
+            throw new IllegalStateException("CDS training run failed with exit code " + process.exitValue());
+        }
+    }
+
+    /**
+     * Returns the milliseconds until the first successful request and the resident set size in KiB.
+     */
+    private static long[] launch(Path application, List<String> jvmArgs) throws IOException, InterruptedException {
+        int port = freePort();
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + PROBE_PATH)).build();
+        long startedAt = System.nanoTime();
+        Process process = start(application, jvmArgs, port);
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue());
+                }
+                if (System.nanoTime() - startedAt > TIMEOUT_NANOS) {
+                    throw new IllegalStateException("Application did not answer within the timeout");
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException e) {
+                    Thread.sleep(5);
+                }
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            return new long[]{millis, residentSetKb(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static Process start(Path application, List<String> jvmArgs, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(application.toString());
+        command.add("--server.port=" + port);
+        return new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    private static long residentSetKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
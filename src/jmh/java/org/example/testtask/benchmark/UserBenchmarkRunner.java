@@ -0,0 +1,32 @@
+package org.example.testtask.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count with the GC allocation profiler attached. Any regular JMH
+ * command line options (benchmark regex, {@code -p storeSize=1000}, {@code -rf json} ...) are passed through,
+ * e.g. {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="UserServiceBenchmark -p storeSize=1000"}.
+ */
+public class UserBenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        int[] threadCounts = commandLineOptions.getThreads().hasValue()
+                ? new int[]{commandLineOptions.getThreads().get()}
+                : THREAD_COUNTS;
+        for (int threads : threadCounts) {
+            new Runner(new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build())
+                    .run();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.testtask.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.example.testtask.cache.RangeResponseCache;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.controller.UserController;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.exceptionhandler.GlobalExceptionHandler;
+import org.example.testtask.service.UserService;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.InMemoryUserStore;
+import org.example.testtask.validation.UserValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end request handling through the Spring MVC dispatcher (routing, binding, validation and JSON
+ * encoding) without a network stack.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserControllerBenchmark {
+    private static final int HOT_RANGES = 8;
+
+    @Param({"1000", "100000"})
+    private int storeSize;
+
+    @Param({"0", "67108864"})
+    private long rangeCacheBytes;
+
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+    private ValidatorFactory validatorFactory;
+    private byte[] invalidUser;
+    private byte[] underageUser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        invalidUser = objectMapper.writeValueAsBytes(UserFixtures.user(0).toBuilder()
+                .email("not-an-email").firstName("").lastName(" ").build());
+        underageUser = objectMapper.writeValueAsBytes(UserFixtures.user(0).toBuilder()
+                .birthDate(LocalDate.now().minusYears(3)).build());
+        InMemoryUserStore userStore = new InMemoryUserStore();
+        UserService userService = new UserServiceImpl(userStore, new SimpleMeterRegistry());
+        UserFixtures.populate(userService, storeSize);
+        RangeResponseCache rangeResponseCache = new RangeResponseCache(Optional.of(userStore), new SimpleMeterRegistry(),
+                rangeCacheBytes, 1024);
+        rangeResponseCache.start();
+        MappingJackson2SmileHttpMessageConverter smileConverter = new MappingJackson2SmileHttpMessageConverter(
+                SmileConfiguration.smileMapper(new Jackson2ObjectMapperBuilder()));
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new UserController(userService, objectMapper,
+                        new UserValidator(validatorFactory.getValidator(), 18), rangeResponseCache,
+                        smileConverter))
+                .setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .setValidator(new SpringValidatorAdapter(validatorFactory.getValidator()))
+                .setMessageConverters(new ByteArrayHttpMessageConverter(), new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(objectMapper),
+                        smileConverter)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse searchUsersByBirthDateRange() throws Exception {
+        LocalDate from = UserFixtures.FIRST_BIRTH_DATE
+                .plusDays(ThreadLocalRandom.current().nextInt(UserFixtures.BIRTH_DATE_SPREAD_DAYS - 30));
+        return mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("from", from.toString())
+                        .param("to", from.plusDays(30).toString()))
+                .andReturn().getResponse();
+    }
+
+    /**
+     * The few ranges most clients ask for, which the range cache serves without searching or serializing.
+     */
+    @Benchmark
+    public MockHttpServletResponse searchUsersByHotBirthDateRange() throws Exception {
+        LocalDate from = UserFixtures.FIRST_BIRTH_DATE.plusDays(ThreadLocalRandom.current().nextInt(HOT_RANGES) * 30L);
+        return mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("from", from.toString())
+                        .param("to", from.plusDays(30).toString()))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse partiallyUpdateUser() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(storeSize);
+        PatchedUserDTO patch = PatchedUserDTO.builder().firstName("Patched" + i).build();
+        return mockMvc.perform(MockMvcRequestBuilders.patch("/users/{email}", UserFixtures.email(i))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(patch)))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse fullUpdateUser() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(storeSize);
+        return mockMvc.perform(MockMvcRequestBuilders.put("/users/{email}", UserFixtures.email(i))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(UserFixtures.user(i))))
+                .andReturn().getResponse();
+    }
+
+    /**
+     * A create that fails bean validation on three fields, as sent by a misbehaving client.
+     */
+    @Benchmark
+    public MockHttpServletResponse rejectInvalidUser() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(invalidUser))
+                .andReturn().getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse rejectUnderageUser() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(underageUser))
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.testtask.benchmark;
+
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.UserService;
+import org.example.testtask.store.CompactUserStore;
+import org.example.testtask.store.InMemoryUserStore;
+import org.example.testtask.store.ShardedUserStore;
+import org.example.testtask.store.UserStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class UserFixtures {
+    static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    static final int BIRTH_DATE_SPREAD_DAYS = 20_000;
+    private static final int POPULATE_BATCH_SIZE = 10_000;
+    private static final int FIRST_NAMES = 1_000;
+    private static final int LAST_NAMES = 5_000;
+
+    private UserFixtures() {
+    }
+
+    static UserStore store(String layout) {
+        return switch (layout) {
+            case "compact" -> new CompactUserStore();
+            case "sharded" -> new ShardedUserStore(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4));
+            default -> new InMemoryUserStore();
+        };
+    }
+
+    static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    static UserEntity user(int i) {
+        return UserEntity.builder()
+                .email(email(i))
+                .firstName("FirstName" + i % FIRST_NAMES)
+                .lastName("LastName" + i % LAST_NAMES)
+                .birthDate(FIRST_BIRTH_DATE.plusDays(i % BIRTH_DATE_SPREAD_DAYS))
+                .address(i + " Benchmark Street")
+                .phoneNumber("+1555" + i)
+                .build();
+    }
+
+    static void populate(UserService userService, int size) {
+        List<UserEntity> batch = new ArrayList<>(POPULATE_BATCH_SIZE);
+        for (int i = 0; i < size; i++) {
+            batch.add(user(i));
+            if (batch.size() == POPULATE_BATCH_SIZE) {
+                userService.createUsers(batch, false);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            userService.createUsers(batch, false);
+        }
+    }
+}
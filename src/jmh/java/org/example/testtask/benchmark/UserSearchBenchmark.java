@@ -0,0 +1,77 @@
+package org.example.testtask.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.search.SearchField;
+import org.example.testtask.search.SearchMatch;
+import org.example.testtask.search.UserSearchIndex;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.InMemoryUserStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-20 lookups through the {@link UserSearchIndex}: a selective prefix, an unselective prefix that matches
+ * every user, and a substring of a phone number. The 1M size needs a few gigabytes of heap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSearchBenchmark {
+    private static final Set<SearchField> ALL_FIELDS = EnumSet.allOf(SearchField.class);
+    private static final int LIMIT = 20;
+
+    @Param({"100000", "1000000"})
+    private int storeSize;
+
+    private UserSearchIndex searchIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryUserStore userStore = new InMemoryUserStore();
+        searchIndex = new UserSearchIndex(Optional.of(userStore), true);
+        searchIndex.afterSingletonsInstantiated();
+        UserFixtures.populate(new UserServiceImpl(userStore, new SimpleMeterRegistry()), storeSize);
+        searchIndex.awaitIndexed();
+    }
+
+    @Benchmark
+    public List<UserEntity> prefixOfEmail() {
+        return searchIndex.search("user" + randomIndex(), SearchMatch.PREFIX, ALL_FIELDS, LIMIT);
+    }
+
+    @Benchmark
+    public List<UserEntity> prefixMatchingEveryUser() {
+        return searchIndex.search("lastname", SearchMatch.PREFIX, ALL_FIELDS, LIMIT);
+    }
+
+    @Benchmark
+    public List<UserEntity> phoneNumberSubstring() {
+        return searchIndex.search("555" + randomIndex() % 10_000, SearchMatch.CONTAINS,
+                EnumSet.of(SearchField.PHONE_NUMBER), LIMIT);
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(storeSize);
+    }
+}
@@ -0,0 +1,160 @@
+package org.example.testtask.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.cache.RangeResponseCache;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.search.UserSearchIndex;
+import org.example.testtask.service.UserService;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.statistics.BirthDateStatistics;
+import org.example.testtask.store.UserStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service-level hot paths against a pre-populated store. The 10M size needs a heap of several gigabytes
+ * (for example {@code -Djmh.args="-jvmArgs -Xmx8g"}); the {@code layout} parameter compares
+ * {@link org.example.testtask.store.InMemoryUserStore}, {@link org.example.testtask.store.CompactUserStore} and
+ * {@link org.example.testtask.store.ShardedUserStore}. With {@code listeners=default} the store notifies the
+ * listeners the application registers by default (range cache, search index, birth-date statistics and change log),
+ * which run under the store's write locks; {@code none} measures the bare store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int storeSize;
+
+    @Param({"30"})
+    private int rangeDays;
+
+    @Param({"objects", "compact", "sharded"})
+    private String layout;
+
+    @Param({"none", "default"})
+    private String listeners;
+
+    private UserService userService;
+
+    private final List<Runnable> stoppers = new ArrayList<>();
+
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserStore store = UserFixtures.store(layout);
+        userService = new UserServiceImpl(store, new SimpleMeterRegistry());
+        UserFixtures.populate(userService, storeSize);
+        if (listeners.equals("default")) {
+            startDefaultListeners(store);
+        }
+    }
+
+    private void startDefaultListeners(UserStore store) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RangeResponseCache rangeCache = new RangeResponseCache(Optional.of(store), meterRegistry, 64L << 20, 1024);
+        rangeCache.start();
+        stoppers.add(rangeCache::stop);
+        UserSearchIndex searchIndex = new UserSearchIndex(Optional.of(store), true);
+        searchIndex.afterSingletonsInstantiated();
+        stoppers.add(searchIndex::stop);
+        BirthDateStatistics statistics = new BirthDateStatistics(Optional.of(store));
+        statistics.afterSingletonsInstantiated();
+        stoppers.add(statistics::stop);
+        UserChangeLog changeLog = new UserChangeLog(Optional.of(store), meterRegistry, 65536);
+        changeLog.afterSingletonsInstantiated();
+        stoppers.add(changeLog::stop);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stoppers.forEach(Runnable::run);
+        stoppers.clear();
+    }
+
+    @State(Scope.Thread)
+    public static class CreatedUsers {
+        private final List<String> emails = new ArrayList<>();
+        private int threadId;
+        private int sequence;
+
+        @Setup(Level.Trial)
+        public void setUp(UserServiceBenchmark benchmark) {
+            threadId = benchmark.threadIds.incrementAndGet();
+        }
+
+        UserEntity next() {
+            UserEntity user = UserFixtures.user(sequence);
+            user.setEmail("created-" + threadId + "-" + sequence++ + "@example.com");
+            emails.add(user.getEmail());
+            return user;
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeCreated(UserServiceBenchmark benchmark) {
+            benchmark.userService.deleteUsersByEmail(emails);
+            emails.clear();
+        }
+    }
+
+    @Benchmark
+    public UserEntity createUser(CreatedUsers createdUsers) {
+        return userService.createUser(createdUsers.next());
+    }
+
+    @Benchmark
+    public Optional<UserEntity> findByEmail() {
+        return userService.findByEmail(UserFixtures.email(randomIndex()));
+    }
+
+    @Benchmark
+    public List<UserEntity> findUsersForBirthDateRange() {
+        LocalDate from = UserFixtures.FIRST_BIRTH_DATE
+                .plusDays(ThreadLocalRandom.current().nextInt(UserFixtures.BIRTH_DATE_SPREAD_DAYS - rangeDays));
+        return userService.findUsersForBirthDateRange(from, true, from.plusDays(rangeDays), false);
+    }
+
+    @Benchmark
+    public UserEntity patchUser() {
+        int i = randomIndex();
+        PatchedUserDTO patch = PatchedUserDTO.builder()
+                .firstName("Patched" + i)
+                .build();
+        return userService.patchUser(UserFixtures.email(i), patch);
+    }
+
+    @Benchmark
+    public UserEntity updateUserByEmail() {
+        int i = randomIndex();
+        return userService.updateUserByEmail(UserFixtures.email(i), UserFixtures.user(i));
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(storeSize);
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.testtask.benchmark;
+
+import org.example.testtask.TestTaskApplication;
+import org.example.testtask.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Real HTTP requests against an embedded Tomcat served by its bounded platform-thread pool or by virtual threads.
+ * Each JMH thread is one concurrent client, so run it at high concurrency on Java 21, e.g.
+ * {@code -Djmh.args="WebThreadingBenchmark -t 512"}; the sample-time mode reports p99 next to the throughput.
+ * The {@code jpa} profile puts a blocking JDBC backend behind the controller. Pinned carrier threads are
+ * reported on standard output.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+@State(Scope.Benchmark)
+public class WebThreadingBenchmark {
+    @Param({"platform", "virtual"})
+    private String threading;
+
+    @Param({"default", "jpa"})
+    private String profile;
+
+    @Param({"100000"})
+    private int storeSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(threading);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("virtual threads need Java 21, running on " + Runtime.version());
+        }
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TestTaskApplication.class)
+                .properties("server.port=0", "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark");
+        if (virtual) {
+            application.profiles("virtual-threads");
+        }
+        if ("jpa".equals(profile)) {
+            application.profiles("jpa");
+        }
+        context = application.run();
+        UserFixtures.populate(context.getBean(UserService.class), storeSize);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = URI.create("http://localhost:" + port);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int searchUsersByBirthDateRange() throws IOException, InterruptedException {
+        LocalDate from = UserFixtures.FIRST_BIRTH_DATE
+                .plusDays(ThreadLocalRandom.current().nextInt(UserFixtures.BIRTH_DATE_SPREAD_DAYS - 30));
+        URI uri = baseUri.resolve("/users?from=" + from + "&to=" + from.plusDays(30) + "&limit=100");
+        return send(HttpRequest.newBuilder(uri).GET().build());
+    }
+
+    @Benchmark
+    public int partiallyUpdateUser() throws IOException, InterruptedException {
+        int i = ThreadLocalRandom.current().nextInt(storeSize);
+        URI uri = baseUri.resolve("/users/" + UserFixtures.email(i));
+        return send(HttpRequest.newBuilder(uri)
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"firstName\":\"Patched" + i + "\"}"))
+                .header("Content-Type", "application/json")
+                .build());
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
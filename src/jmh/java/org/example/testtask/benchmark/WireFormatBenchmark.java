@@ -0,0 +1,71 @@
+package org.example.testtask.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a page of users as JSON versus the Smile wire format negotiated by
+ * {@code application/x-jackson-smile}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"1", "1000"})
+    private int users;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<UserEntity> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = format.equals("smile")
+                ? SmileConfiguration.smileMapper(new Jackson2ObjectMapperBuilder())
+                : new Jackson2ObjectMapperBuilder().build();
+        writer = mapper.writerFor(UserEntity[].class);
+        reader = mapper.readerFor(UserEntity[].class);
+        page = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            page.add(UserFixtures.user(i));
+        }
+        encoded = writer.writeValueAsBytes(page.toArray(UserEntity[]::new));
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(page.toArray(UserEntity[]::new));
+    }
+
+    @Benchmark
+    public UserEntity[] decode() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.testtask.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that follows latency, after the gradient algorithm of Netflix's concurrency-limits. It
+ * compares a short moving average of request latency with a long one that stands in for the unloaded latency:
+ * while they agree the limit grows by about its square root per sample, and as queueing pushes the short average
+ * up the limit shrinks in proportion, down to half per sample. Samples taken while less than half the limit was
+ * in use say nothing about capacity and only update the averages. Latency that stays high for several hundred
+ * samples becomes the new baseline, so a slower but stable backend is eventually given its slots back.
+ * <p>
+ * Acquiring is a compare-and-set on the in-flight count. Latency samples are folded in under a lock that
+ * releasing threads only try to take, so under contention some samples are skipped rather than waited for.
+ */
+final class AdaptiveConcurrencyLimit {
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile int limit;
+    private volatile double shortRttNanos;
+    private double longRttNanos;
+    private double estimatedLimit;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    double shortRttNanos() {
+        return shortRttNanos;
+    }
+
+    /**
+     * Takes a slot and returns the number of requests in flight including this one, or 0 when the limit is
+     * reached.
+     */
+    int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns a slot without a latency sample, for a request that was turned away after acquiring it.
+     */
+    void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            sample(rttNanos, inFlightAtStart);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sample(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        double shortRtt = shortRttNanos + (rttNanos - shortRttNanos) / SHORT_WINDOW;
+        shortRttNanos = shortRtt;
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+        if (longRttNanos > 2 * shortRtt) {
+            // Latency dropped well below the baseline; let the baseline follow quickly instead of over-admitting.
+            longRttNanos *= 0.95;
+        }
+        if (inFlightAtStart < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / shortRtt));
+        double next = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.min(Math.max(estimatedLimit * (1 - SMOOTHING) + next * SMOOTHING, minLimit), maxLimit);
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.testtask.admission;
+
+/**
+ * Groups of {@code /users} requests that get a concurrency limit of their own, so a burst in one cannot take the
+ * slots of another: birth-date range queries, single-user and search lookups, and writes.
+ */
+public enum AdmissionClass {
+    RANGE, LOOKUP, WRITE
+}
@@ -0,0 +1,32 @@
+package org.example.testtask.admission;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Registers admission control on whichever web stack is running, right after the observation filter so shed
+ * requests still show up in the request metrics.
+ */
+@Configuration
+public class AdmissionConfiguration {
+    private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(UserAdmissionControl admissionControl) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(new AdmissionFilter(admissionControl));
+        registration.setOrder(ORDER);
+        return registration;
+    }
+
+    @Bean
+    @Order(ORDER)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public ReactiveAdmissionFilter reactiveAdmissionFilter(UserAdmissionControl admissionControl) {
+        return new ReactiveAdmissionFilter(admissionControl);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.testtask.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link UserAdmissionControl} on the servlet stack. The permit is released when the response is
+ * complete, which for streamed and other asynchronous responses is when the async context completes.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+    private final UserAdmissionControl admissionControl;
+
+    public AdmissionFilter(UserAdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        UserAdmissionControl.Permit permit;
+        try {
+            permit = admissionControl.admit(request.getMethod(),
+                    request.getRequestURI().substring(request.getContextPath().length()), request::getParameter);
+        } catch (AdmissionRejectedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+            response.sendError(e.getStatusCode().value(), e.getReason());
+            return;
+        }
+        if (permit == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitReleasingListener(permit));
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    private record PermitReleasingListener(UserAdmissionControl.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.testtask.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A request shed before it reached a controller, with the number of seconds after which a retry is advised.
+ */
+public class AdmissionRejectedException extends ResponseStatusException {
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(HttpStatus status, String reason, long retryAfterSeconds) {
+        super(status, reason);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
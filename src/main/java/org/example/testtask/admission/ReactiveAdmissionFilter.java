@@ -0,0 +1,37 @@
+package org.example.testtask.admission;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies {@link UserAdmissionControl} on the reactive stack; the permit is released when the exchange
+ * completes, fails or is cancelled.
+ */
+public class ReactiveAdmissionFilter implements WebFilter {
+    private final UserAdmissionControl admissionControl;
+
+    public ReactiveAdmissionFilter(UserAdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        UserAdmissionControl.Permit permit;
+        try {
+            permit = admissionControl.admit(request.getMethod().name(), request.getPath().pathWithinApplication().value(),
+                    request.getQueryParams()::getFirst);
+        } catch (AdmissionRejectedException e) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()));
+            return Mono.error(e);
+        }
+        if (permit == null) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).doFinally(signal -> permit.release());
+    }
+}
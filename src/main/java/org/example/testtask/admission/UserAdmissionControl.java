@@ -0,0 +1,184 @@
+package org.example.testtask.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.testtask.statistics.BirthDateStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Decides whether a {@code /users} request may run now. Every {@link AdmissionClass} has its own
+ * {@link AdaptiveConcurrencyLimit}; a request over its class's limit is rejected with 503 Service Unavailable.
+ * Range queries additionally reserve their estimated result size, counted from the birth-date statistics in
+ * {@code O(log n)} before the query runs, against a budget of rows in flight per processor; a query that would
+ * exceed it while others are running is rejected with 429 Too Many Requests. Both carry a Retry-After of the
+ * class's recent latency, at least a second.
+ * <p>
+ * Change log polls and streams are not admission controlled, since they hold a request open for as long as they
+ * wait.
+ */
+@Component
+public class UserAdmissionControl {
+    private final BirthDateStatistics statistics;
+    private final boolean enabled;
+    private final long maxInFlightRows;
+    private final Map<AdmissionClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(AdmissionClass.class);
+    private final Map<AdmissionClass, Counter> concurrencyRejections = new EnumMap<>(AdmissionClass.class);
+    private final Counter costRejections;
+    private final AtomicLong inFlightRows = new AtomicLong();
+
+    @Autowired
+    public UserAdmissionControl(BirthDateStatistics statistics, MeterRegistry meterRegistry,
+                                @Value("${user.admission.enabled:true}") boolean enabled,
+                                @Value("${user.admission.initial-limit:32}") int initialLimit,
+                                @Value("${user.admission.min-limit:4}") int minLimit,
+                                @Value("${user.admission.max-limit:512}") int maxLimit,
+                                @Value("${user.admission.max-in-flight-rows-per-processor:250000}") long maxRowsPerProcessor) {
+        this(statistics, meterRegistry, enabled, initialLimit, minLimit, maxLimit, maxRowsPerProcessor,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    UserAdmissionControl(BirthDateStatistics statistics, MeterRegistry meterRegistry, boolean enabled,
+                         int initialLimit, int minLimit, int maxLimit, long maxRowsPerProcessor, int processors) {
+        this.statistics = statistics;
+        this.enabled = enabled;
+        this.maxInFlightRows = maxRowsPerProcessor * processors;
+        for (AdmissionClass admissionClass : AdmissionClass.values()) {
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit);
+            limits.put(admissionClass, limit);
+            String tag = admissionClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("users.admission.limit", limit, AdaptiveConcurrencyLimit::limit)
+                    .description("Current concurrency limit of a request class")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("users.admission.in.flight", limit, AdaptiveConcurrencyLimit::inFlight)
+                    .description("Admitted requests of a class that have not completed")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            concurrencyRejections.put(admissionClass, rejections(meterRegistry, tag, "concurrency"));
+        }
+        this.costRejections = rejections(meterRegistry, AdmissionClass.RANGE.name().toLowerCase(Locale.ROOT), "cost");
+        Gauge.builder("users.admission.in.flight.rows", inFlightRows, AtomicLong::get)
+                .description("Estimated result rows of admitted range queries that have not completed")
+                .register(meterRegistry);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String admissionClass, String reason) {
+        return Counter.builder("users.admission.rejected")
+                .description("Requests shed before reaching a controller")
+                .tag("class", admissionClass)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the class of a request, or {@code null} when it is not admission controlled.
+     */
+    static AdmissionClass classify(String method, String path) {
+        if (!path.equals("/users") && !path.startsWith("/users/")) {
+            return null;
+        }
+        if (path.equals("/users/changes") || path.startsWith("/users/changes/")) {
+            return null;
+        }
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            return path.equals("/users") ? AdmissionClass.RANGE : AdmissionClass.LOOKUP;
+        }
+        return AdmissionClass.WRITE;
+    }
+
+    /**
+     * Admits a request or throws {@link AdmissionRejectedException}. The returned permit must be released once
+     * the response is complete; {@code null} means the request is not admission controlled.
+     */
+    public Permit admit(String method, String path, Function<String, String> parameters) {
+        AdmissionClass admissionClass = enabled ? classify(method, path) : null;
+        if (admissionClass == null) {
+            return null;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(admissionClass);
+        int inFlight = limit.tryAcquire();
+        if (inFlight == 0) {
+            concurrencyRejections.get(admissionClass).increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many concurrent " + admissionClass.name().toLowerCase(Locale.ROOT) + " requests", retryAfterSeconds(limit));
+        }
+        long rows = admissionClass == AdmissionClass.RANGE ? estimateRows(parameters) : 0;
+        if (rows > 0) {
+            long reserved = inFlightRows.addAndGet(rows);
+            if (reserved > maxInFlightRows && reserved > rows) {
+                inFlightRows.addAndGet(-rows);
+                limit.cancel();
+                costRejections.increment();
+                throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Range queries in flight already cover " + (reserved - rows) + " users", retryAfterSeconds(limit));
+            }
+        }
+        return new Permit(limit, inFlight, rows);
+    }
+
+    /**
+     * Users the range query would return, capped by its page size; 0 when that cannot be told, in which case
+     * the controller rejects the request anyway.
+     */
+    private long estimateRows(Function<String, String> parameters) {
+        String from = parameters.apply("from");
+        String to = parameters.apply("to");
+        if (!statistics.isEnabled() || from == null || to == null) {
+            return 0;
+        }
+        try {
+            long rows = statistics.count(LocalDate.parse(from), Boolean.parseBoolean(parameters.apply("fromInclusive")),
+                    LocalDate.parse(to), Boolean.parseBoolean(parameters.apply("toInclusive")));
+            String pageSize = parameters.apply("limit");
+            return pageSize == null ? rows : Math.min(rows, Math.max(0, Long.parseLong(pageSize)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long retryAfterSeconds(AdaptiveConcurrencyLimit limit) {
+        return Math.max(1, (long) Math.ceil(limit.shortRttNanos() / TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    public final class Permit {
+        private final AdaptiveConcurrencyLimit limit;
+        private final int inFlightAtStart;
+        private final long rows;
+        private final long startedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveConcurrencyLimit limit, int inFlightAtStart, long rows) {
+            this.limit = limit;
+            this.inFlightAtStart = inFlightAtStart;
+            this.rows = rows;
+        }
+
+        /**
+         * Returns the slot and the reserved rows and feeds the request's latency to the limit; later calls do
+         * nothing.
+         */
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (rows > 0) {
+                inFlightRows.addAndGet(-rows);
+            }
+            limit.release(System.nanoTime() - startedAt, inFlightAtStart);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.testtask.cache;
+
+import java.util.zip.CRC32C;
+
+/**
+ * A serialized birth-date range response. The ETag is derived from the body, so a response that is evicted and
+ * computed again with the same content keeps its ETag.
+ */
+public record CachedRange(byte[] body, String nextCursor, String etag) {
+
+    public static CachedRange of(byte[] body, String nextCursor) {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        return new CachedRange(body, nextCursor,
+                "\"" + Integer.toHexString(body.length) + "-" + Long.toHexString(crc.getValue()) + "\"");
+    }
+}
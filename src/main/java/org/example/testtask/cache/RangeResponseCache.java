@@ -0,0 +1,284 @@
+package org.example.testtask.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of serialized birth-date range responses. A store mutation drops exactly the entries whose
+ * range contains the old or the new birth date of the changed user; other entries stay valid.
+ * <p>
+ * Invalidation is lazy so that writers, which notify the cache while holding their store lock, never take the
+ * cache lock or look at its entries. A write takes a stamp from a global write clock and records it against the
+ * birth dates it touched, at day, month and year granularity. An entry remembers the clock value read before its
+ * response was computed and is stale once any date in its range carries a later stamp; a lookup finds that with
+ * one read per whole year, month and day the range covers. Dates share stamp slots with dates far enough apart,
+ * and ranges wider than the year slots fall back to the global clock, which can only drop entries early.
+ * <p>
+ * The cache is only active with the in-memory store, whose change notifications drive invalidation.
+ */
+@Component
+public class RangeResponseCache implements UserChangeListener {
+    private static final int DAY_SLOTS = 1 << 14;
+    private static final int MONTH_SLOTS = 1 << 11;
+    private static final int YEAR_SLOTS = 1 << 9;
+
+    private final Optional<UserStore> userStore;
+    private final long maxBytes;
+    private final int maxEntries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong writeClock = new AtomicLong();
+    private final AtomicLongArray dayStamps = new AtomicLongArray(DAY_SLOTS);
+    private final AtomicLongArray monthStamps = new AtomicLongArray(MONTH_SLOTS);
+    private final AtomicLongArray yearStamps = new AtomicLongArray(YEAR_SLOTS);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private long cachedBytes;
+    private int cachedEntries;
+
+    public RangeResponseCache(Optional<UserStore> userStore, MeterRegistry meterRegistry,
+                              @Value("${user.range-cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${user.range-cache.max-entries:1024}") int maxEntries) {
+        this.userStore = userStore;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.invalidations = Counter.builder("users.range.cache.invalidations")
+                .description("Cached range responses dropped because a user in the range changed")
+                .register(meterRegistry);
+        Gauge.builder("users.range.cache.size", this, RangeResponseCache::cachedBytes)
+                .description("Bytes of serialized responses held by the range cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("users.range.cache.requests")
+                .description("Range searches answered from or added to the range cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        userStore.ifPresent(store -> store.addListener(this));
+    }
+
+    @PreDestroy
+    public void stop() {
+        userStore.ifPresent(store -> store.removeListener(this));
+    }
+
+    public boolean isEnabled() {
+        return userStore.isPresent() && maxBytes > 0 && maxEntries > 0;
+    }
+
+    /**
+     * Returns the cached response for {@code key}, or {@code null} without registering a miss.
+     */
+    public CachedRange getIfPresent(Key key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        return entry == null || !isFresh(key, entry) ? null : entry.value;
+    }
+
+    public CachedRange get(Key key, Supplier<CachedRange> loader) {
+        if (!isEnabled()) {
+            return loader.get();
+        }
+        while (true) {
+            Entry entry;
+            lock.lock();
+            try {
+                entry = entries.get(key);
+                if (entry == null) {
+                    entry = new Entry(writeClock.get());
+                    entries.put(key, entry);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (entry.value == null) {
+                misses.increment();
+                CachedRange value = null;
+                try {
+                    value = loader.get();
+                    return value;
+                } finally {
+                    complete(key, entry, value);
+                }
+            }
+            if (isFresh(key, entry)) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+    }
+
+    /**
+     * Checks the entry against the writes made since its response was computed and drops it if one of them
+     * touched its range. A pending entry counts as fresh; its stamp is checked once it has a value.
+     */
+    private boolean isFresh(Key key, Entry entry) {
+        if (entry.value == null || writeClock.get() == entry.stamp || latestWrite(key) <= entry.stamp) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+                cachedBytes -= entry.value.body().length;
+                cachedEntries--;
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return false;
+    }
+
+    private void complete(Key key, Entry entry, CachedRange value) {
+        lock.lock();
+        try {
+            if (entries.get(key) != entry || entry.value != null) {
+                return;
+            }
+            if (value == null || value.body().length > maxBytes) {
+                entries.remove(key);
+                return;
+            }
+            entry.value = value;
+            cachedBytes += value.body().length;
+            cachedEntries++;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((cachedBytes > maxBytes || cachedEntries > maxEntries) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.value != null) {
+                iterator.remove();
+                cachedBytes -= entry.value.body().length;
+                cachedEntries--;
+            }
+        }
+    }
+
+    @Override
+    public void onChange(UserEntity previous, UserEntity current) {
+        long stamp = writeClock.incrementAndGet();
+        if (previous != null) {
+            markWritten(previous.getBirthDate(), stamp);
+        }
+        if (current != null) {
+            markWritten(current.getBirthDate(), stamp);
+        }
+    }
+
+    private void markWritten(LocalDate birthDate, long stamp) {
+        dayStamps.accumulateAndGet(daySlot(birthDate.toEpochDay()), stamp, Math::max);
+        monthStamps.accumulateAndGet(monthSlot(birthDate), stamp, Math::max);
+        yearStamps.accumulateAndGet(yearSlot(birthDate), stamp, Math::max);
+    }
+
+    /**
+     * The latest stamp recorded against any date in the key's range, covering it with whole years and months
+     * where it can and single days at its ends.
+     */
+    private long latestWrite(Key key) {
+        long first = key.from().toEpochDay() + (key.fromInclusive() ? 0 : 1);
+        long last = key.to().toEpochDay() - (key.toInclusive() ? 0 : 1);
+        if (first > last) {
+            return 0;
+        }
+        if (key.to().getYear() - key.from().getYear() >= YEAR_SLOTS) {
+            return writeClock.get();
+        }
+        long latest = 0;
+        long day = first;
+        while (day <= last) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            long yearEnd = day + date.lengthOfYear() - date.getDayOfYear();
+            long monthEnd = day + date.lengthOfMonth() - date.getDayOfMonth();
+            if (date.getDayOfYear() == 1 && yearEnd <= last) {
+                latest = Math.max(latest, yearStamps.get(yearSlot(date)));
+                day = yearEnd + 1;
+            } else if (date.getDayOfMonth() == 1 && monthEnd <= last) {
+                latest = Math.max(latest, monthStamps.get(monthSlot(date)));
+                day = monthEnd + 1;
+            } else {
+                latest = Math.max(latest, dayStamps.get(daySlot(day)));
+                day++;
+            }
+        }
+        return latest;
+    }
+
+    private static int daySlot(long epochDay) {
+        return (int) (epochDay & (DAY_SLOTS - 1));
+    }
+
+    private static int monthSlot(LocalDate date) {
+        return (int) ((date.getYear() * 12L + date.getMonthValue()) & (MONTH_SLOTS - 1));
+    }
+
+    private static int yearSlot(LocalDate date) {
+        return date.getYear() & (YEAR_SLOTS - 1);
+    }
+
+    private double cachedBytes() {
+        lock.lock();
+        try {
+            return cachedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A range search request; {@code limit} and {@code cursor} are {@code null} for an unpaged search.
+     */
+    public record Key(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                      Integer limit, String cursor) {
+    }
+
+    private static final class Entry {
+        private final long stamp;
+        private volatile CachedRange value;
+
+        private Entry(long stamp) {
+            this.stamp = stamp;
+        }
+    }
+}
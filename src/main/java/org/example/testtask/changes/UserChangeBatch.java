@@ -0,0 +1,17 @@
+package org.example.testtask.changes;
+
+import java.util.List;
+
+/**
+ * Events read from the change log. {@code lastSequence} is the cursor to pass back to continue reading;
+ * {@code truncated} means events after the requested cursor were overwritten before they could be read.
+ * {@code logId} identifies the log instance, which restarts its sequence with every application start, and
+ * {@code headSequence} is the latest sequence it had assigned when the batch was read.
+ */
+public record UserChangeBatch(List<UserChangeEvent> events, long lastSequence, boolean truncated, String logId,
+                              long headSequence) {
+
+    public boolean hasChanges() {
+        return !events.isEmpty() || truncated;
+    }
+}
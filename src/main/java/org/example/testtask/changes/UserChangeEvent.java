@@ -0,0 +1,25 @@
+package org.example.testtask.changes;
+
+import org.example.testtask.entity.UserEntity;
+
+/**
+ * One mutation of the user store. {@code previousEmail} is the email the user was stored under before the change
+ * and is {@code null} for a creation; {@code user} is the stored state after the change and is {@code null} for a
+ * deletion; {@code version} is the version of that state, or of the deleted user.
+ */
+public record UserChangeEvent(long sequence, Type type, String email, String previousEmail, UserEntity user,
+                              long version) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    static UserChangeEvent of(long sequence, UserEntity previous, UserEntity current) {
+        if (current == null) {
+            return new UserChangeEvent(sequence, Type.DELETED, previous.getEmail(), previous.getEmail(), null,
+                    previous.getVersion());
+        }
+        return new UserChangeEvent(sequence, previous == null ? Type.CREATED : Type.UPDATED, current.getEmail(),
+                previous == null ? null : previous.getEmail(), current, current.getVersion());
+    }
+}
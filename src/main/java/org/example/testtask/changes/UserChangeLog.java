@@ -0,0 +1,111 @@
+package org.example.testtask.changes;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring buffer of store mutations numbered by a sequence that starts at 1. A writer claims a sequence and
+ * publishes its event into the slot for that sequence, overwriting the event one lap older; it never waits for
+ * readers. Readers copy events out by sequence, stop at a slot whose writer has not published yet, and report
+ * a truncated read when the slot they need has already been overwritten.
+ * <p>
+ * The log is only active with the in-memory store, whose change notifications feed it. It subscribes once all
+ * singletons are initialized, so users replayed from the write-ahead log on startup are not reported as changes.
+ */
+@Component
+public class UserChangeLog implements UserChangeListener, SmartInitializingSingleton {
+    private final Optional<UserStore> userStore;
+    private final int capacity;
+    private final AtomicReferenceArray<UserChangeEvent> slots;
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final String logId = UUID.randomUUID().toString();
+    private final Counter truncatedReads;
+
+    public UserChangeLog(Optional<UserStore> userStore, MeterRegistry meterRegistry,
+                         @Value("${user.changes.capacity:65536}") int capacity) {
+        this.userStore = userStore;
+        this.capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+        this.truncatedReads = Counter.builder("users.changes.truncated")
+                .description("Change log reads that found the requested events already overwritten")
+                .register(meterRegistry);
+        Gauge.builder("users.changes.sequence", this, UserChangeLog::lastSequence)
+                .description("Sequence of the latest user change")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        userStore.ifPresent(store -> store.addListener(this));
+    }
+
+    @PreDestroy
+    public void stop() {
+        userStore.ifPresent(store -> store.removeListener(this));
+    }
+
+    public boolean isEnabled() {
+        return userStore.isPresent();
+    }
+
+    public String logId() {
+        return logId;
+    }
+
+    public long lastSequence() {
+        return nextSequence.get() - 1;
+    }
+
+    @Override
+    public void onChange(UserEntity previous, UserEntity current) {
+        long sequence = nextSequence.getAndIncrement();
+        slots.set(slotOf(sequence), UserChangeEvent.of(sequence, previous, current));
+    }
+
+    /**
+     * Returns up to {@code limit} events with a sequence greater than {@code after}. When those events were
+     * overwritten, the batch is marked truncated and continues from the oldest event still retained.
+     */
+    public UserChangeBatch readAfter(long after, int limit) {
+        long last = lastSequence();
+        long sequence = Math.max(after, 0) + 1;
+        boolean truncated = false;
+        List<UserChangeEvent> events = new ArrayList<>((int) Math.min(limit, Math.max(0, last - sequence + 1)));
+        while (events.size() < limit && sequence <= last) {
+            UserChangeEvent event = slots.get(slotOf(sequence));
+            if (event == null || event.sequence() < sequence) {
+                break;
+            }
+            if (event.sequence() > sequence) {
+                truncated = true;
+                sequence = Math.max(sequence + 1, lastSequence() - capacity + 1);
+                continue;
+            }
+            events.add(event);
+            sequence++;
+        }
+        if (truncated) {
+            truncatedReads.increment();
+        }
+        return new UserChangeBatch(events, sequence - 1, truncated, logId, Math.max(last, sequence - 1));
+    }
+
+    private int slotOf(long sequence) {
+        return (int) (sequence & (capacity - 1));
+    }
+}
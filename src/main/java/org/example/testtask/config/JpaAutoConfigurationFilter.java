@@ -0,0 +1,44 @@
+package org.example.testtask.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Drops the JDBC, JPA and H2 auto-configurations, together with their actuator metrics and health contributors,
+ * before their conditions are evaluated unless {@code user.store.type=jpa}. The in-memory store needs neither a
+ * datasource nor Hibernate, and skipping them is the largest single saving in startup time.
+ */
+public class JpaAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+    private static final List<String> JPA_PACKAGES = List.of(
+            "org.springframework.boot.autoconfigure.jdbc.",
+            "org.springframework.boot.autoconfigure.orm.jpa.",
+            "org.springframework.boot.autoconfigure.data.jpa.",
+            "org.springframework.boot.autoconfigure.sql.init.",
+            "org.springframework.boot.autoconfigure.h2.",
+            "org.springframework.boot.actuate.autoconfigure.jdbc.",
+            "org.springframework.boot.actuate.autoconfigure.metrics.jdbc.",
+            "org.springframework.boot.actuate.autoconfigure.metrics.orm.jpa.");
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean jpa = "jpa".equals(environment.getProperty("user.store.type"));
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            String autoConfigurationClass = autoConfigurationClasses[i];
+            matches[i] = jpa || autoConfigurationClass == null
+                    || JPA_PACKAGES.stream().noneMatch(autoConfigurationClass::startsWith);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.testtask.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Binary wire format for internal clients that want to skip JSON: Jackson Smile, negotiated through
+ * {@code Accept} and {@code Content-Type} on both web stacks. It reuses the JSON mapper's configuration, but
+ * dates travel as epoch-day numbers instead of ISO strings.
+ */
+@Configuration
+public class SmileConfiguration {
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+    private static final MediaType STREAMING_SMILE = MediaType.parseMediaType("application/*+x-jackson-smile");
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = smileMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mapper, SMILE, STREAMING_SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mapper, SMILE, STREAMING_SMILE));
+        };
+    }
+
+    public static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory())
+                .postConfigurer(mapper -> mapper.registerModule(new SimpleModule("EpochDayDates")
+                        .addSerializer(LocalDate.class, new EpochDaySerializer())
+                        .addDeserializer(LocalDate.class, new EpochDayDeserializer())))
+                .build();
+    }
+
+    private static class EpochDaySerializer extends JsonSerializer<LocalDate> {
+        @Override
+        public void serialize(LocalDate value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            generator.writeNumber(value.toEpochDay());
+        }
+    }
+
+    /**
+     * Also accepts ISO strings, so clients can move their payloads over one field at a time.
+     */
+    private static class EpochDayDeserializer extends JsonDeserializer<LocalDate> {
+        @Override
+        public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return LocalDate.ofEpochDay(parser.getLongValue());
+            }
+            if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                try {
+                    return LocalDate.parse(parser.getText());
+                } catch (DateTimeParseException e) {
+                    throw context.weirdStringException(parser.getText(), LocalDate.class, e.getMessage());
+                }
+            }
+            return (LocalDate) context.handleUnexpectedToken(LocalDate.class, parser);
+        }
+    }
+}
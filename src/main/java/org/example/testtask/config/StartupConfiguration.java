@@ -0,0 +1,23 @@
+package org.example.testtask.config;
+
+import org.example.testtask.metrics.UserStoreMetrics;
+import org.example.testtask.store.UserChangeListener;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code spring.main.lazy-initialization} (the {@code startup} profile) beans are created on first use, which
+ * would leave store listeners unsubscribed and skip startup recovery. Those stay eager, together with every bean
+ * that initializes itself once all singletons exist.
+ */
+@Configuration
+public class StartupConfiguration {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerUserStoreListeners() {
+        return LazyInitializationExcludeFilter.forBeanTypes(UserChangeListener.class, SmartInitializingSingleton.class,
+                UserStoreMetrics.class);
+    }
+}
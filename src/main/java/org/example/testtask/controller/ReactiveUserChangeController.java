@@ -0,0 +1,96 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeEvent;
+import org.example.testtask.changes.UserChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reactive counterpart of {@link UserChangeController}: consumers poll the log on a timer, and a subscriber
+ * that does not request more simply skips ticks until it catches up or is truncated.
+ */
+@RestController
+@RequestMapping("/users/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserChangeController {
+    private static final long MAX_WAIT_MS = 60_000;
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private final UserChangeLog changeLog;
+    private final Duration pollInterval;
+
+    public ReactiveUserChangeController(UserChangeLog changeLog,
+                                        @Value("${user.changes.poll-interval-ms:20}") long pollIntervalMs) {
+        this.changeLog = changeLog;
+        this.pollInterval = Duration.ofMillis(pollIntervalMs);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<UserChangeBatch> pollChanges(@RequestParam(value = "after", defaultValue = "0") long after,
+                                             @RequestParam(value = "limit", defaultValue = "1000") int limit,
+                                             @RequestParam(value = "waitMs", defaultValue = "30000") long waitMs) {
+        requireEnabled();
+        if (limit <= 0 || limit > UserChangeController.MAX_BATCH_SIZE || waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be in 1.." + UserChangeController.MAX_BATCH_SIZE + " and waitMs in 0.." + MAX_WAIT_MS);
+        }
+        return Flux.interval(Duration.ZERO, pollInterval)
+                .onBackpressureDrop()
+                .map(tick -> changeLog.readAfter(after, limit))
+                .filter(UserChangeBatch::hasChanges)
+                .next()
+                .timeout(Duration.ofMillis(waitMs), Mono.fromSupplier(() -> changeLog.readAfter(after, limit)));
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<?>> streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                  @RequestParam(value = "after", defaultValue = "0") long after) {
+        requireEnabled();
+        return Flux.defer(() -> {
+            AtomicLong cursor = new AtomicLong(lastEventId != null ? lastEventId : after);
+            Flux<ServerSentEvent<?>> changes = Flux.interval(Duration.ZERO, pollInterval)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> {
+                        long previous = cursor.get();
+                        UserChangeBatch batch = changeLog.readAfter(previous, UserChangeController.MAX_BATCH_SIZE);
+                        cursor.set(batch.lastSequence());
+                        Flux<ServerSentEvent<?>> events = Flux.fromIterable(batch.events()).map(this::toServerSentEvent);
+                        return batch.truncated()
+                                ? Flux.<ServerSentEvent<?>>just(ServerSentEvent.builder(previous).event("truncated").build()).concatWith(events)
+                                : events;
+                    }, 1);
+            Flux<ServerSentEvent<?>> heartbeats = Flux.interval(HEARTBEAT_INTERVAL)
+                    .onBackpressureDrop()
+                    .map(tick -> ServerSentEvent.builder().comment("keep-alive").build());
+            return Flux.merge(changes, heartbeats);
+        });
+    }
+
+    private ServerSentEvent<?> toServerSentEvent(UserChangeEvent event) {
+        return ServerSentEvent.builder(event)
+                .id(Long.toString(event.sequence()))
+                .event(event.type().name())
+                .build();
+    }
+
+    private void requireEnabled() {
+        if (!changeLog.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "the change log requires the in-memory store");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.example.testtask.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.ReactiveUserService;
+import org.example.testtask.validation.UserValidator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code /users} API of {@link UserController} for the reactive web stack, enabled by running with
+ * {@code spring.main.web-application-type=reactive} (the {@code reactive} profile). Range results are written
+ * as they are pulled from the store, at the pace the client reads them.
+ */
+@RestController
+@RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+    private static final int BATCH_SIZE = 1000;
+    private static final int SMILE_CHUNK_SIZE = 256;
+
+    private final ReactiveUserService userService;
+    private final UserValidator userValidator;
+    private final ObjectMapper smileMapper;
+
+    public ReactiveUserController(ReactiveUserService userService, UserValidator userValidator,
+                                  Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.userService = userService;
+        this.userValidator = userValidator;
+        this.smileMapper = SmileConfiguration.smileMapper(objectMapperBuilder);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<String>> createUser(@RequestBody UserEntity userEntity) {
+        userValidator.requireValid(userEntity, userEntity.getBirthDate());
+        return userService.createUser(userEntity)
+                .map(created -> ResponseEntity.status(HttpStatus.CREATED).body("User successfully created"));
+    }
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, UserController.NDJSON_VALUE,
+            SmileConfiguration.SMILE_VALUE})
+    public Mono<ResponseEntity<List<BatchItemResult>>> createUsers(@RequestBody Flux<UserEntity> users,
+                                                                   @RequestParam(value = "upsert", defaultValue = "false") boolean upsert) {
+        AtomicInteger parsed = new AtomicInteger();
+        AtomicReference<Throwable> malformed = new AtomicReference<>();
+        return users
+                .doOnNext(user -> parsed.incrementAndGet())
+                .onErrorResume(ReactiveUserController::isDecodingError, e -> {
+                    malformed.set(NestedExceptionUtils.getMostSpecificCause(e));
+                    return Flux.empty();
+                })
+                .index()
+                .buffer(BATCH_SIZE)
+                .concatMap(chunk -> applyBatch(chunk, upsert))
+                .concatWith(Flux.defer(() -> malformed.get() == null ? Flux.empty()
+                        : Flux.just(new BatchItemResult(parsed.get(), null, HttpStatus.BAD_REQUEST.value(),
+                        "Failed to parse user: " + malformed.get().getMessage()))))
+                .collectSortedList(Comparator.comparingInt(BatchItemResult::getIndex))
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/batch")
+    public Mono<ResponseEntity<List<BatchItemResult>>> deleteUsers(@RequestBody List<String> emails) {
+        return userService.deleteUsersByEmail(emails).map(ResponseEntity::ok);
+    }
+
+    /**
+     * The argument resolver reports a malformed item as a {@link ServerWebInputException} caused by the
+     * {@link DecodingException}.
+     */
+    private static boolean isDecodingError(Throwable error) {
+        return error instanceof DecodingException || error.getCause() instanceof DecodingException;
+    }
+
+    private Flux<BatchItemResult> applyBatch(List<Tuple2<Long, UserEntity>> chunk, boolean upsert) {
+        List<BatchItemResult> results = new ArrayList<>(chunk.size());
+        List<UserEntity> batch = new ArrayList<>(chunk.size());
+        int[] batchIndexes = new int[chunk.size()];
+        for (Tuple2<Long, UserEntity> indexed : chunk) {
+            int index = indexed.getT1().intValue();
+            UserEntity user = indexed.getT2();
+            String violation = userValidator.validateNewUser(user);
+            if (violation != null) {
+                results.add(new BatchItemResult(index, user.getEmail(), HttpStatus.BAD_REQUEST.value(), violation));
+            } else {
+                batchIndexes[batch.size()] = index;
+                batch.add(user);
+            }
+        }
+        if (batch.isEmpty()) {
+            return Flux.fromIterable(results);
+        }
+        return userService.createUsers(batch, upsert)
+                .flatMapIterable(created -> {
+                    for (BatchItemResult result : created) {
+                        result.setIndex(batchIndexes[result.getIndex()]);
+                        results.add(result);
+                    }
+                    return results;
+                });
+    }
+
+    @GetMapping("/{email}")
+    public Mono<ResponseEntity<UserEntity>> getUser(@PathVariable String email) {
+        return userService.findByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).body(user))
+                .defaultIfEmpty(ResponseEntity.notFound().<UserEntity>build());
+    }
+
+    @PatchMapping("/{email}")
+    public Mono<ResponseEntity<String>> partiallyUpdateUser(@PathVariable String email, @RequestBody PatchedUserDTO request,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userValidator.requireValid(request, request.getBirthDate());
+        return Mono.defer(() -> userService.patchUser(email, request, UserETags.expectedVersion(ifMatch)))
+                .map(updated -> ResponseEntity.ok().eTag(UserETags.of(updated)).body("User updated successfully"));
+    }
+
+    @PutMapping("/{email}")
+    public Mono<ResponseEntity<String>> fullUpdateUser(@PathVariable String email, @RequestBody UserEntity updatedUser,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userValidator.requireValid(updatedUser, updatedUser.getBirthDate());
+        return Mono.defer(() -> userService.updateUserByEmail(email, updatedUser, UserETags.expectedVersion(ifMatch)))
+                .map(updated -> ResponseEntity.ok().eTag(UserETags.of(updated)).body("User updated successfully"));
+    }
+
+    @DeleteMapping("/{email}")
+    public Mono<ResponseEntity<String>> deleteUser(@PathVariable String email,
+                                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.defer(() -> userService.deleteUserByEmail(email, UserETags.expectedVersion(ifMatch)))
+                .map(deleted -> ResponseEntity.ok("User deleted successfully"));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE, params = "!limit")
+    public ResponseEntity<Flux<UserEntity>> searchUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                                        @RequestParam("to") LocalDate to,
+                                                                        @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                        @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive));
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, SmileConfiguration.SMILE_VALUE}, params = "limit")
+    public Mono<ResponseEntity<List<UserEntity>>> searchUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                                              @RequestParam("to") LocalDate to,
+                                                                              @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                              @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive,
+                                                                              @RequestParam("limit") int limit,
+                                                                              @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from.isAfter(to) || limit <= 0) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive, cursor, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(UserController.NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getUsers());
+                });
+    }
+
+    @GetMapping(produces = UserController.NDJSON_VALUE)
+    public ResponseEntity<Flux<UserEntity>> streamUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                                        @RequestParam("to") LocalDate to,
+                                                                        @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                        @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(UserController.NDJSON_VALUE))
+                .body(userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive));
+    }
+
+    /**
+     * The Smile codec frames a streamed {@link Flux} with JSON brackets, so the unpaged binary search writes its
+     * own array: one generator per response, drained into a buffer every {@value #SMILE_CHUNK_SIZE} users.
+     */
+    @GetMapping(produces = SmileConfiguration.SMILE_VALUE, params = "!limit")
+    public ResponseEntity<Flux<DataBuffer>> streamUsersByBirthDateRangeAsSmile(@RequestParam("from") LocalDate from,
+                                                                               @RequestParam("to") LocalDate to,
+                                                                               @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                               @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Flux<UserEntity> users = userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive);
+        return ResponseEntity.ok()
+                .contentType(SmileConfiguration.SMILE)
+                .body(Flux.using(SmileArrayWriter::new, writer -> Flux.concat(
+                        Mono.fromCallable(writer::start),
+                        users.buffer(SMILE_CHUNK_SIZE).map(writer::write),
+                        Mono.fromCallable(writer::end)), SmileArrayWriter::close));
+    }
+
+    private class SmileArrayWriter {
+        private final ByteArrayBuilder buffer = new ByteArrayBuilder();
+        private final ObjectWriter writer = smileMapper.writerFor(UserEntity.class);
+        private final JsonGenerator generator;
+
+        SmileArrayWriter() throws IOException {
+            generator = smileMapper.getFactory().createGenerator(buffer);
+        }
+
+        DataBuffer start() throws IOException {
+            generator.writeStartArray();
+            return drain();
+        }
+
+        DataBuffer write(List<UserEntity> users) {
+            try {
+                for (UserEntity user : users) {
+                    writer.writeValue(generator, user);
+                }
+                return drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        DataBuffer end() throws IOException {
+            generator.writeEndArray();
+            return drain();
+        }
+
+        private DataBuffer drain() throws IOException {
+            generator.flush();
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+        }
+
+        void close() {
+            try {
+                generator.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                buffer.release();
+            }
+        }
+    }
+}
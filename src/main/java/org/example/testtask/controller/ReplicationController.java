@@ -0,0 +1,83 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.replication.ReplicatedUser;
+import org.example.testtask.replication.ReplicationFollower;
+import org.example.testtask.replication.ReplicationRole;
+import org.example.testtask.replication.ReplicationSnapshotPage;
+import org.example.testtask.replication.ReplicationState;
+import org.example.testtask.replication.ReplicationStatus;
+import org.example.testtask.service.impl.UserCursors;
+import org.example.testtask.store.BirthDateKey;
+import org.example.testtask.store.UserStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Serves the snapshot a follower starts from and reports the replication state of this node. Followers tail
+ * the {@link UserChangeLog} through {@code /users/changes} afterwards. Nothing here blocks, so the controller
+ * serves both web stacks.
+ */
+@RestController
+@RequestMapping("/replication")
+public class ReplicationController {
+    private final Optional<UserStore> userStore;
+    private final UserChangeLog changeLog;
+    private final Optional<ReplicationFollower> follower;
+
+    public ReplicationController(Optional<UserStore> userStore, UserChangeLog changeLog,
+                                 Optional<ReplicationFollower> follower) {
+        this.userStore = userStore;
+        this.changeLog = changeLog;
+        this.follower = follower;
+    }
+
+    /**
+     * Users in birth-date order starting after {@code cursor}. Pages are read without stopping writers; the
+     * sequence is taken before each page, so the log replayed from the first page's sequence covers every
+     * change a later page may have missed.
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<ReplicationSnapshotPage> snapshot(@RequestParam(value = "cursor", required = false) String cursor,
+                                                            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        if (userStore.isEmpty() || !changeLog.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "replication requires the in-memory store");
+        }
+        if (limit <= 0 || limit > UserChangeController.MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be in 1.." + UserChangeController.MAX_BATCH_SIZE);
+        }
+        BirthDateKey after = cursor == null ? null : UserCursors.decode(cursor);
+        long sequence = changeLog.lastSequence();
+        Iterator<UserEntity> iterator = userStore.get()
+                .findByBirthDateRange(LocalDate.MIN, true, LocalDate.MAX, false, after)
+                .iterator();
+        List<ReplicatedUser> users = new ArrayList<>(Math.min(limit, 1024));
+        UserEntity last = null;
+        while (users.size() < limit && iterator.hasNext()) {
+            last = iterator.next();
+            users.add(new ReplicatedUser(last, last.getVersion()));
+        }
+        String nextCursor = iterator.hasNext() && last != null ? UserCursors.encode(last) : null;
+        return ResponseEntity.ok(new ReplicationSnapshotPage(changeLog.logId(), sequence, users, nextCursor));
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<ReplicationStatus> status() {
+        return ResponseEntity.ok(follower.map(ReplicationFollower::status).orElseGet(
+                () -> new ReplicationStatus(ReplicationRole.LEADER, ReplicationState.LEADING, null, changeLog.logId(),
+                        changeLog.lastSequence(), null, null, null)));
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.testtask.controller;
+
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeEvent;
+import org.example.testtask.changes.UserChangeLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tails the {@link UserChangeLog}. Waiting consumers are polled from a small scheduler rather than woken by
+ * writers, so a mutation never does more than publish its event; a consumer that reads too slowly only falls
+ * behind and eventually gets a truncated batch.
+ * <p>
+ * Server-sent events are written on a separate sender pool, because {@link SseEmitter#send} blocks until the
+ * client takes the data. Each stream has at most one send in flight and is only polled again once it finishes,
+ * so a slow client holds one sender thread and never the shared poller; a send that takes longer than
+ * {@code send-timeout-ms} ends the stream.
+ */
+@RestController
+@RequestMapping("/users/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserChangeController {
+    static final int MAX_BATCH_SIZE = 10_000;
+    private static final long MAX_WAIT_MS = 60_000;
+    private static final long HEARTBEAT_INTERVAL_MS = 15_000;
+
+    private final UserChangeLog changeLog;
+    private final long pollIntervalMs;
+    private final long sendTimeoutMs;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService sender = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "user-change-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserChangeController(UserChangeLog changeLog,
+                                @Value("${user.changes.poll-interval-ms:20}") long pollIntervalMs,
+                                @Value("${user.changes.dispatch-threads:2}") int dispatchThreads,
+                                @Value("${user.changes.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.changeLog = changeLog;
+        this.pollIntervalMs = pollIntervalMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.scheduler = Executors.newScheduledThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "user-change-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    /**
+     * Long poll: answers as soon as there are events after {@code after}, or with an empty batch once
+     * {@code waitMs} has passed.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<UserChangeBatch> pollChanges(@RequestParam(value = "after", defaultValue = "0") long after,
+                                                       @RequestParam(value = "limit", defaultValue = "1000") int limit,
+                                                       @RequestParam(value = "waitMs", defaultValue = "30000") long waitMs) {
+        requireEnabled();
+        if (limit <= 0 || limit > MAX_BATCH_SIZE || waitMs < 0 || waitMs > MAX_WAIT_MS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be in 1.." + MAX_BATCH_SIZE + " and waitMs in 0.." + MAX_WAIT_MS);
+        }
+        DeferredResult<UserChangeBatch> result = new DeferredResult<>(waitMs + MAX_WAIT_MS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        new Runnable() {
+            @Override
+            public void run() {
+                if (result.isSetOrExpired()) {
+                    return;
+                }
+                UserChangeBatch batch = changeLog.readAfter(after, limit);
+                if (batch.hasChanges() || System.nanoTime() - deadline >= 0) {
+                    result.setResult(batch);
+                } else {
+                    scheduler.schedule(this, pollIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }.run();
+        return result;
+    }
+
+    /**
+     * Server-sent events starting after {@code Last-Event-ID} when reconnecting, or after {@code after}. Each
+     * event's id is its sequence; a {@code truncated} event carrying the previous cursor announces that events after
+     * it were missed.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(value = "after", defaultValue = "0") long after) {
+        requireEnabled();
+        return subscribe(new SseEmitter(0L), lastEventId != null ? lastEventId : after);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, long after) {
+        Subscription subscription = new Subscription(emitter, after);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        scheduler.execute(subscription);
+        return emitter;
+    }
+
+    private void requireEnabled() {
+        if (!changeLog.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "the change log requires the in-memory store");
+        }
+    }
+
+    /**
+     * Polls on the dispatch scheduler and hands each batch to the sender pool; the send schedules the next poll
+     * when it is done, so polls and sends of one stream never overlap.
+     */
+    private class Subscription implements Runnable {
+        private final SseEmitter emitter;
+        private volatile boolean cancelled;
+        private long cursor;
+        private long lastSentAt = System.nanoTime();
+
+        Subscription(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            UserChangeBatch batch = changeLog.readAfter(cursor, MAX_BATCH_SIZE);
+            boolean heartbeat = !batch.hasChanges()
+                    && System.nanoTime() - lastSentAt >= TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_INTERVAL_MS);
+            if (!batch.hasChanges() && !heartbeat) {
+                cursor = batch.lastSequence();
+                scheduler.schedule(this, pollIntervalMs, TimeUnit.MILLISECONDS);
+                return;
+            }
+            long previousCursor = cursor;
+            cursor = batch.lastSequence();
+            Future<?> send = sender.submit(() -> send(batch, previousCursor, heartbeat));
+            scheduler.schedule(() -> {
+                if (!send.isDone()) {
+                    send.cancel(true);
+                    fail(new TimeoutException("sending change events took longer than " + sendTimeoutMs + " ms"));
+                }
+            }, sendTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void send(UserChangeBatch batch, long previousCursor, boolean heartbeat) {
+            try {
+                if (batch.truncated()) {
+                    emitter.send(SseEmitter.event().name("truncated").data(previousCursor));
+                }
+                for (UserChangeEvent event : batch.events()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.sequence()))
+                            .name(event.type().name())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+                if (heartbeat) {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+                lastSentAt = System.nanoTime();
+                if (!cancelled) {
+                    scheduler.schedule(this, batch.hasChanges() ? 0 : pollIntervalMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException | IllegalStateException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            if (!cancelled) {
+                cancelled = true;
+                emitter.completeWithError(error);
+            }
+        }
+    }
+}
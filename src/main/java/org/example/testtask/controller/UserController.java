@@ -1,84 +1,253 @@
 package org.example.testtask.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.fge.jsonpatch.JsonPatchException;
-import jakarta.validation.Valid;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.testtask.cache.CachedRange;
+import org.example.testtask.cache.RangeResponseCache;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.dto.BatchItemResult;
 import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
 import org.example.testtask.entity.UserEntity;
 import org.example.testtask.service.UserService;
-import org.springframework.beans.factory.annotation.Value;
+import org.example.testtask.validation.UserValidator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
-    @Value("${user.minimum.age}")
-    private int minimumAge;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+    private static final int BATCH_SIZE = 1000;
+
     private UserService userService;
+    private ObjectMapper objectMapper;
+    private ObjectMapper smileMapper;
+    private UserValidator userValidator;
+    private RangeResponseCache rangeResponseCache;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, UserValidator userValidator,
+                          RangeResponseCache rangeResponseCache, MappingJackson2SmileHttpMessageConverter smileConverter) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.smileMapper = smileConverter.getObjectMapper();
+        this.userValidator = userValidator;
+        this.rangeResponseCache = rangeResponseCache;
     }
 
     @PostMapping
-    public ResponseEntity<String> createUser(@Valid @RequestBody UserEntity userEntity) {
-        LocalDate minimumBirthDate = LocalDate.now().minusYears(minimumAge);
-        if (userEntity.getBirthDate().isAfter(minimumBirthDate)) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Users must be older than " + minimumAge + " years old to register.");
-        }
+    public ResponseEntity<String> createUser(@RequestBody UserEntity userEntity) {
+        userValidator.requireValid(userEntity, userEntity.getBirthDate());
         userService.createUser(userEntity);
         return ResponseEntity.status(HttpStatus.CREATED).body("User successfully created");
     }
 
-    @PatchMapping("/{email}")
-    public ResponseEntity<String> partiallyUpdateUser(@PathVariable String email, @Valid @RequestBody PatchedUserDTO request) {
-        if (userService.findByEmail(email).isEmpty()) {
-            return ResponseEntity.notFound().build();
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE, SmileConfiguration.SMILE_VALUE})
+    public ResponseEntity<List<BatchItemResult>> createUsers(HttpServletRequest request,
+                                                             @RequestParam(value = "upsert", defaultValue = "false") boolean upsert)
+            throws IOException {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<UserEntity> batch = new ArrayList<>(BATCH_SIZE);
+        int[] batchIndexes = new int[BATCH_SIZE];
+        int index = 0;
+        ObjectMapper mapper = SmileConfiguration.SMILE.includes(MediaType.parseMediaType(request.getContentType()))
+                ? smileMapper : objectMapper;
+        try (MappingIterator<UserEntity> users = mapper.readerFor(UserEntity.class).readValues(request.getInputStream())) {
+            while (users.hasNextValue()) {
+                UserEntity user = users.nextValue();
+                String violation = userValidator.validateNewUser(user);
+                if (violation != null) {
+                    results.add(new BatchItemResult(index, user.getEmail(), HttpStatus.BAD_REQUEST.value(), violation));
+                } else {
+                    batchIndexes[batch.size()] = index;
+                    batch.add(user);
+                    if (batch.size() == BATCH_SIZE) {
+                        applyBatch(batch, batchIndexes, upsert, results);
+                    }
+                }
+                index++;
+            }
+        } catch (JsonProcessingException e) {
+            results.add(new BatchItemResult(index, null, HttpStatus.BAD_REQUEST.value(),
+                    "Failed to parse user: " + e.getOriginalMessage()));
         }
+        applyBatch(batch, batchIndexes, upsert, results);
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        return ResponseEntity.ok(results);
+    }
 
-        try {
-            userService.patchUser(email, request.toJson());
-        } catch (JsonPatchException | JsonProcessingException e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to apply JSON Patch: " + e.getMessage());
+    @DeleteMapping("/batch")
+    public ResponseEntity<List<BatchItemResult>> deleteUsers(@RequestBody List<String> emails) {
+        return ResponseEntity.ok(userService.deleteUsersByEmail(emails));
+    }
+
+    private void applyBatch(List<UserEntity> batch, int[] batchIndexes, boolean upsert, List<BatchItemResult> results) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (BatchItemResult result : userService.createUsers(batch, upsert)) {
+            result.setIndex(batchIndexes[result.getIndex()]);
+            results.add(result);
         }
+        batch.clear();
+    }
 
-        return ResponseEntity.ok("User updated successfully");
+    @GetMapping("/{email}")
+    public ResponseEntity<UserEntity> getUser(@PathVariable String email) {
+        return userService.findByEmail(email)
+                .map(user -> ResponseEntity.ok().eTag(UserETags.of(user)).body(user))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    @PutMapping("/{email}")
-    public ResponseEntity<String> fullUpdateUser(@PathVariable String email, @Valid @RequestBody UserEntity updatedUser) {
-        if (userService.findByEmail(email).isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
+    @PatchMapping("/{email}")
+    public ResponseEntity<String> partiallyUpdateUser(@PathVariable String email, @RequestBody PatchedUserDTO request,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userValidator.requireValid(request, request.getBirthDate());
+        UserEntity updated = userService.patchUser(email, request, UserETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(UserETags.of(updated)).body("User updated successfully");
+    }
 
-        userService.updateUserByEmail(email, updatedUser);
-        return ResponseEntity.ok("User updated successfully");
+    @PutMapping("/{email}")
+    public ResponseEntity<String> fullUpdateUser(@PathVariable String email, @RequestBody UserEntity updatedUser,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userValidator.requireValid(updatedUser, updatedUser.getBirthDate());
+        UserEntity updated = userService.updateUserByEmail(email, updatedUser, UserETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(UserETags.of(updated)).body("User updated successfully");
     }
 
     @DeleteMapping("/{email}")
-    public ResponseEntity<String> deleteUser(@PathVariable String email) {
-        if (userService.findByEmail(email).isEmpty()) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<String> deleteUser(@PathVariable String email,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.deleteUserByEmail(email, UserETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok("User deleted successfully");
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> searchUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                              @RequestParam("to") LocalDate to,
+                                                              @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                              @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive,
+                                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from.isAfter(to) || (limit != null && limit <= 0)) {
+            return ResponseEntity.badRequest().body(null);
         }
 
-        userService.deleteUserByEmail(email);
-        return ResponseEntity.ok("User deleted successfully");
+        RangeResponseCache.Key key = new RangeResponseCache.Key(from, fromInclusive, to, toInclusive, limit, cursor);
+        CachedRange range = rangeResponseCache.get(key, () -> searchUsers(key));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(range.etag());
+        if (range.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, range.nextCursor());
+        }
+        return response.body(range.body());
     }
 
-    @GetMapping
-    public ResponseEntity<List<UserEntity>> searchUsersByBirthDateRange(@RequestParam("from") LocalDate from,
-                                                                        @RequestParam("to") LocalDate to) {
+    private CachedRange searchUsers(RangeResponseCache.Key key) {
+        try {
+            if (key.limit() == null) {
+                List<UserEntity> users = userService.findUsersForBirthDateRange(key.from(), key.fromInclusive(),
+                        key.to(), key.toInclusive());
+                return CachedRange.of(objectMapper.writeValueAsBytes(users), null);
+            }
+            UserPage page = userService.findUsersForBirthDateRange(key.from(), key.fromInclusive(), key.to(),
+                    key.toInclusive(), key.cursor(), key.limit());
+            return CachedRange.of(objectMapper.writeValueAsBytes(page.getUsers()), page.getNextCursor());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping(produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                                             @RequestParam("to") LocalDate to,
+                                                                             @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                             @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive) {
         if (from.isAfter(to)) {
-            return ResponseEntity.badRequest().body(null);
+            return ResponseEntity.badRequest().build();
         }
 
-        List<UserEntity> users = userService.findUsersForBirthDateRange(from, to);
-        return ResponseEntity.ok(users);
+        ObjectWriter writer = objectMapper.writerFor(UserEntity.class);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<UserEntity> users = userService.streamUsersForBirthDateRange(from, fromInclusive, to, toInclusive);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                         .setRootValueSeparator(null)) {
+                int written = 0;
+                for (Iterator<UserEntity> iterator = users.iterator(); iterator.hasNext(); ) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+
+    /**
+     * Binary counterpart of the JSON search: one Smile array written straight to the response as users are read,
+     * paged the same way when {@code limit} is given.
+     */
+    @GetMapping(produces = SmileConfiguration.SMILE_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRangeAsSmile(@RequestParam("from") LocalDate from,
+                                                                                    @RequestParam("to") LocalDate to,
+                                                                                    @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                                                    @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive,
+                                                                                    @RequestParam(value = "limit", required = false) Integer limit,
+                                                                                    @RequestParam(value = "cursor", required = false) String cursor) {
+        if (from.isAfter(to) || (limit != null && limit <= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(SmileConfiguration.SMILE);
+        Supplier<Stream<UserEntity>> users;
+        if (limit == null) {
+            users = () -> userService.streamUsersForBirthDateRange(from, fromInclusive, to, toInclusive);
+        } else {
+            UserPage page = userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive, cursor, limit);
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            users = page.getUsers()::stream;
+        }
+        ObjectWriter writer = smileMapper.writerFor(UserEntity.class);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<UserEntity> stream = users.get();
+                 JsonGenerator generator = smileMapper.getFactory().createGenerator(outputStream)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                for (Iterator<UserEntity> iterator = stream.iterator(); iterator.hasNext(); ) {
+                    writer.writeValue(generator, iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return response.body(body);
     }
 }
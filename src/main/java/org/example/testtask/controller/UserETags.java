@@ -0,0 +1,36 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.entity.UserEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Maps user versions to strong entity tags and back. A missing {@code If-Match} header or {@code *} imposes no
+ * version; anything other than a single strong tag produced by {@link #of(UserEntity)} can never match.
+ */
+final class UserETags {
+    private UserETags() {
+    }
+
+    static String of(UserEntity user) {
+        return "\"" + user.getVersion() + "\"";
+    }
+
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.charAt(0) == '"' && tag.charAt(tag.length() - 1) == '"') {
+            try {
+                return Long.parseLong(tag, 1, tag.length() - 1, 10);
+            } catch (NumberFormatException e) {
+                // falls through to the failed precondition below
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match does not name a current user version: " + ifMatch);
+    }
+}
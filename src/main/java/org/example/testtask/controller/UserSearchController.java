@@ -0,0 +1,45 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.search.SearchField;
+import org.example.testtask.search.SearchMatch;
+import org.example.testtask.search.UserSearchIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Looks users up by name, email, address or phone number through the {@link UserSearchIndex}. Like the
+ * statistics endpoints, it never blocks and serves both web stacks.
+ */
+@RestController
+@RequestMapping("/users/search")
+public class UserSearchController {
+    private final UserSearchIndex searchIndex;
+
+    public UserSearchController(UserSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<UserEntity>> searchUsers(@RequestParam("q") String query,
+                                                        @RequestParam(value = "match", defaultValue = "PREFIX") SearchMatch match,
+                                                        @RequestParam(value = "fields", required = false) List<SearchField> fields,
+                                                        @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        if (!searchIndex.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED,
+                    "search requires the in-memory store and user.search.enabled");
+        }
+        Set<SearchField> searched = fields == null || fields.isEmpty()
+                ? EnumSet.allOf(SearchField.class) : EnumSet.copyOf(fields);
+        return ResponseEntity.ok(searchIndex.search(query, match, searched, limit));
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.dto.AgeBracketCount;
+import org.example.testtask.dto.BirthDateBucketCount;
+import org.example.testtask.dto.BirthdayCount;
+import org.example.testtask.statistics.BirthDateStatistics;
+import org.example.testtask.statistics.BucketSize;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+/**
+ * Aggregates over birth dates answered from {@link BirthDateStatistics} counters. Nothing here blocks, so the
+ * same controller serves both web stacks.
+ */
+@RestController
+@RequestMapping("/users/stats")
+public class UserStatisticsController {
+    private final BirthDateStatistics statistics;
+
+    public UserStatisticsController(BirthDateStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @GetMapping("/count")
+    public ResponseEntity<Long> countUsersByBirthDateRange(@RequestParam("from") LocalDate from,
+                                                           @RequestParam("to") LocalDate to,
+                                                           @RequestParam(value = "fromInclusive", defaultValue = "false") boolean fromInclusive,
+                                                           @RequestParam(value = "toInclusive", defaultValue = "false") boolean toInclusive) {
+        requireEnabled();
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(statistics.count(from, fromInclusive, to, toInclusive));
+    }
+
+    @GetMapping("/birth-dates")
+    public ResponseEntity<List<BirthDateBucketCount>> birthDateHistogram(@RequestParam("from") LocalDate from,
+                                                                         @RequestParam("to") LocalDate to,
+                                                                         @RequestParam(value = "bucket", defaultValue = "MONTH") BucketSize bucket) {
+        requireEnabled();
+        return ResponseEntity.ok(statistics.histogram(from, to, bucket));
+    }
+
+    @GetMapping("/age-brackets")
+    public ResponseEntity<List<AgeBracketCount>> ageBrackets(
+            @RequestParam(value = "bounds", defaultValue = "18,25,35,45,55,65") List<Integer> bounds) {
+        requireEnabled();
+        return ResponseEntity.ok(statistics.ageBrackets(bounds));
+    }
+
+    /**
+     * Birthdays per day of {@code month}, the current month by default.
+     */
+    @GetMapping("/birthdays")
+    public ResponseEntity<List<BirthdayCount>> birthdays(@RequestParam(value = "month", required = false) Integer month) {
+        requireEnabled();
+        if (month != null && (month < 1 || month > 12)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(statistics.birthdays(month == null ? LocalDate.now().getMonth() : Month.of(month)));
+    }
+
+    private void requireEnabled() {
+        if (!statistics.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "user statistics require the in-memory store");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.testtask.controller;
+
+import org.example.testtask.transfer.TransferFormat;
+import org.example.testtask.transfer.TransferJobStatus;
+import org.example.testtask.transfer.UserTransferJobs;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Starts bulk exports and imports and reports their progress. Jobs run in the background, so a start answers
+ * 202 Accepted with the job to poll, and the controller serves both web stacks.
+ */
+@RestController
+@RequestMapping("/users/transfers")
+public class UserTransferController {
+    private final UserTransferJobs transferJobs;
+
+    public UserTransferController(UserTransferJobs transferJobs) {
+        this.transferJobs = transferJobs;
+    }
+
+    @PostMapping("/export")
+    public ResponseEntity<TransferJobStatus> exportUsers(@RequestParam(value = "format", defaultValue = "NDJSON") TransferFormat format,
+                                                         @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                                         @RequestParam(value = "file", required = false) String file) {
+        return accepted(transferJobs.export(format, gzip, file));
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<TransferJobStatus> importUsers(@RequestParam("file") String file,
+                                                         @RequestParam(value = "format", required = false) TransferFormat format,
+                                                         @RequestParam(value = "upsert", defaultValue = "false") boolean upsert) {
+        return accepted(transferJobs.importUsers(file, format, upsert));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TransferJobStatus>> jobs() {
+        return ResponseEntity.ok(transferJobs.jobs());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<TransferJobStatus> job(@PathVariable String id) {
+        return transferJobs.job(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<TransferJobStatus> accepted(TransferJobStatus job) {
+        return ResponseEntity.accepted().location(URI.create("/users/transfers/" + job.id())).body(job);
+    }
+}
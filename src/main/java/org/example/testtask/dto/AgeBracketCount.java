@@ -0,0 +1,21 @@
+package org.example.testtask.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AgeBracketCount {
+    private int minAge;
+
+    /**
+     * Exclusive upper bound; absent for the last, open-ended bracket.
+     */
+    private Integer maxAge;
+
+    private long count;
+}
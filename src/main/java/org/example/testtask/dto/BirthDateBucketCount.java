@@ -0,0 +1,21 @@
+package org.example.testtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BirthDateBucketCount {
+    private LocalDate from;
+
+    /**
+     * Exclusive.
+     */
+    private LocalDate to;
+
+    private long count;
+}
@@ -0,0 +1,16 @@
+package org.example.testtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BirthdayCount {
+    private int month;
+
+    private int day;
+
+    private long count;
+}
@@ -2,17 +2,18 @@ package org.example.testtask.dto;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Past;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.validation.ValidEmail;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @Data
 @Builder
@@ -21,7 +22,15 @@ import java.time.LocalDate;
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class PatchedUserDTO {
-    @Email(message = "The provided email is invalid", regexp = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$")
+    private static final List<FieldPatch<?>> FIELD_PATCHES = List.of(
+            new FieldPatch<>(PatchedUserDTO::getEmail, UserEntity::setEmail),
+            new FieldPatch<>(PatchedUserDTO::getFirstName, UserEntity::setFirstName),
+            new FieldPatch<>(PatchedUserDTO::getLastName, UserEntity::setLastName),
+            new FieldPatch<>(PatchedUserDTO::getBirthDate, UserEntity::setBirthDate),
+            new FieldPatch<>(PatchedUserDTO::getAddress, UserEntity::setAddress),
+            new FieldPatch<>(PatchedUserDTO::getPhoneNumber, UserEntity::setPhoneNumber));
+
+    @ValidEmail
     private String email;
 
     private String firstName;
@@ -35,9 +44,24 @@ public class PatchedUserDTO {
 
     private String phoneNumber;
 
-    public String toJson() throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        return objectMapper.writeValueAsString(this);
+    /**
+     * Applies merge-patch semantics: every non-null field of this patch replaces the corresponding field
+     * of a copy of {@code user}; the original is left untouched.
+     */
+    public UserEntity applyTo(UserEntity user) {
+        UserEntity patched = user.toBuilder().build();
+        for (FieldPatch<?> fieldPatch : FIELD_PATCHES) {
+            fieldPatch.apply(this, patched);
+        }
+        return patched;
+    }
+
+    private record FieldPatch<T>(Function<PatchedUserDTO, T> getter, BiConsumer<UserEntity, T> setter) {
+        void apply(PatchedUserDTO patch, UserEntity user) {
+            T value = getter.apply(patch);
+            if (value != null) {
+                setter.accept(user, value);
+            }
+        }
     }
 }
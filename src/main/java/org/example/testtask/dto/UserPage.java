@@ -0,0 +1,17 @@
+package org.example.testtask.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.testtask.entity.UserEntity;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPage {
+    private List<UserEntity> users;
+
+    private String nextCursor;
+}
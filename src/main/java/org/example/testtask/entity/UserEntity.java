@@ -1,24 +1,26 @@
 package org.example.testtask.entity;
 
-import jakarta.validation.constraints.Email;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.example.testtask.validation.ValidEmail;
 
 import java.time.LocalDate;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserEntity {
 
     @NotBlank
-    @Email(message = "The provided email is invalid", regexp = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$")
+    @ValidEmail
     private String email;
 
     @NotBlank
@@ -34,4 +36,11 @@ public class UserEntity {
     private String address;
 
     private String phoneNumber;
-}
\ No newline at end of file
+
+    /**
+     * Revision assigned by the store on every write and exposed to clients as the entity tag.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
+}
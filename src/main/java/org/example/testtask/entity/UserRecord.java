@@ -0,0 +1,82 @@
+package org.example.testtask.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.testtask.store.UserStore;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "users", indexes = {
+        @Index(name = "ux_users_email_key", columnList = "emailKey", unique = true),
+        @Index(name = "ix_users_birth_date", columnList = "birthDate, emailKey")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class UserRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 500)
+    private Long id;
+
+    @Column(nullable = false)
+    private String emailKey;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false)
+    private String firstName;
+
+    @Column(nullable = false)
+    private String lastName;
+
+    @Column(nullable = false)
+    private LocalDate birthDate;
+
+    private String address;
+
+    private String phoneNumber;
+
+    @Version
+    private long version;
+
+    public static UserRecord from(UserEntity user) {
+        UserRecord record = new UserRecord();
+        record.update(user);
+        return record;
+    }
+
+    public void update(UserEntity user) {
+        this.emailKey = UserStore.normalizeEmail(user.getEmail());
+        this.email = user.getEmail();
+        this.firstName = user.getFirstName();
+        this.lastName = user.getLastName();
+        this.birthDate = user.getBirthDate();
+        this.address = user.getAddress();
+        this.phoneNumber = user.getPhoneNumber();
+    }
+
+    public UserEntity toUserEntity() {
+        return UserEntity.builder()
+                .email(email)
+                .firstName(firstName)
+                .lastName(lastName)
+                .birthDate(birthDate)
+                .address(address)
+                .phoneNumber(phoneNumber)
+                .version(version)
+                .build();
+    }
+}
@@ -1,22 +1,131 @@
 package org.example.testtask.exceptionhandler;
 
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.testtask.validation.InvalidUserException;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers rejected users with an RFC 7807 problem listing every failed field. The JSON of each field error and
+ * its counter are built the first time a field fails a constraint and reused after that, so a rejection only
+ * copies bytes: a single error is answered with a response built in advance, several with one array holding
+ * the precomputed fragments. Messages are taken to depend on the field and the constraint alone, which holds for
+ * the constraints the request bodies use. Other errors are left to Spring's problem details, which run after
+ * this handler.
+ */
 @RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
 public class GlobalExceptionHandler {
+    static final String INVALID_USER_TYPE = "/problems/invalid-user";
+    private static final String VALIDATION_FAILURES = "users.validation.failures";
+    private static final byte[] PROBLEM_START = ("{\"type\":\"" + INVALID_USER_TYPE + "\",\"title\":\"Invalid user\","
+            + "\"status\":400,\"detail\":\"Validation failed for the following fields\",\"errors\":[")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PROBLEM_END = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final HttpHeaders PROBLEM_HEADERS = new HttpHeaders();
+
+    static {
+        PROBLEM_HEADERS.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Map<String, FieldErrorTemplate>> templates = new ConcurrentHashMap<>();
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Object> handleValidationExceptions(MethodArgumentNotValidException ex) {
-        StringBuilder errorMessage = new StringBuilder("Validation failed for the following fields:");
-        ex.getBindingResult().getAllErrors().forEach(error -> {
-            if (error instanceof FieldError fieldError) {
-                errorMessage.append(String.format(" %s - %s", fieldError.getField(), error.getDefaultMessage()));
+    public ResponseEntity<byte[]> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        return invalidUser(ex.getBindingResult().getFieldErrors());
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<byte[]> handleValidationExceptions(WebExchangeBindException ex) {
+        return invalidUser(ex.getBindingResult().getFieldErrors());
+    }
+
+    @ExceptionHandler(InvalidUserException.class)
+    public ResponseEntity<byte[]> handleInvalidUser(InvalidUserException ex) {
+        return invalidUser(ex.getFieldErrors());
+    }
+
+    private ResponseEntity<byte[]> invalidUser(List<FieldError> fieldErrors) {
+        if (fieldErrors.size() == 1) {
+            FieldErrorTemplate template = template(fieldErrors.get(0));
+            template.counter.increment();
+            return template.response;
+        }
+        FieldErrorTemplate[] failed = new FieldErrorTemplate[fieldErrors.size()];
+        int length = PROBLEM_START.length + PROBLEM_END.length + Math.max(0, failed.length - 1);
+        for (int i = 0; i < failed.length; i++) {
+            failed[i] = template(fieldErrors.get(i));
+            failed[i].counter.increment();
+            length += failed[i].json.length;
+        }
+        byte[] body = new byte[length];
+        System.arraycopy(PROBLEM_START, 0, body, 0, PROBLEM_START.length);
+        int position = PROBLEM_START.length;
+        for (int i = 0; i < failed.length; i++) {
+            if (i > 0) {
+                body[position++] = ',';
             }
-        });
-        return ResponseEntity.badRequest().body(errorMessage.toString());
+            System.arraycopy(failed[i].json, 0, body, position, failed[i].json.length);
+            position += failed[i].json.length;
+        }
+        System.arraycopy(PROBLEM_END, 0, body, position, PROBLEM_END.length);
+        return new ResponseEntity<>(body, PROBLEM_HEADERS, HttpStatus.BAD_REQUEST);
+    }
+
+    private FieldErrorTemplate template(FieldError fieldError) {
+        String code = fieldError.getCode() != null ? fieldError.getCode() : "Invalid";
+        Map<String, FieldErrorTemplate> byCode = templates.get(fieldError.getField());
+        FieldErrorTemplate template = byCode != null ? byCode.get(code) : null;
+        if (template == null) {
+            template = templates.computeIfAbsent(fieldError.getField(), field -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(code, key -> new FieldErrorTemplate(fieldError.getField(), key,
+                            fieldError.getDefaultMessage()));
+        }
+        return template;
+    }
+
+    private final class FieldErrorTemplate {
+        private final byte[] json;
+        private final Counter counter;
+        private final ResponseEntity<byte[]> response;
+
+        private FieldErrorTemplate(String field, String code, String message) {
+            JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+            this.json = ("{\"field\":\"" + new String(encoder.quoteAsString(field))
+                    + "\",\"code\":\"" + new String(encoder.quoteAsString(code))
+                    + "\",\"message\":\"" + new String(encoder.quoteAsString(message == null ? "is invalid" : message))
+                    + "\"}").getBytes(StandardCharsets.UTF_8);
+            this.counter = Counter.builder(VALIDATION_FAILURES)
+                    .description("Request bodies rejected by field and constraint")
+                    .tag("field", field)
+                    .tag("reason", code)
+                    .register(meterRegistry);
+            byte[] body = new byte[PROBLEM_START.length + json.length + PROBLEM_END.length];
+            System.arraycopy(PROBLEM_START, 0, body, 0, PROBLEM_START.length);
+            System.arraycopy(json, 0, body, PROBLEM_START.length, json.length);
+            System.arraycopy(PROBLEM_END, 0, body, PROBLEM_START.length + json.length, PROBLEM_END.length);
+            this.response = new ResponseEntity<>(body, PROBLEM_HEADERS, HttpStatus.BAD_REQUEST);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package org.example.testtask.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class UserOperationMetrics {
+    private static final String OPERATION_TIMER = "users.operation";
+
+    private final Timer createTimer;
+    private final Timer batchCreateTimer;
+    private final Timer findTimer;
+    private final Timer searchTimer;
+    private final Timer updateTimer;
+    private final Timer patchTimer;
+    private final Timer deleteTimer;
+    private final Timer batchDeleteTimer;
+    private final DistributionSummary searchResultSize;
+
+    public UserOperationMetrics(MeterRegistry meterRegistry) {
+        this.createTimer = operationTimer(meterRegistry, "create");
+        this.batchCreateTimer = operationTimer(meterRegistry, "batch_create");
+        this.findTimer = operationTimer(meterRegistry, "find");
+        this.searchTimer = operationTimer(meterRegistry, "search");
+        this.updateTimer = operationTimer(meterRegistry, "put");
+        this.patchTimer = operationTimer(meterRegistry, "patch");
+        this.deleteTimer = operationTimer(meterRegistry, "delete");
+        this.batchDeleteTimer = operationTimer(meterRegistry, "batch_delete");
+        this.searchResultSize = DistributionSummary.builder("users.search.results")
+                .description("Number of users returned by a birth-date range search")
+                .baseUnit("users")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Timer operationTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(OPERATION_TIMER)
+                .description("Latency of user store operations")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+}
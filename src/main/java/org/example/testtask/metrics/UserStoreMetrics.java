@@ -0,0 +1,31 @@
+package org.example.testtask.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.testtask.store.UserStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "user.store.type", havingValue = "memory", matchIfMissing = true)
+public class UserStoreMetrics implements MeterBinder {
+    private final UserStore userStore;
+
+    public UserStoreMetrics(UserStore userStore) {
+        this.userStore = userStore;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.store.size", userStore, UserStore::size)
+                .description("Number of users held by the store")
+                .baseUnit("users")
+                .register(registry);
+        Gauge.builder("users.store.index.size", userStore, UserStore::birthDateIndexSize)
+                .description("Number of entries in a secondary index of the store")
+                .tag("index", "birth_date")
+                .baseUnit("entries")
+                .register(registry);
+    }
+}
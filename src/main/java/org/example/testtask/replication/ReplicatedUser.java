@@ -0,0 +1,9 @@
+package org.example.testtask.replication;
+
+import org.example.testtask.entity.UserEntity;
+
+/**
+ * A stored user together with its version, which the user's own JSON form leaves out.
+ */
+public record ReplicatedUser(UserEntity user, long version) {
+}
@@ -0,0 +1,249 @@
+package org.example.testtask.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeEvent;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the local in-memory store a copy of a leader's. The follower first pages through the leader's users
+ * from a snapshot sequence, then long-polls the leader's change log from that sequence and applies every batch
+ * to the store, so the search index, statistics and caches follow as they do for local writes.
+ * <p>
+ * Replaying the log over a snapshot taken without stopping the leader converges because every event sets the
+ * final state of its user; within a batch only the last state of each email is applied, with one bulk removal
+ * and one bulk upsert. A truncated read or a leader restart, seen as a new log id, starts over with a snapshot.
+ * Users are stored with the leader's versions, so entity tags match across nodes.
+ * <p>
+ * Replication starts once the context is refreshed, after every store listener has subscribed.
+ */
+@Component
+@ConditionalOnProperty(name = "user.replication.role", havingValue = "follower")
+public class ReplicationFollower implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(ReplicationFollower.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration RESPONSE_GRACE = Duration.ofSeconds(10);
+
+    private final UserStore userStore;
+    private final ObjectMapper objectMapper;
+    private final String leaderUrl;
+    private final int batchSize;
+    private final long pollWaitMs;
+    private final long retryIntervalMs;
+    private final HttpClient httpClient;
+    private final Counter snapshots;
+
+    private volatile Thread worker;
+    private volatile ReplicationState state = ReplicationState.DISCONNECTED;
+    private volatile String logId;
+    private volatile long appliedSequence;
+    private volatile long leaderSequence;
+    private volatile long caughtUpAt = System.currentTimeMillis();
+
+    public ReplicationFollower(Optional<UserStore> userStore, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                               @Value("${user.replication.leader-url}") String leaderUrl,
+                               @Value("${user.replication.batch-size:1000}") int batchSize,
+                               @Value("${user.replication.poll-wait-ms:30000}") long pollWaitMs,
+                               @Value("${user.replication.retry-interval-ms:1000}") long retryIntervalMs) {
+        this.userStore = userStore.orElseThrow(
+                () -> new IllegalStateException("replication requires the in-memory store"));
+        this.objectMapper = objectMapper;
+        this.leaderUrl = leaderUrl.endsWith("/") ? leaderUrl.substring(0, leaderUrl.length() - 1) : leaderUrl;
+        this.batchSize = batchSize;
+        this.pollWaitMs = pollWaitMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
+        this.snapshots = Counter.builder("users.replication.snapshots")
+                .description("Snapshots copied from the leader")
+                .register(meterRegistry);
+        Gauge.builder("users.replication.lag.events", this, ReplicationFollower::lagEvents)
+                .description("Leader changes seen but not yet applied")
+                .register(meterRegistry);
+        TimeGauge.builder("users.replication.lag", this, TimeUnit.MILLISECONDS, ReplicationFollower::lagMillis)
+                .description("Time since the follower was last caught up with the leader")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        Thread thread = new Thread(this::replicate, "user-replication");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return worker != null;
+    }
+
+    public ReplicationStatus status() {
+        return new ReplicationStatus(ReplicationRole.FOLLOWER, state, leaderUrl, logId, appliedSequence,
+                leaderSequence, lagEvents(), lagMillis());
+    }
+
+    long lagEvents() {
+        return Math.max(0, leaderSequence - appliedSequence);
+    }
+
+    long lagMillis() {
+        return state == ReplicationState.STREAMING && lagEvents() == 0
+                ? 0 : System.currentTimeMillis() - caughtUpAt;
+    }
+
+    private void replicate() {
+        while (worker == Thread.currentThread()) {
+            try {
+                if (logId == null) {
+                    bootstrap();
+                }
+                UserChangeBatch batch = get("/users/changes?after=" + appliedSequence + "&limit=" + batchSize
+                        + "&waitMs=" + pollWaitMs, Duration.ofMillis(pollWaitMs), UserChangeBatch.class);
+                if (!batch.logId().equals(logId) || batch.truncated()) {
+                    log.warn("Lost the leader's change log at sequence {}, copying a new snapshot", appliedSequence);
+                    logId = null;
+                    continue;
+                }
+                apply(batch);
+            } catch (IOException | RuntimeException e) {
+                state = ReplicationState.DISCONNECTED;
+                log.warn("Replication from {} failed, retrying in {} ms: {}", leaderUrl, retryIntervalMs, e.toString());
+                try {
+                    Thread.sleep(retryIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies every user of the leader and removes local users it does not have. Until the log is replayed from
+     * the first page's sequence, the store may mix states from different moments.
+     */
+    void bootstrap() throws IOException, InterruptedException {
+        state = ReplicationState.BOOTSTRAPPING;
+        ReplicationSnapshotPage page = get("/replication/snapshot?limit=" + batchSize, Duration.ZERO,
+                ReplicationSnapshotPage.class);
+        String snapshotLogId = page.logId();
+        long sequence = page.sequence();
+        Set<String> copied = new HashSet<>();
+        while (true) {
+            List<UserEntity> users = new ArrayList<>(page.users().size());
+            for (ReplicatedUser replicated : page.users()) {
+                users.add(replicated.user().toBuilder().version(replicated.version()).build());
+                copied.add(UserStore.normalizeEmail(replicated.user().getEmail()));
+            }
+            userStore.insertAll(users, true);
+            if (page.nextCursor() == null) {
+                break;
+            }
+            page = get("/replication/snapshot?limit=" + batchSize + "&cursor="
+                            + URLEncoder.encode(page.nextCursor(), StandardCharsets.UTF_8),
+                    Duration.ZERO, ReplicationSnapshotPage.class);
+            if (!page.logId().equals(snapshotLogId)) {
+                throw new IOException("the leader restarted during the snapshot");
+            }
+        }
+        List<String> stale = new ArrayList<>();
+        for (UserEntity user : userStore.values()) {
+            if (!copied.contains(UserStore.normalizeEmail(user.getEmail()))) {
+                stale.add(user.getEmail());
+            }
+        }
+        userStore.removeAll(stale);
+        snapshots.increment();
+        log.info("Copied {} users from {} at sequence {}", copied.size(), leaderUrl, sequence);
+        logId = snapshotLogId;
+        appliedSequence = sequence;
+        leaderSequence = sequence;
+        state = ReplicationState.STREAMING;
+    }
+
+    void apply(UserChangeBatch batch) {
+        Map<String, UserEntity> latest = new LinkedHashMap<>();
+        for (UserChangeEvent event : batch.events()) {
+            if (event.previousEmail() != null) {
+                latest.put(UserStore.normalizeEmail(event.previousEmail()), null);
+            }
+            if (event.user() != null) {
+                latest.put(UserStore.normalizeEmail(event.email()),
+                        event.user().toBuilder().version(event.version()).build());
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        List<UserEntity> upserted = new ArrayList<>();
+        latest.forEach((email, user) -> {
+            if (user == null) {
+                removed.add(email);
+            } else {
+                upserted.add(user);
+            }
+        });
+        if (!removed.isEmpty()) {
+            userStore.removeAll(removed);
+        }
+        if (!upserted.isEmpty()) {
+            userStore.insertAll(upserted, true);
+        }
+        logId = batch.logId();
+        appliedSequence = batch.lastSequence();
+        leaderSequence = Math.max(batch.headSequence(), batch.lastSequence());
+        state = ReplicationState.STREAMING;
+        if (appliedSequence >= leaderSequence) {
+            caughtUpAt = System.currentTimeMillis();
+        }
+    }
+
+    private <T> T get(String path, Duration wait, Class<T> type) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(leaderUrl + path))
+                .header("Accept", "application/json")
+                .timeout(wait.plus(RESPONSE_GRACE))
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " answered " + response.statusCode());
+        }
+        return objectMapper.readValue(response.body(), type);
+    }
+}
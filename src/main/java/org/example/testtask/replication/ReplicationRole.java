@@ -0,0 +1,5 @@
+package org.example.testtask.replication;
+
+public enum ReplicationRole {
+    LEADER, FOLLOWER
+}
@@ -0,0 +1,11 @@
+package org.example.testtask.replication;
+
+import java.util.List;
+
+/**
+ * One page of a leader's users in birth-date order. {@code sequence} is the change log sequence read before the
+ * page, so replaying the log after the first page's sequence brings a copy of all pages up to date;
+ * {@code nextCursor} is {@code null} on the last page.
+ */
+public record ReplicationSnapshotPage(String logId, long sequence, List<ReplicatedUser> users, String nextCursor) {
+}
@@ -0,0 +1,13 @@
+package org.example.testtask.replication;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Replication state of a node. A leader reports its own change log; a follower reports the leader's log it
+ * replicates, the leader sequence it has applied, and how far it trails: {@code lagEvents} behind the latest
+ * sequence it has seen and {@code lagMillis} since it was last fully caught up.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReplicationStatus(ReplicationRole role, ReplicationState state, String leaderUrl, String logId,
+                                long sequence, Long leaderSequence, Long lagEvents, Long lagMillis) {
+}
@@ -0,0 +1,44 @@
+package org.example.testtask.repository;
+
+import org.example.testtask.entity.UserRecord;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRecordRepository extends JpaRepository<UserRecord, Long> {
+    Optional<UserRecord> findByEmailKey(String emailKey);
+
+    boolean existsByEmailKey(String emailKey);
+
+    List<UserRecord> findByEmailKeyIn(Collection<String> emailKeys);
+
+    @Modifying
+    @Query("delete from UserRecord u where u.emailKey = :emailKey")
+    int deleteByEmailKey(@Param("emailKey") String emailKey);
+
+    @Modifying
+    @Query("delete from UserRecord u where u.emailKey = :emailKey and u.version = :version")
+    int deleteByEmailKeyAndVersion(@Param("emailKey") String emailKey, @Param("version") long version);
+
+    @Query("select u from UserRecord u where u.birthDate >= :from and u.birthDate <= :to "
+            + "order by u.birthDate, u.emailKey")
+    List<UserRecord> findByBirthDateRange(@Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    @Query("select u from UserRecord u where (u.birthDate > :afterBirthDate "
+            + "or (u.birthDate = :afterBirthDate and u.emailKey > :afterEmailKey)) "
+            + "and u.birthDate >= :from and u.birthDate <= :to "
+            + "order by u.birthDate, u.emailKey")
+    List<UserRecord> findByBirthDateRangeAfter(@Param("from") LocalDate from,
+                                               @Param("to") LocalDate to,
+                                               @Param("afterBirthDate") LocalDate afterBirthDate,
+                                               @Param("afterEmailKey") String afterEmailKey,
+                                               Limit limit);
+}
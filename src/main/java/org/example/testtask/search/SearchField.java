@@ -0,0 +1,23 @@
+package org.example.testtask.search;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.util.function.Function;
+
+public enum SearchField {
+    FIRST_NAME(UserEntity::getFirstName),
+    LAST_NAME(UserEntity::getLastName),
+    EMAIL(UserEntity::getEmail),
+    ADDRESS(UserEntity::getAddress),
+    PHONE_NUMBER(UserEntity::getPhoneNumber);
+
+    private final Function<UserEntity, String> getter;
+
+    SearchField(Function<UserEntity, String> getter) {
+        this.getter = getter;
+    }
+
+    public String valueOf(UserEntity user) {
+        return getter.apply(user);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.testtask.search;
+
+public enum SearchMatch {
+    /**
+     * The field, or a word in it, starts with the query.
+     */
+    PREFIX,
+
+    /**
+     * The query occurs anywhere in the field; needs at least three characters.
+     */
+    CONTAINS
+}
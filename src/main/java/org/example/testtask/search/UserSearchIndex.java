@@ -0,0 +1,454 @@
+package org.example.testtask.search;
+
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Case-insensitive trigram index over the searchable fields of every stored user, kept current by store change
+ * notifications. Besides the trigrams of each value it indexes the first one and two characters of every word,
+ * so prefix queries of any length have a posting list to start from.
+ * <p>
+ * Every write indexes the user under a fresh document id and clears the slot of its previous id, so posting lists
+ * stay sorted by recency without ever being searched for removals. Cleared ids are dropped from a posting list
+ * when it has to grow, and the whole index is rebuilt and swapped in once cleared slots outnumber live users.
+ * <p>
+ * Store writers only queue their change; a single indexer thread computes the grams, applies the changes in
+ * order and runs the rebuilds, so the index never holds up a write. A write therefore becomes searchable
+ * shortly after it is acknowledged rather than with it. Queries run concurrently with the indexer.
+ * <p>
+ * A query intersects the posting lists of its grams from the newest document backwards and checks every common
+ * candidate against the actual field values, stopping at the limit. Results are therefore exact and ordered by
+ * most recent write.
+ * <p>
+ * The index is only active with the in-memory store and {@code user.search.enabled}. It subscribes to the store
+ * before seeding from it after startup recovery, so writes racing the seed are replayed rather than lost, and
+ * the seed completes before the server accepts requests.
+ */
+@Component
+public class UserSearchIndex implements UserChangeListener, SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    static final int MAX_LIMIT = 1000;
+    private static final int MIN_CONTAINS_LENGTH = 3;
+    private static final int MIN_REBUILD_SLOTS = 1 << 16;
+    private static final char WORD_START = '\0';
+
+    private final Optional<UserStore> userStore;
+    private final boolean enabled;
+    private final ConcurrentLinkedQueue<Change> pending = new ConcurrentLinkedQueue<>();
+    /**
+     * Set while a drain is scheduled or running. Starts set so changes queue up until the seed has run.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean(true);
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-search-indexer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Segment segment = new Segment();
+
+    public UserSearchIndex(Optional<UserStore> userStore, @Value("${user.search.enabled:true}") boolean enabled) {
+        this.userStore = userStore;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!isEnabled()) {
+            return;
+        }
+        UserStore store = userStore.get();
+        store.addListener(this);
+        await(indexer.submit(() -> {
+            for (UserEntity user : store.values()) {
+                segment.add(user);
+            }
+            drain();
+        }));
+    }
+
+    @PreDestroy
+    public void stop() {
+        userStore.ifPresent(store -> store.removeListener(this));
+        indexer.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled && userStore.isPresent();
+    }
+
+    @Override
+    public void onChange(UserEntity previous, UserEntity current) {
+        pending.add(new Change(previous == null ? null : UserStore.normalizeEmail(previous.getEmail()), current));
+        if (draining.compareAndSet(false, true)) {
+            indexer.execute(this::drain);
+        }
+    }
+
+    /**
+     * Blocks until every change notified before the call is searchable.
+     */
+    public void awaitIndexed() {
+        await(indexer.submit(() -> {
+        }));
+    }
+
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search index", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search indexing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Applies queued changes on the indexer thread until the queue is empty. Clearing {@link #draining} and then
+     * re-checking the queue closes the window where a writer enqueues after the last poll but sees the flag set.
+     */
+    private void drain() {
+        do {
+            for (Change change; (change = pending.poll()) != null; ) {
+                try {
+                    apply(change);
+                } catch (RuntimeException e) {
+                    log.error("Failed to index change of {}", change.current() == null
+                            ? change.previousEmail() : change.current().getEmail(), e);
+                }
+            }
+            draining.set(false);
+        } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private void apply(Change change) {
+        Segment current = segment;
+        if (change.previousEmail() != null) {
+            current.remove(change.previousEmail());
+        }
+        if (change.current() != null) {
+            current.add(change.current());
+        }
+        if (current.nextId - current.live > Math.max(current.live, MIN_REBUILD_SLOTS)) {
+            segment = current.rebuild();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} users with a value in one of {@code fields} matching {@code query}, most
+     * recently written first.
+     */
+    public List<UserEntity> search(String query, SearchMatch match, Set<SearchField> fields, int limit) {
+        String term = query == null ? "" : query.strip();
+        if (term.isEmpty() || fields.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "query and fields must not be empty");
+        }
+        if (match == SearchMatch.CONTAINS && term.length() < MIN_CONTAINS_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "contains queries need at least " + MIN_CONTAINS_LENGTH + " characters");
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be in 1.." + MAX_LIMIT);
+        }
+
+        Segment current = segment;
+        long[] grams = queryGrams(term, match);
+        int[][] lists = new int[grams.length][];
+        int[] positions = new int[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            Postings postings = current.postings.get(grams[i]);
+            if (postings == null) {
+                return List.of();
+            }
+            Postings.Block block = postings.block;
+            positions[i] = block.size - 1;
+            lists[i] = block.ids;
+            if (positions[i] < positions[0]) {
+                swap(lists, positions, 0, i);
+            }
+        }
+        UserEntity[] docs = current.docs;
+        List<UserEntity> results = new ArrayList<>(Math.min(limit, 64));
+        for (int id = nextCommonId(lists, positions); id >= 0 && results.size() < limit;
+             id = nextCommonId(lists, positions)) {
+            UserEntity user = docs[id];
+            if (user != null && matches(user, term, match, fields)) {
+                results.add(user);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Leapfrog intersection walking every list backwards from its position: returns the largest id present in
+     * all lists at or below their positions and moves past it, or -1 once any list is exhausted. Lists are
+     * skipped through with galloping seeks, so the cost follows the sparsest list rather than the longest.
+     */
+    private static int nextCommonId(int[][] lists, int[] positions) {
+        if (positions[0] < 0) {
+            return -1;
+        }
+        int target = lists[0][positions[0]];
+        for (int i = 0; i < lists.length; ) {
+            int position = seek(lists[i], positions[i], target);
+            if (position < 0) {
+                positions[0] = -1;
+                return -1;
+            }
+            positions[i] = position;
+            int id = lists[i][position];
+            if (id < target) {
+                target = id;
+                i = 0;
+            } else {
+                i++;
+            }
+        }
+        positions[0]--;
+        return target;
+    }
+
+    private static void swap(int[][] lists, int[] positions, int first, int second) {
+        int[] list = lists[first];
+        lists[first] = lists[second];
+        lists[second] = list;
+        int position = positions[first];
+        positions[first] = positions[second];
+        positions[second] = position;
+    }
+
+    /**
+     * Index of the largest id not above {@code target} at or before {@code from}, or -1.
+     */
+    private static int seek(int[] ids, int from, int target) {
+        if (from < 0 || ids[from] <= target) {
+            return from;
+        }
+        int high = from;
+        int step = 1;
+        int low = high - step;
+        while (low >= 0 && ids[low] > target) {
+            high = low;
+            step <<= 1;
+            low = high - step;
+        }
+        if (low < 0) {
+            if (ids[0] > target) {
+                return -1;
+            }
+            low = 0;
+        }
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= target) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long[] queryGrams(String term, SearchMatch match) {
+        int length = term.length();
+        if (match == SearchMatch.PREFIX && length == 1) {
+            return new long[]{gram(WORD_START, WORD_START, lower(term, 0))};
+        }
+        int offset = match == SearchMatch.PREFIX ? 1 : 0;
+        long[] grams = new long[offset + Math.max(0, length - 2)];
+        if (offset == 1) {
+            grams[0] = gram(WORD_START, lower(term, 0), lower(term, 1));
+        }
+        for (int i = 0; i + 2 < length; i++) {
+            grams[offset + i] = gram(lower(term, i), lower(term, i + 1), lower(term, i + 2));
+        }
+        return grams;
+    }
+
+    private static boolean matches(UserEntity user, String term, SearchMatch match, Set<SearchField> fields) {
+        for (SearchField field : fields) {
+            String value = field.valueOf(user);
+            if (value != null && (match == SearchMatch.PREFIX ? hasWordStartingWith(value, term) : contains(value, term))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasWordStartingWith(String value, String term) {
+        for (int i = 0; i + term.length() <= value.length(); i++) {
+            if (isWordStart(value, i) && regionMatches(value, i, term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(String value, String term) {
+        for (int i = 0; i + term.length() <= value.length(); i++) {
+            if (regionMatches(value, i, term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(String value, int offset, String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (lower(value, offset + i) != lower(term, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWordStart(String value, int index) {
+        return index == 0 || (Character.isLetterOrDigit(value.charAt(index))
+                && !Character.isLetterOrDigit(value.charAt(index - 1)));
+    }
+
+    private static char lower(String value, int index) {
+        return Character.toLowerCase(value.charAt(index));
+    }
+
+    private static long gram(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private static void addGrams(String value, Set<Long> grams) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (isWordStart(value, i)) {
+                grams.add(gram(WORD_START, WORD_START, lower(value, i)));
+                if (i + 1 < length) {
+                    grams.add(gram(WORD_START, lower(value, i), lower(value, i + 1)));
+                }
+            }
+            if (i + 2 < length) {
+                grams.add(gram(lower(value, i), lower(value, i + 1), lower(value, i + 2)));
+            }
+        }
+    }
+
+    /**
+     * Documents and posting lists; mutated only by the indexer thread and replaced as a whole on rebuild.
+     */
+    private static final class Segment {
+        private final Map<String, Integer> idsByEmail = new HashMap<>();
+        private final ConcurrentHashMap<Long, Postings> postings = new ConcurrentHashMap<>();
+        private volatile UserEntity[] docs = new UserEntity[1024];
+        private int nextId;
+        private int live;
+
+        void add(UserEntity user) {
+            int id = nextId++;
+            if (id == docs.length) {
+                docs = Arrays.copyOf(docs, id * 2);
+            }
+            docs[id] = user;
+            Integer previousId = idsByEmail.put(UserStore.normalizeEmail(user.getEmail()), id);
+            if (previousId != null) {
+                docs[previousId] = null;
+            } else {
+                live++;
+            }
+            Set<Long> grams = new HashSet<>();
+            for (SearchField field : SearchField.values()) {
+                String value = field.valueOf(user);
+                if (value != null) {
+                    addGrams(value, grams);
+                }
+            }
+            UserEntity[] current = docs;
+            for (Long gram : grams) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(id, current);
+            }
+        }
+
+        void remove(String email) {
+            Integer id = idsByEmail.remove(email);
+            if (id != null) {
+                docs[id] = null;
+                live--;
+            }
+        }
+
+        Segment rebuild() {
+            Segment rebuilt = new Segment();
+            UserEntity[] current = docs;
+            for (int id = 0; id < nextId; id++) {
+                if (current[id] != null) {
+                    rebuilt.add(current[id]);
+                }
+            }
+            return rebuilt;
+        }
+    }
+
+    private record Change(String previousEmail, UserEntity current) {
+    }
+
+    /**
+     * Ascending document ids. Appends write past the published size of the current block and then publish the
+     * new size; a block is only replaced, never shrunk in place, so a reader always sees a consistent prefix.
+     */
+    private static final class Postings {
+        private volatile Block block = new Block(new int[4], 0);
+
+        void add(int id, UserEntity[] docs) {
+            Block current = block;
+            if (current.size == current.ids.length) {
+                int[] ids = new int[current.size];
+                int size = 0;
+                for (int i = 0; i < current.size; i++) {
+                    if (docs[current.ids[i]] != null) {
+                        ids[size++] = current.ids[i];
+                    }
+                }
+                if (size > current.size / 2) {
+                    ids = Arrays.copyOf(ids, current.size * 2);
+                }
+                current = new Block(ids, size);
+                block = current;
+            }
+            current.ids[current.size] = id;
+            current.size++;
+        }
+
+        private static final class Block {
+            private final int[] ids;
+            private volatile int size;
+
+            Block(int[] ids, int size) {
+                this.ids = ids;
+                this.size = size;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.testtask.service;
+
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link UserService}. Failures are signalled the same way, as
+ * {@link org.springframework.web.server.ResponseStatusException} errors.
+ */
+public interface ReactiveUserService {
+    Mono<UserEntity> createUser(UserEntity userEntity);
+
+    Mono<List<BatchItemResult>> createUsers(List<UserEntity> userEntities, boolean upsert);
+
+    Mono<UserEntity> updateUserByEmail(String email, UserEntity newUserData, Long expectedVersion);
+
+    Mono<UserEntity> findByEmail(String email);
+
+    Mono<Boolean> deleteUserByEmail(String email, Long expectedVersion);
+
+    Mono<List<BatchItemResult>> deleteUsersByEmail(List<String> emails);
+
+    /**
+     * Emits the users of the range in birth-date order as they are requested, without collecting the whole range.
+     */
+    Flux<UserEntity> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive);
+
+    Mono<UserPage> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                                              String cursor, int limit);
+
+    Mono<UserEntity> patchUser(String email, PatchedUserDTO patch, Long expectedVersion);
+}
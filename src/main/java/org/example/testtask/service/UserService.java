@@ -1,23 +1,52 @@
 package org.example.testtask.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.fge.jsonpatch.JsonPatchException;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
 import org.example.testtask.entity.UserEntity;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserService {
     UserEntity createUser(UserEntity userEntity);
 
-    UserEntity updateUserByEmail(String email, UserEntity newUserData);
+    List<BatchItemResult> createUsers(List<UserEntity> userEntities, boolean upsert);
+
+    default UserEntity updateUserByEmail(String email, UserEntity newUserData) {
+        return updateUserByEmail(email, newUserData, null);
+    }
+
+    /**
+     * Replaces the user only while it is still at {@code expectedVersion}, failing with 412 Precondition Failed
+     * otherwise; a {@code null} version replaces unconditionally.
+     */
+    UserEntity updateUserByEmail(String email, UserEntity newUserData, Long expectedVersion);
 
     Optional<UserEntity> findByEmail(String email);
 
-    boolean deleteUserByEmail(String email);
+    default boolean deleteUserByEmail(String email) {
+        return deleteUserByEmail(email, null);
+    }
+
+    boolean deleteUserByEmail(String email, Long expectedVersion);
+
+    List<BatchItemResult> deleteUsersByEmail(List<String> emails);
 
     List<UserEntity> findUsersForBirthDateRange(LocalDate from, LocalDate to);
 
-    UserEntity patchUser(String email, String patchDetails) throws JsonPatchException, JsonProcessingException;
+    List<UserEntity> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive);
+
+    UserPage findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                                        String cursor, int limit);
+
+    Stream<UserEntity> streamUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive);
+
+    default UserEntity patchUser(String email, PatchedUserDTO patch) {
+        return patchUser(email, patch, null);
+    }
+
+    UserEntity patchUser(String email, PatchedUserDTO patch, Long expectedVersion);
 }
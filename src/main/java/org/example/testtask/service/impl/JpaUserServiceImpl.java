@@ -0,0 +1,318 @@
+package org.example.testtask.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.entity.UserRecord;
+import org.example.testtask.metrics.UserOperationMetrics;
+import org.example.testtask.repository.UserRecordRepository;
+import org.example.testtask.service.UserService;
+import org.example.testtask.store.BirthDateKey;
+import org.example.testtask.store.UserStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Service
+@ConditionalOnProperty(name = "user.store.type", havingValue = "jpa")
+public class JpaUserServiceImpl implements UserService {
+    private static final int STREAM_PAGE_SIZE = 1000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(-9999, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    private final UserRecordRepository userRecordRepository;
+    private final UserOperationMetrics metrics;
+
+    public JpaUserServiceImpl(UserRecordRepository userRecordRepository, MeterRegistry meterRegistry) {
+        this.userRecordRepository = userRecordRepository;
+        this.metrics = new UserOperationMetrics(meterRegistry);
+    }
+
+    @Override
+    @Transactional
+    public UserEntity createUser(UserEntity userEntity) {
+        return metrics.getCreateTimer().record(() -> {
+            if (userRecordRepository.existsByEmailKey(UserStore.normalizeEmail(userEntity.getEmail()))) {
+                throw conflict(userEntity.getEmail());
+            }
+            try {
+                userEntity.setVersion(userRecordRepository.saveAndFlush(UserRecord.from(userEntity)).getVersion());
+            } catch (DataIntegrityViolationException e) {
+                throw conflict(userEntity.getEmail());
+            }
+            return userEntity;
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createUsers(List<UserEntity> userEntities, boolean upsert) {
+        return metrics.getBatchCreateTimer().record(() -> {
+            Map<String, UserRecord> recordsByKey = userRecordRepository.findByEmailKeyIn(userEntities.stream()
+                            .map(user -> UserStore.normalizeEmail(user.getEmail()))
+                            .toList())
+                    .stream()
+                    .collect(Collectors.toMap(UserRecord::getEmailKey, record -> record, (left, right) -> left, HashMap::new));
+            List<UserRecord> newRecords = new ArrayList<>();
+            List<BatchItemResult> results = new ArrayList<>(userEntities.size());
+            for (int i = 0; i < userEntities.size(); i++) {
+                UserEntity user = userEntities.get(i);
+                String key = UserStore.normalizeEmail(user.getEmail());
+                UserRecord existing = recordsByKey.get(key);
+                if (existing != null && !upsert) {
+                    results.add(new BatchItemResult(i, user.getEmail(), HttpStatus.CONFLICT.value(),
+                            "user already exists with email: " + user.getEmail()));
+                    continue;
+                }
+                if (existing != null) {
+                    existing.update(user);
+                    results.add(new BatchItemResult(i, user.getEmail(), HttpStatus.OK.value(), null));
+                } else {
+                    UserRecord record = UserRecord.from(user);
+                    recordsByKey.put(key, record);
+                    newRecords.add(record);
+                    results.add(new BatchItemResult(i, user.getEmail(), HttpStatus.CREATED.value(), null));
+                }
+            }
+            userRecordRepository.saveAll(newRecords);
+            return results;
+        });
+    }
+
+    @Override
+    @Transactional
+    public UserEntity updateUserByEmail(String email, UserEntity newUserData, Long expectedVersion) {
+        return metrics.getUpdateTimer().record(() -> updateUser(email, expectedVersion, oldUser -> newUserData));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<UserEntity> findByEmail(String email) {
+        return metrics.getFindTimer().record(() -> userRecordRepository.findByEmailKey(UserStore.normalizeEmail(email))
+                .map(UserRecord::toUserEntity));
+    }
+
+    /**
+     * The version column turns the flushed update into a compare-and-set, so a concurrent writer that slipped in
+     * after the read fails this update instead of being overwritten. Likewise the unique email index settles two
+     * renames to the same free email, which both pass the existence check.
+     */
+    private UserEntity updateUser(String email, Long expectedVersion, UnaryOperator<UserEntity> update) {
+        UserRecord record = userRecordRepository.findByEmailKey(UserStore.normalizeEmail(email))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
+        if (expectedVersion != null && expectedVersion != record.getVersion()) {
+            throw preconditionFailed(email);
+        }
+        UserEntity updated = update.apply(record.toUserEntity());
+        String newKey = UserStore.normalizeEmail(updated.getEmail());
+        if (!newKey.equals(record.getEmailKey()) && userRecordRepository.existsByEmailKey(newKey)) {
+            throw conflict(updated.getEmail());
+        }
+        record.update(updated);
+        try {
+            userRecordRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw conflict(updated.getEmail());
+        } catch (OptimisticLockingFailureException e) {
+            throw expectedVersion != null
+                    ? preconditionFailed(email)
+                    : new ResponseStatusException(HttpStatus.CONFLICT, "user was modified concurrently: " + email);
+        }
+        updated.setVersion(record.getVersion());
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteUserByEmail(String email, Long expectedVersion) {
+        return metrics.getDeleteTimer().record(() -> {
+            String key = UserStore.normalizeEmail(email);
+            int deleted = expectedVersion == null
+                    ? userRecordRepository.deleteByEmailKey(key)
+                    : userRecordRepository.deleteByEmailKeyAndVersion(key, expectedVersion);
+            if (deleted == 0) {
+                if (expectedVersion != null && userRecordRepository.existsByEmailKey(key)) {
+                    throw preconditionFailed(email);
+                }
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email);
+            }
+            return true;
+        });
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> deleteUsersByEmail(List<String> emails) {
+        return metrics.getBatchDeleteTimer().record(() -> {
+            List<UserRecord> records = userRecordRepository.findByEmailKeyIn(emails.stream()
+                    .map(UserStore::normalizeEmail)
+                    .toList());
+            Map<String, UserRecord> recordsByKey = records.stream()
+                    .collect(Collectors.toMap(UserRecord::getEmailKey, record -> record));
+            userRecordRepository.deleteAllInBatch(records);
+            List<BatchItemResult> results = new ArrayList<>(emails.size());
+            for (int i = 0; i < emails.size(); i++) {
+                String email = emails.get(i);
+                results.add(recordsByKey.remove(UserStore.normalizeEmail(email)) != null
+                        ? new BatchItemResult(i, email, HttpStatus.OK.value(), null)
+                        : new BatchItemResult(i, email, HttpStatus.NOT_FOUND.value(), "user not found with email: " + email));
+            }
+            return results;
+        });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserEntity> findUsersForBirthDateRange(LocalDate from, LocalDate to) {
+        return findUsersForBirthDateRange(from, false, to, false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserEntity> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        LocalDate lower = lowerBound(from, fromInclusive);
+        LocalDate upper = upperBound(to, toInclusive);
+        List<UserEntity> users = lower == null || upper == null ? List.of() : metrics.getSearchTimer().record(
+                () -> userRecordRepository.findByBirthDateRange(lower, upper)
+                        .stream()
+                        .map(UserRecord::toUserEntity)
+                        .toList());
+        metrics.getSearchResultSize().record(users.size());
+        return users;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public UserPage findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                                               String cursor, int limit) {
+        LocalDate lower = lowerBound(from, fromInclusive);
+        LocalDate upper = upperBound(to, toInclusive);
+        if (lower == null || upper == null) {
+            return new UserPage(List.of(), null);
+        }
+        BirthDateKey after = cursor == null ? BirthDateKey.lowest(lower) : UserCursors.decode(cursor);
+        UserPage page = metrics.getSearchTimer().record(() -> {
+            List<UserEntity> users = new ArrayList<>(fetchPage(lower, upper, after, limit + 1));
+            String nextCursor = null;
+            if (users.size() > limit) {
+                users.remove(limit);
+                nextCursor = UserCursors.encode(users.get(limit - 1));
+            }
+            return new UserPage(users, nextCursor);
+        });
+        metrics.getSearchResultSize().record(page.getUsers().size());
+        return page;
+    }
+
+    /**
+     * Walks the range with keyset pagination, one short read per page, so the stream can be consumed after
+     * this method returns and never holds more than one page in memory.
+     */
+    @Override
+    public Stream<UserEntity> streamUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        LocalDate lower = lowerBound(from, fromInclusive);
+        LocalDate upper = upperBound(to, toInclusive);
+        if (lower == null || upper == null) {
+            return Stream.empty();
+        }
+        Iterator<UserEntity> iterator = new Iterator<>() {
+            private BirthDateKey after = BirthDateKey.lowest(lower);
+            private Iterator<UserEntity> page = Collections.emptyIterator();
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (!page.hasNext() && !lastPage) {
+                    List<UserEntity> users = fetchPage(lower, upper, after, STREAM_PAGE_SIZE);
+                    lastPage = users.size() < STREAM_PAGE_SIZE;
+                    page = users.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public UserEntity next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                UserEntity user = page.next();
+                after = UserStore.birthDateKey(user);
+                return user;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    @Transactional
+    public UserEntity patchUser(String email, PatchedUserDTO patch, Long expectedVersion) {
+        return metrics.getPatchTimer().record(() -> updateUser(email, expectedVersion, patch::applyTo));
+    }
+
+    private List<UserEntity> fetchPage(LocalDate lower, LocalDate upper, BirthDateKey after, int limit) {
+        return userRecordRepository.findByBirthDateRangeAfter(lower, upper, after.birthDate(), after.email(), Limit.of(limit))
+                .stream()
+                .map(UserRecord::toUserEntity)
+                .toList();
+    }
+
+    /**
+     * The first day of the range, or {@code null} when the range is empty. Bounds are clamped to four-digit years,
+     * which is as far as dates bind reliably; the next and previous days of {@link LocalDate#MAX} and
+     * {@link LocalDate#MIN} would not exist at all.
+     */
+    private static LocalDate lowerBound(LocalDate from, boolean fromInclusive) {
+        if (from.isAfter(LAST_DAY) || !fromInclusive && from.equals(LAST_DAY)) {
+            return null;
+        }
+        if (from.isBefore(FIRST_DAY)) {
+            return FIRST_DAY;
+        }
+        return fromInclusive ? from : from.plusDays(1);
+    }
+
+    /**
+     * The last day of the range clamped the same way as {@link #lowerBound}.
+     */
+    private static LocalDate upperBound(LocalDate to, boolean toInclusive) {
+        if (to.isBefore(FIRST_DAY) || !toInclusive && to.equals(FIRST_DAY)) {
+            return null;
+        }
+        if (to.isAfter(LAST_DAY)) {
+            return LAST_DAY;
+        }
+        return toInclusive ? to : to.minusDays(1);
+    }
+
+    private static ResponseStatusException conflict(String email) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "user already exists with email: " + email);
+    }
+
+    private static ResponseStatusException preconditionFailed(String email) {
+        return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "user version does not match for email: " + email);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.testtask.service.impl;
+
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.ReactiveUserService;
+import org.example.testtask.service.UserService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Adapts {@link UserService}. Reads from the object and sharded in-memory layouts never take a lock, so they run on
+ * the subscribing event-loop thread. Reads from the compact layout take its read lock and can wait behind a writer,
+ * so they move to the bounded elastic scheduler, as does every call into the JDBC-backed store. Writes always move
+ * there too: they queue on store locks, run the change listeners and, with persistence enabled, append to the
+ * write-ahead log.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+    private final UserService userService;
+    private final Scheduler readScheduler;
+    private final Scheduler writeScheduler = Schedulers.boundedElastic();
+
+    public ReactiveUserServiceImpl(UserService userService, @Value("${user.store.type:memory}") String storeType,
+                                   @Value("${user.store.memory.layout:objects}") String memoryLayout) {
+        this.userService = userService;
+        this.readScheduler = "jpa".equals(storeType) || "compact".equals(memoryLayout)
+                ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+
+    @Override
+    public Mono<UserEntity> createUser(UserEntity userEntity) {
+        return write(() -> userService.createUser(userEntity));
+    }
+
+    @Override
+    public Mono<List<BatchItemResult>> createUsers(List<UserEntity> userEntities, boolean upsert) {
+        return write(() -> userService.createUsers(userEntities, upsert));
+    }
+
+    @Override
+    public Mono<UserEntity> updateUserByEmail(String email, UserEntity newUserData, Long expectedVersion) {
+        return write(() -> userService.updateUserByEmail(email, newUserData, expectedVersion));
+    }
+
+    @Override
+    public Mono<UserEntity> findByEmail(String email) {
+        return Mono.defer(() -> Mono.justOrEmpty(userService.findByEmail(email))).subscribeOn(readScheduler);
+    }
+
+    @Override
+    public Mono<Boolean> deleteUserByEmail(String email, Long expectedVersion) {
+        return write(() -> userService.deleteUserByEmail(email, expectedVersion));
+    }
+
+    @Override
+    public Mono<List<BatchItemResult>> deleteUsersByEmail(List<String> emails) {
+        return write(() -> userService.deleteUsersByEmail(emails));
+    }
+
+    @Override
+    public Flux<UserEntity> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        return Flux.fromStream(() -> userService.streamUsersForBirthDateRange(from, fromInclusive, to, toInclusive))
+                .subscribeOn(readScheduler);
+    }
+
+    @Override
+    public Mono<UserPage> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                                                     String cursor, int limit) {
+        return read(() -> userService.findUsersForBirthDateRange(from, fromInclusive, to, toInclusive, cursor, limit));
+    }
+
+    @Override
+    public Mono<UserEntity> patchUser(String email, PatchedUserDTO patch, Long expectedVersion) {
+        return write(() -> userService.patchUser(email, patch, expectedVersion));
+    }
+
+    private <T> Mono<T> read(Callable<T> operation) {
+        return Mono.fromCallable(operation).subscribeOn(readScheduler);
+    }
+
+    private <T> Mono<T> write(Callable<T> operation) {
+        return Mono.fromCallable(operation).subscribeOn(writeScheduler);
+    }
+}
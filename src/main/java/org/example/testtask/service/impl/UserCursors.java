@@ -0,0 +1,34 @@
+package org.example.testtask.service.impl;
+
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.BirthDateKey;
+import org.example.testtask.store.UserStore;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+public final class UserCursors {
+    private UserCursors() {
+    }
+
+    public static String encode(UserEntity user) {
+        BirthDateKey key = UserStore.birthDateKey(user);
+        String raw = key.birthDate().toEpochDay() + ":" + key.email();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BirthDateKey decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new BirthDateKey(LocalDate.ofEpochDay(Long.parseLong(raw.substring(0, separator))),
+                    raw.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor: " + cursor);
+        }
+    }
+}
@@ -1,80 +1,185 @@
 package org.example.testtask.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.TreeNode;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.github.fge.jsonpatch.JsonPatchException;
-import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
 import org.example.testtask.entity.UserEntity;
+import org.example.testtask.metrics.UserOperationMetrics;
 import org.example.testtask.service.UserService;
+import org.example.testtask.store.BirthDateKey;
+import org.example.testtask.store.DuplicateEmailException;
+import org.example.testtask.store.InsertOutcome;
+import org.example.testtask.store.UserStore;
+import org.example.testtask.store.VersionConflictException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
+@ConditionalOnProperty(name = "user.store.type", havingValue = "memory", matchIfMissing = true)
 public class UserServiceImpl implements UserService {
-    private List<UserEntity> listOfUsers = new ArrayList<>();
+    private static final HttpStatusCode MISDIRECTED_REQUEST = HttpStatusCode.valueOf(421);
+
+    private final UserStore userStore;
+    private final UserOperationMetrics metrics;
+    private final boolean readOnly;
+
+    public UserServiceImpl(UserStore userStore, MeterRegistry meterRegistry) {
+        this(userStore, meterRegistry, "leader");
+    }
+
+    /**
+     * A follower's store only changes through replication, so writes sent to it are rejected with
+     * 421 Misdirected Request.
+     */
+    @Autowired
+    public UserServiceImpl(UserStore userStore, MeterRegistry meterRegistry,
+                           @Value("${user.replication.role:leader}") String replicationRole) {
+        this.userStore = userStore;
+        this.metrics = new UserOperationMetrics(meterRegistry);
+        this.readOnly = "follower".equals(replicationRole);
+    }
 
     @Override
     public UserEntity createUser(UserEntity userEntity) {
-        listOfUsers.add(userEntity);
-        return userEntity;
+        requireWritable();
+        return metrics.getCreateTimer().record(() -> {
+            try {
+                userStore.insert(userEntity);
+            } catch (DuplicateEmailException e) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+            }
+            return userEntity;
+        });
     }
 
     @Override
-    public UserEntity updateUserByEmail(String email, UserEntity newUserData) {
-        UserEntity user = findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
-        updateUser(user, newUserData);
-        return newUserData;
+    public List<BatchItemResult> createUsers(List<UserEntity> userEntities, boolean upsert) {
+        requireWritable();
+        InsertOutcome[] outcomes = metrics.getBatchCreateTimer().record(() -> userStore.insertAll(userEntities, upsert));
+        List<BatchItemResult> results = new ArrayList<>(outcomes.length);
+        for (int i = 0; i < outcomes.length; i++) {
+            String email = userEntities.get(i).getEmail();
+            results.add(switch (outcomes[i]) {
+                case INSERTED -> new BatchItemResult(i, email, HttpStatus.CREATED.value(), null);
+                case REPLACED -> new BatchItemResult(i, email, HttpStatus.OK.value(), null);
+                case SKIPPED -> new BatchItemResult(i, email, HttpStatus.CONFLICT.value(), "user already exists with email: " + email);
+            });
+        }
+        return results;
+    }
+
+    @Override
+    public UserEntity updateUserByEmail(String email, UserEntity newUserData, Long expectedVersion) {
+        requireWritable();
+        return metrics.getUpdateTimer().record(() -> updateUser(email, expectedVersion, oldUser -> newUserData));
     }
 
     @Override
     public Optional<UserEntity> findByEmail(String email) {
-        return listOfUsers.stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst();
+        return metrics.getFindTimer().record(() -> userStore.findByEmail(email));
     }
 
-    private void updateUser(UserEntity oldUser, UserEntity updatedUser) {
-        listOfUsers.remove(oldUser);
-        listOfUsers.add(updatedUser);
+    private UserEntity updateUser(String email, Long expectedVersion, UnaryOperator<UserEntity> update) {
+        try {
+            return userStore.replace(email, expectedVersion, update)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
+        } catch (DuplicateEmailException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (VersionConflictException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean deleteUserByEmail(String email, Long expectedVersion) {
+        requireWritable();
+        return metrics.getDeleteTimer().record(() -> {
+            try {
+                userStore.remove(email, expectedVersion)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
+            } catch (VersionConflictException e) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage());
+            }
+            return true;
+        });
     }
 
     @Override
-    public boolean deleteUserByEmail(String email) {
-        UserEntity user = findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
-        return listOfUsers.remove(user);
+    public List<BatchItemResult> deleteUsersByEmail(List<String> emails) {
+        requireWritable();
+        boolean[] removed = metrics.getBatchDeleteTimer().record(() -> userStore.removeAll(emails));
+        List<BatchItemResult> results = new ArrayList<>(removed.length);
+        for (int i = 0; i < removed.length; i++) {
+            String email = emails.get(i);
+            results.add(removed[i]
+                    ? new BatchItemResult(i, email, HttpStatus.OK.value(), null)
+                    : new BatchItemResult(i, email, HttpStatus.NOT_FOUND.value(), "user not found with email: " + email));
+        }
+        return results;
     }
 
     @Override
     public List<UserEntity> findUsersForBirthDateRange(LocalDate from, LocalDate to) {
-        return listOfUsers.stream()
-                .filter(user -> user.getBirthDate().isAfter(from) && user.getBirthDate().isBefore(to))
-                .collect(Collectors.toList());
+        return findUsersForBirthDateRange(from, false, to, false);
     }
 
     @Override
-    public UserEntity patchUser(String email, String patchDetails) throws JsonPatchException, JsonProcessingException {
-        UserEntity oldUser = findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "user not found with email: " + email));
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        JsonNode patchNode = objectMapper.readTree(patchDetails);
-        JsonMergePatch patch = JsonMergePatch.fromJson(patchNode);
-        JsonNode originalObjNode = objectMapper.valueToTree(oldUser);
-        TreeNode patchedObjNode = patch.apply(originalObjNode);
-        UserEntity updatedUser = objectMapper.treeToValue(patchedObjNode, UserEntity.class);
-        updateUser(oldUser, updatedUser);
-        return updatedUser;
+    public List<UserEntity> findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        List<UserEntity> users = metrics.getSearchTimer().record(
+                () -> new ArrayList<>(userStore.findByBirthDateRange(from, fromInclusive, to, toInclusive)));
+        metrics.getSearchResultSize().record(users.size());
+        return users;
+    }
+
+    @Override
+    public UserPage findUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive,
+                                               String cursor, int limit) {
+        BirthDateKey after = cursor == null ? null : UserCursors.decode(cursor);
+        UserPage page = metrics.getSearchTimer().record(() -> {
+            Iterator<UserEntity> iterator = userStore.findByBirthDateRange(from, fromInclusive, to, toInclusive, after).iterator();
+            List<UserEntity> users = new ArrayList<>(Math.min(limit, 1024));
+            while (users.size() < limit && iterator.hasNext()) {
+                users.add(iterator.next());
+            }
+            String nextCursor = iterator.hasNext() && !users.isEmpty() ? UserCursors.encode(users.get(users.size() - 1)) : null;
+            return new UserPage(users, nextCursor);
+        });
+        metrics.getSearchResultSize().record(page.getUsers().size());
+        return page;
+    }
+
+    @Override
+    public Stream<UserEntity> streamUsersForBirthDateRange(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        LongAdder streamed = new LongAdder();
+        return userStore.findByBirthDateRange(from, fromInclusive, to, toInclusive).stream()
+                .peek(user -> streamed.increment())
+                .onClose(() -> metrics.getSearchResultSize().record(streamed.sum()));
+    }
+
+    @Override
+    public UserEntity patchUser(String email, PatchedUserDTO patch, Long expectedVersion) {
+        requireWritable();
+        return metrics.getPatchTimer().record(() -> updateUser(email, expectedVersion, patch::applyTo));
+    }
+
+    private void requireWritable() {
+        if (readOnly) {
+            throw new ResponseStatusException(MISDIRECTED_REQUEST, "this node is a read-only follower; send writes to the leader");
+        }
     }
 }
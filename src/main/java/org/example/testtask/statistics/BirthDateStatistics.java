@@ -0,0 +1,241 @@
+package org.example.testtask.statistics;
+
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.dto.AgeBracketCount;
+import org.example.testtask.dto.BirthDateBucketCount;
+import org.example.testtask.dto.BirthdayCount;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Birth-date counters kept current by store change notifications: a {@link EpochDayFenwickTree} answers how many
+ * users were born in any date range in {@code O(log n)}, and a counter per calendar day answers how many users
+ * have their birthday on it. No query touches a stored user.
+ * <p>
+ * The tree starts at 1900 and is widened under the write lock when a birth date falls outside it; mutations share
+ * the read lock so they never update a tree that is being copied. Birth dates beyond years 1 and 9999 are counted
+ * on those bounds. Queries read without locking and, like range searches, are only weakly consistent with
+ * concurrent mutations.
+ * <p>
+ * The counters are only active with the in-memory store. They are seeded from the store once all singletons are
+ * initialized, after startup recovery and before the server accepts requests, and follow its changes from then on.
+ * The listener is registered before the seed scan; changes notified during the scan are buffered and replayed over
+ * its result, so a write racing the seed is counted exactly once.
+ */
+@Component
+public class BirthDateStatistics implements UserChangeListener, SmartInitializingSingleton {
+    static final int MAX_BUCKETS = 10_000;
+    private static final long MIN_EPOCH_DAY = LocalDate.of(1, 1, 1).toEpochDay();
+    private static final long MAX_EPOCH_DAY = LocalDate.of(9999, 12, 31).toEpochDay();
+    private static final long INITIAL_ORIGIN = LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final int INITIAL_SIZE = 1 << 16;
+    private static final int DAYS_PER_MONTH = 31;
+
+    private final Optional<UserStore> userStore;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicIntegerArray birthdays = new AtomicIntegerArray(12 * DAYS_PER_MONTH);
+    private volatile EpochDayFenwickTree tree = new EpochDayFenwickTree(INITIAL_ORIGIN, INITIAL_SIZE);
+    private final ReentrantLock seedLock = new ReentrantLock();
+    private List<Change> seedChanges = new ArrayList<>();
+    private volatile boolean seeded;
+
+    public BirthDateStatistics(Optional<UserStore> userStore) {
+        this.userStore = userStore;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        userStore.ifPresent(store -> {
+            store.addListener(this);
+            Map<String, LocalDate> birthDates = new HashMap<>();
+            for (UserEntity user : store.values()) {
+                birthDates.put(UserStore.normalizeEmail(user.getEmail()), user.getBirthDate());
+            }
+            seedLock.lock();
+            try {
+                for (Change change : seedChanges) {
+                    if (change.previous() != null) {
+                        birthDates.remove(UserStore.normalizeEmail(change.previous().getEmail()));
+                    }
+                    if (change.current() != null) {
+                        birthDates.put(UserStore.normalizeEmail(change.current().getEmail()),
+                                change.current().getBirthDate());
+                    }
+                }
+                for (LocalDate birthDate : birthDates.values()) {
+                    add(birthDate, 1);
+                }
+                seedChanges = null;
+                seeded = true;
+            } finally {
+                seedLock.unlock();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        userStore.ifPresent(store -> store.removeListener(this));
+    }
+
+    public boolean isEnabled() {
+        return userStore.isPresent();
+    }
+
+    @Override
+    public void onChange(UserEntity previous, UserEntity current) {
+        if (!seeded) {
+            seedLock.lock();
+            try {
+                if (!seeded) {
+                    seedChanges.add(new Change(previous, current));
+                    return;
+                }
+            } finally {
+                seedLock.unlock();
+            }
+        }
+        if (previous != null) {
+            add(previous.getBirthDate(), -1);
+        }
+        if (current != null) {
+            add(current.getBirthDate(), 1);
+        }
+    }
+
+    /**
+     * Number of users born within the range, with the same bound semantics as the range search.
+     */
+    public long count(LocalDate from, boolean fromInclusive, LocalDate to, boolean toInclusive) {
+        return countBetween(from.toEpochDay() + (fromInclusive ? 0 : 1), to.toEpochDay() + (toInclusive ? 1 : 0));
+    }
+
+    /**
+     * Splits {@code [from, to)} into consecutive buckets of the given size, starting at {@code from}; the last
+     * bucket ends at {@code to}.
+     */
+    public List<BirthDateBucketCount> histogram(LocalDate from, LocalDate to, BucketSize bucketSize) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        List<BirthDateBucketCount> buckets = new ArrayList<>();
+        LocalDate start = from;
+        for (int i = 1; start.isBefore(to); i++) {
+            if (buckets.size() == MAX_BUCKETS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "The range spans more than " + MAX_BUCKETS + " buckets");
+            }
+            LocalDate end = from.plus(bucketSize.period().multipliedBy(i));
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            buckets.add(new BirthDateBucketCount(start, end, countBetween(start.toEpochDay(), end.toEpochDay())));
+            start = end;
+        }
+        return buckets;
+    }
+
+    /**
+     * Counts users by age today. Each bound starts a bracket that ends at the next bound; the last bracket is
+     * open-ended.
+     */
+    public List<AgeBracketCount> ageBrackets(List<Integer> bounds) {
+        for (int i = 0; i < bounds.size(); i++) {
+            if (bounds.get(i) < 0 || (i > 0 && bounds.get(i) <= bounds.get(i - 1))) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Age bounds must be non-negative and strictly ascending");
+            }
+        }
+        LocalDate today = LocalDate.now();
+        List<AgeBracketCount> brackets = new ArrayList<>(bounds.size());
+        for (int i = 0; i < bounds.size(); i++) {
+            int minAge = bounds.get(i);
+            long bornUntil = today.minusYears(minAge).toEpochDay() + 1;
+            if (i + 1 < bounds.size()) {
+                int maxAge = bounds.get(i + 1);
+                long bornAfter = today.minusYears(maxAge).toEpochDay() + 1;
+                brackets.add(new AgeBracketCount(minAge, maxAge, countBetween(bornAfter, bornUntil)));
+            } else {
+                brackets.add(new AgeBracketCount(minAge, null, countBetween(MIN_EPOCH_DAY, bornUntil)));
+            }
+        }
+        return brackets;
+    }
+
+    public List<BirthdayCount> birthdays(Month month) {
+        int days = month.maxLength();
+        List<BirthdayCount> counts = new ArrayList<>(days);
+        for (int day = 1; day <= days; day++) {
+            counts.add(new BirthdayCount(month.getValue(), day, birthdays.get(birthdayIndex(month.getValue(), day))));
+        }
+        return counts;
+    }
+
+    private long countBetween(long startEpochDay, long endEpochDay) {
+        if (endEpochDay <= startEpochDay) {
+            return 0;
+        }
+        EpochDayFenwickTree current = tree;
+        return current.countBefore(endEpochDay) - current.countBefore(startEpochDay);
+    }
+
+    private void add(LocalDate birthDate, int delta) {
+        if (birthDate == null) {
+            return;
+        }
+        birthdays.addAndGet(birthdayIndex(birthDate.getMonthValue(), birthDate.getDayOfMonth()), delta);
+        long epochDay = Math.min(Math.max(birthDate.toEpochDay(), MIN_EPOCH_DAY), MAX_EPOCH_DAY);
+        lock.readLock().lock();
+        try {
+            EpochDayFenwickTree current = tree;
+            if (current.covers(epochDay)) {
+                current.add(epochDay, delta);
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            EpochDayFenwickTree current = tree;
+            if (!current.covers(epochDay)) {
+                long origin = current.origin();
+                long end = current.end();
+                while (epochDay < origin) {
+                    origin -= end - origin;
+                }
+                while (epochDay >= end) {
+                    end += end - origin;
+                }
+                current = current.widen(origin, Math.toIntExact(end - origin));
+                tree = current;
+            }
+            current.add(epochDay, delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int birthdayIndex(int month, int day) {
+        return (month - 1) * DAYS_PER_MONTH + day - 1;
+    }
+
+    private record Change(UserEntity previous, UserEntity current) {
+    }
+}
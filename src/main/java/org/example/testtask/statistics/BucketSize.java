@@ -0,0 +1,20 @@
+package org.example.testtask.statistics;
+
+import java.time.Period;
+
+public enum BucketSize {
+    DAY(Period.ofDays(1)),
+    WEEK(Period.ofWeeks(1)),
+    MONTH(Period.ofMonths(1)),
+    YEAR(Period.ofYears(1));
+
+    private final Period period;
+
+    BucketSize(Period period) {
+        this.period = period;
+    }
+
+    public Period period() {
+        return period;
+    }
+}
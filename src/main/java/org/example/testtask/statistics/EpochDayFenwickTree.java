@@ -0,0 +1,67 @@
+package org.example.testtask.statistics;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Binary indexed tree of per-day counts over the epoch days {@code [origin, origin + size)}. Updates and prefix
+ * sums take {@code O(log size)}; concurrent updates are safe because every cell is adjusted atomically.
+ */
+final class EpochDayFenwickTree {
+    private final long origin;
+    private final int size;
+    private final AtomicIntegerArray tree;
+
+    EpochDayFenwickTree(long origin, int size) {
+        this.origin = origin;
+        this.size = size;
+        this.tree = new AtomicIntegerArray(size + 1);
+    }
+
+    long origin() {
+        return origin;
+    }
+
+    long end() {
+        return origin + size;
+    }
+
+    boolean covers(long epochDay) {
+        return epochDay >= origin && epochDay < origin + size;
+    }
+
+    void add(long epochDay, int delta) {
+        for (int i = (int) (epochDay - origin) + 1; i <= size; i += i & -i) {
+            tree.addAndGet(i, delta);
+        }
+    }
+
+    /**
+     * Number of counted days strictly before {@code epochDay}.
+     */
+    long countBefore(long epochDay) {
+        long sum = 0;
+        for (int i = (int) Math.max(0, Math.min(epochDay - origin, size)); i > 0; i -= i & -i) {
+            sum += tree.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Copies the counts into a tree over a wider span, which must contain this one.
+     */
+    EpochDayFenwickTree widen(long newOrigin, int newSize) {
+        EpochDayFenwickTree wider = new EpochDayFenwickTree(newOrigin, newSize);
+        long[] cells = new long[newSize + 1];
+        for (int i = 1; i <= size; i++) {
+            cells[(int) (origin - newOrigin) + i] = countBefore(origin + i) - countBefore(origin + i - 1);
+        }
+        for (int i = 1; i <= newSize; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newSize) {
+                cells[parent] += cells[i];
+            }
+            wider.tree.set(i, (int) cells[i]);
+        }
+        return wider;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.testtask.store;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+
+public record BirthDateKey(LocalDate birthDate, String email) implements Comparable<BirthDateKey> {
+    private static final Comparator<BirthDateKey> ORDER = Comparator.comparing(BirthDateKey::birthDate)
+            .thenComparing(BirthDateKey::email, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    public static BirthDateKey lowest(LocalDate birthDate) {
+        return new BirthDateKey(birthDate, "");
+    }
+
+    /**
+     * A bound that sorts after every user born on {@code birthDate}. Range ends are built from it rather than from
+     * the next day, which does not exist at {@link LocalDate#MAX}.
+     */
+    public static BirthDateKey highest(LocalDate birthDate) {
+        return new BirthDateKey(birthDate, null);
+    }
+
+    @Override
+    public int compareTo(BirthDateKey other) {
+        return ORDER.compare(this, other);
+    }
+}
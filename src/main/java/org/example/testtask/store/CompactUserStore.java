@@ -0,0 +1,691 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link UserStore} that keeps users in primitive columns instead of one {@link UserEntity} graph per user.
+ * Every row holds its birth date as an epoch-day int, first and last names as codes into reference-counted
+ * dictionaries, and the normalized email, original email, address and phone number packed as length-prefixed
+ * UTF-8 into a single byte array. Emails are looked up through an open-addressing hash table of row numbers, and
+ * the birth-date index is a map from epoch day to the rows born that day ordered by normalized email.
+ * <p>
+ * {@link UserEntity} instances are only created when a user is returned. Range views materialize rows in small
+ * chunks, each under the read lock, so they are weakly consistent in the same way as {@link InMemoryUserStore}.
+ */
+public class CompactUserStore implements UserStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MATERIALIZE_CHUNK = 256;
+    private static final int EMPTY_SLOT = 0;
+    private static final int DELETED_SLOT = -1;
+    private static final int NO_CODE = -1;
+    private static final float MAX_TABLE_LOAD = 0.6f;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final StringDictionary firstNameDictionary = new StringDictionary();
+    private final StringDictionary lastNameDictionary = new StringDictionary();
+    private final NavigableMap<Integer, RowList> rowsByBirthDay = new TreeMap<>();
+
+    private byte[][] records = new byte[INITIAL_CAPACITY][];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] birthDays = new int[INITIAL_CAPACITY];
+    private int[] firstNames = new int[INITIAL_CAPACITY];
+    private int[] lastNames = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int rowCount;
+    private int[] freeRows = new int[16];
+    private int freeRowCount;
+    private int size;
+
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private int usedSlots;
+
+    @Override
+    public void addListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(UserChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Optional<UserEntity> findByEmail(String email) {
+        String key = UserStore.normalizeEmail(email);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int row = findRow(key);
+            return row < 0 ? Optional.empty() : Optional.of(toEntity(row));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public void insert(UserEntity user) {
+        String key = UserStore.normalizeEmail(user.getEmail());
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (findRow(key) >= 0) {
+                throw new DuplicateEmailException(user.getEmail());
+            }
+            UserVersions.assign(user, null);
+            int birthDay = birthDayOf(user);
+            fireBeforeChange(null, user);
+            storeRow(key, user, birthDay);
+            fireChange(null, user);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public InsertOutcome[] insertAll(List<UserEntity> users, boolean upsert) {
+        InsertOutcome[] outcomes = new InsertOutcome[users.size()];
+        Arrays.fill(outcomes, InsertOutcome.SKIPPED);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (int i = 0; i < outcomes.length; i++) {
+                UserEntity user = users.get(i);
+                String key = UserStore.normalizeEmail(user.getEmail());
+                int row = findRow(key);
+                if (row >= 0 && !upsert) {
+                    continue;
+                }
+                UserEntity previous = row >= 0 ? toEntity(row) : null;
+                UserVersions.assign(user, previous);
+                int birthDay = birthDayOf(user);
+                fireBeforeChange(previous, user);
+                if (row >= 0) {
+                    deleteRow(key, row);
+                }
+                storeRow(key, user, birthDay);
+                fireChange(previous, user);
+                outcomes[i] = previous == null ? InsertOutcome.INSERTED : InsertOutcome.REPLACED;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return outcomes;
+    }
+
+    /**
+     * The update is applied under the write lock, so it runs exactly once per call.
+     */
+    @Override
+    public Optional<UserEntity> replace(String email, Long expectedVersion, UnaryOperator<UserEntity> update) {
+        String oldKey = UserStore.normalizeEmail(email);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = findRow(oldKey);
+            if (row < 0) {
+                return Optional.empty();
+            }
+            UserVersions.check(email, expectedVersion, versions[row]);
+            UserEntity current = toEntity(row);
+            UserEntity updated = UserVersions.next(current, update.apply(current));
+            String newKey = UserStore.normalizeEmail(updated.getEmail());
+            if (!newKey.equals(oldKey) && findRow(newKey) >= 0) {
+                throw new DuplicateEmailException(updated.getEmail());
+            }
+            int birthDay = birthDayOf(updated);
+            fireBeforeChange(current, updated);
+            deleteRow(oldKey, row);
+            storeRow(newKey, updated, birthDay);
+            fireChange(current, updated);
+            return Optional.of(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<UserEntity> remove(String email, Long expectedVersion) {
+        String key = UserStore.normalizeEmail(email);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            int row = findRow(key);
+            if (row < 0) {
+                return Optional.empty();
+            }
+            UserVersions.check(email, expectedVersion, versions[row]);
+            UserEntity removed = toEntity(row);
+            fireBeforeChange(removed, null);
+            deleteRow(key, row);
+            fireChange(removed, null);
+            return Optional.of(removed);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean[] removeAll(List<String> emails) {
+        boolean[] removed = new boolean[emails.size()];
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            for (int i = 0; i < removed.length; i++) {
+                String key = UserStore.normalizeEmail(emails.get(i));
+                int row = findRow(key);
+                if (row >= 0) {
+                    UserEntity user = listeners.isEmpty() ? null : toEntity(row);
+                    fireBeforeChange(user, null);
+                    deleteRow(key, row);
+                    fireChange(user, null);
+                    removed[i] = true;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return removed;
+    }
+
+    @Override
+    public Collection<UserEntity> findByBirthDateRange(LocalDate from, boolean fromInclusive,
+                                                       LocalDate to, boolean toInclusive, BirthDateKey after) {
+        long firstDay = fromInclusive ? from.toEpochDay() : from.toEpochDay() + 1;
+        long lastDay = toInclusive ? to.toEpochDay() : to.toEpochDay() - 1;
+        String afterKey = null;
+        if (after != null && after.birthDate().toEpochDay() >= firstDay) {
+            firstDay = after.birthDate().toEpochDay();
+            afterKey = after.email();
+        }
+        return new RangeView(clampDay(firstDay), afterKey, clampDay(lastDay));
+    }
+
+    @Override
+    public Collection<UserEntity> values() {
+        return new RangeView(Integer.MIN_VALUE, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int size() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        return size();
+    }
+
+    private void fireBeforeChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(previous, current);
+        }
+    }
+
+    private void fireChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.onChange(previous, current);
+        }
+    }
+
+    private static int clampDay(long epochDay) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+    }
+
+    private UserEntity toEntity(int row) {
+        RecordReader reader = new RecordReader(records[row]);
+        String key = reader.next();
+        String email = reader.next();
+        return UserEntity.builder()
+                .email(email == null ? key : email)
+                .firstName(firstNameDictionary.get(firstNames[row]))
+                .lastName(lastNameDictionary.get(lastNames[row]))
+                .birthDate(LocalDate.ofEpochDay(birthDays[row]))
+                .address(reader.next())
+                .phoneNumber(reader.next())
+                .version(versions[row])
+                .build();
+    }
+
+    private String keyOf(int row) {
+        return new RecordReader(records[row]).next();
+    }
+
+    /**
+     * Birth days are stored as {@code int} epoch days; a date beyond that range is rejected before any listener
+     * sees the mutation.
+     */
+    private static int birthDayOf(UserEntity user) {
+        long epochDay = user.getBirthDate().toEpochDay();
+        if (epochDay != (int) epochDay) {
+            throw new IllegalArgumentException("birth date out of range: " + user.getBirthDate());
+        }
+        return (int) epochDay;
+    }
+
+    private void storeRow(String key, UserEntity user, int birthDay) {
+        int row = allocateRow();
+        records[row] = encodeRecord(key, user);
+        hashes[row] = spread(key.hashCode());
+        birthDays[row] = birthDay;
+        firstNames[row] = firstNameDictionary.acquire(user.getFirstName());
+        lastNames[row] = lastNameDictionary.acquire(user.getLastName());
+        versions[row] = user.getVersion();
+        insertSlot(row);
+        rowsByBirthDay.computeIfAbsent(birthDay, day -> new RowList()).insert(row, key);
+        size++;
+    }
+
+    private void deleteRow(String key, int row) {
+        slots[findSlot(key, row)] = DELETED_SLOT;
+        RowList bucket = rowsByBirthDay.get(birthDays[row]);
+        bucket.remove(key);
+        if (bucket.size == 0) {
+            rowsByBirthDay.remove(birthDays[row]);
+        }
+        firstNameDictionary.release(firstNames[row]);
+        lastNameDictionary.release(lastNames[row]);
+        records[row] = null;
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRowCount * 2);
+        }
+        freeRows[freeRowCount++] = row;
+        size--;
+    }
+
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (rowCount == records.length) {
+            int capacity = rowCount * 2;
+            records = Arrays.copyOf(records, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            birthDays = Arrays.copyOf(birthDays, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+        return rowCount++;
+    }
+
+    private int findRow(String key) {
+        int slot = findSlot(key, -1);
+        return slot < 0 ? -1 : slots[slot] - 1;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or -1. When {@code knownRow} is given the key is compared by row only.
+     */
+    private int findSlot(String key, int knownRow) {
+        int hash = spread(key.hashCode());
+        byte[] keyBytes = knownRow >= 0 ? null : key.getBytes(StandardCharsets.UTF_8);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == EMPTY_SLOT) {
+                return -1;
+            }
+            if (entry == DELETED_SLOT) {
+                continue;
+            }
+            int row = entry - 1;
+            if (knownRow >= 0 ? row == knownRow : hashes[row] == hash && keyEquals(records[row], keyBytes)) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertSlot(int row) {
+        if (usedSlots + 1 > slots.length * MAX_TABLE_LOAD) {
+            rehash();
+        }
+        int mask = slots.length - 1;
+        int slot = hashes[row] & mask;
+        while (slots[slot] > EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        if (slots[slot] == EMPTY_SLOT) {
+            usedSlots++;
+        }
+        slots[slot] = row + 1;
+    }
+
+    private void rehash() {
+        int capacity = slots.length;
+        while ((size + 1) > capacity * MAX_TABLE_LOAD / 2) {
+            capacity *= 2;
+        }
+        int[] oldSlots = slots;
+        slots = new int[capacity];
+        usedSlots = 0;
+        int mask = capacity - 1;
+        for (int entry : oldSlots) {
+            if (entry > EMPTY_SLOT) {
+                int slot = hashes[entry - 1] & mask;
+                while (slots[slot] != EMPTY_SLOT) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = entry;
+                usedSlots++;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] encodeRecord(String key, UserEntity user) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] emailBytes = key.equals(user.getEmail()) ? null : user.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] addressBytes = user.getAddress() == null ? null : user.getAddress().getBytes(StandardCharsets.UTF_8);
+        byte[] phoneBytes = user.getPhoneNumber() == null ? null : user.getPhoneNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[encodedLength(keyBytes) + encodedLength(emailBytes)
+                + encodedLength(addressBytes) + encodedLength(phoneBytes)];
+        int position = writeBytes(record, 0, keyBytes);
+        position = writeBytes(record, position, emailBytes);
+        position = writeBytes(record, position, addressBytes);
+        writeBytes(record, position, phoneBytes);
+        return record;
+    }
+
+    private static int encodedLength(byte[] bytes) {
+        if (bytes == null) {
+            return 1;
+        }
+        int length = bytes.length + 1;
+        int prefix = 1;
+        while (length >= 0x80) {
+            length >>>= 7;
+            prefix++;
+        }
+        return prefix + bytes.length;
+    }
+
+    /**
+     * Writes {@code bytes} prefixed with its length plus one as a varint, so that a zero prefix encodes {@code null}.
+     */
+    private static int writeBytes(byte[] record, int position, byte[] bytes) {
+        int length = bytes == null ? 0 : bytes.length + 1;
+        while (length >= 0x80) {
+            record[position++] = (byte) (length | 0x80);
+            length >>>= 7;
+        }
+        record[position++] = (byte) length;
+        if (bytes != null) {
+            System.arraycopy(bytes, 0, record, position, bytes.length);
+            position += bytes.length;
+        }
+        return position;
+    }
+
+    private static boolean keyEquals(byte[] record, byte[] keyBytes) {
+        RecordReader reader = new RecordReader(record);
+        int length = reader.nextLength();
+        return length == keyBytes.length
+                && Arrays.equals(record, reader.position, reader.position + length, keyBytes, 0, length);
+    }
+
+    private static final class RecordReader {
+        private final byte[] record;
+        private int position;
+
+        RecordReader(byte[] record) {
+            this.record = record;
+        }
+
+        /**
+         * Returns the length of the next field, or -1 for {@code null}, leaving the position at its first byte.
+         */
+        int nextLength() {
+            int length = 0;
+            int shift = 0;
+            byte current;
+            do {
+                current = record[position++];
+                length |= (current & 0x7F) << shift;
+                shift += 7;
+            } while (current < 0);
+            return length - 1;
+        }
+
+        String next() {
+            int length = nextLength();
+            if (length < 0) {
+                return null;
+            }
+            String value = new String(record, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * Rows born on one day, kept sorted by normalized email.
+     */
+    private final class RowList {
+        private int[] rows = new int[4];
+        private int size;
+
+        void insert(int row, String key) {
+            int index = -indexOf(key) - 1;
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            rows[index] = row;
+            size++;
+        }
+
+        void remove(String key) {
+            int index = indexOf(key);
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            size--;
+        }
+
+        /**
+         * Binary search over the keys of the rows; returns {@code -(insertion point) - 1} if {@code key} is absent.
+         */
+        int indexOf(String key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = keyOf(rows[middle]).compareTo(key);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        int indexAfter(String key) {
+            int index = indexOf(key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+
+    /**
+     * Users born between {@code firstDay} and {@code lastDay} inclusive, starting strictly after {@code afterKey}
+     * on {@code firstDay} when it is not {@code null}.
+     */
+    private final class RangeView extends AbstractCollection<UserEntity> {
+        private final int firstDay;
+        private final String afterKey;
+        private final int lastDay;
+
+        RangeView(int firstDay, String afterKey, int lastDay) {
+            this.firstDay = firstDay;
+            this.afterKey = afterKey;
+            this.lastDay = lastDay;
+        }
+
+        @Override
+        public Iterator<UserEntity> iterator() {
+            return new RangeIterator(firstDay, afterKey, lastDay);
+        }
+
+        @Override
+        public int size() {
+            if (firstDay > lastDay) {
+                return 0;
+            }
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                int count = 0;
+                for (Map.Entry<Integer, RowList> bucket : rowsByBirthDay.subMap(firstDay, true, lastDay, true).entrySet()) {
+                    RowList rows = bucket.getValue();
+                    count += afterKey != null && bucket.getKey() == firstDay ? rows.size - rows.indexAfter(afterKey) : rows.size;
+                }
+                return count;
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    private final class RangeIterator implements Iterator<UserEntity> {
+        private final int lastDay;
+        private final List<UserEntity> chunk = new ArrayList<>();
+        private int day;
+        private String afterKey;
+        private int chunkPosition;
+        private boolean exhausted;
+
+        RangeIterator(int firstDay, String afterKey, int lastDay) {
+            this.day = firstDay;
+            this.afterKey = afterKey;
+            this.lastDay = lastDay;
+            this.exhausted = firstDay > lastDay;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (chunkPosition < chunk.size()) {
+                return true;
+            }
+            if (!exhausted) {
+                fill();
+            }
+            return chunkPosition < chunk.size();
+        }
+
+        @Override
+        public UserEntity next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.get(chunkPosition++);
+        }
+
+        private void fill() {
+            chunk.clear();
+            chunkPosition = 0;
+            Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                int lastRow = -1;
+                for (Map.Entry<Integer, RowList> bucket : rowsByBirthDay.subMap(day, true, lastDay, true).entrySet()) {
+                    RowList rows = bucket.getValue();
+                    int index = afterKey != null && bucket.getKey() == day ? rows.indexAfter(afterKey) : 0;
+                    for (; index < rows.size && chunk.size() < MATERIALIZE_CHUNK; index++) {
+                        lastRow = rows.rows[index];
+                        chunk.add(toEntity(lastRow));
+                    }
+                    if (chunk.size() == MATERIALIZE_CHUNK) {
+                        day = bucket.getKey();
+                        afterKey = keyOf(lastRow);
+                        return;
+                    }
+                }
+                exhausted = true;
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reference-counted dictionary of strings; a code is recycled once no row refers to it.
+     */
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[64];
+        private int[] references = new int[64];
+        private int[] freeCodes = new int[16];
+        private int freeCodeCount;
+        private int codeCount;
+
+        int acquire(String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            Integer existing = codes.get(value);
+            if (existing != null) {
+                references[existing]++;
+                return existing;
+            }
+            int code;
+            if (freeCodeCount > 0) {
+                code = freeCodes[--freeCodeCount];
+            } else {
+                if (codeCount == values.length) {
+                    values = Arrays.copyOf(values, codeCount * 2);
+                    references = Arrays.copyOf(references, codeCount * 2);
+                }
+                code = codeCount++;
+            }
+            values[code] = value;
+            references[code] = 1;
+            codes.put(value, code);
+            return code;
+        }
+
+        void release(int code) {
+            if (code == NO_CODE || --references[code] > 0) {
+                return;
+            }
+            codes.remove(values[code]);
+            values[code] = null;
+            if (freeCodeCount == freeCodes.length) {
+                freeCodes = Arrays.copyOf(freeCodes, freeCodeCount * 2);
+            }
+            freeCodes[freeCodeCount++] = code;
+        }
+
+        String get(int code) {
+            return code == NO_CODE ? null : values[code];
+        }
+    }
+}
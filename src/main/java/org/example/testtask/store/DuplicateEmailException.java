@@ -0,0 +1,7 @@
+package org.example.testtask.store;
+
+public class DuplicateEmailException extends RuntimeException {
+    public DuplicateEmailException(String email) {
+        super("user already exists with email: " + email);
+    }
+}
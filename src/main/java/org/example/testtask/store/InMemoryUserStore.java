@@ -0,0 +1,267 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+public class InMemoryUserStore implements UserStore {
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentHashMap<String, UserEntity> usersByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<BirthDateKey, UserEntity> usersByBirthDate = new ConcurrentSkipListMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryUserStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public void addListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(UserChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Optional<UserEntity> findByEmail(String email) {
+        return Optional.ofNullable(usersByEmail.get(UserStore.normalizeEmail(email)));
+    }
+
+    @Override
+    public void insert(UserEntity user) {
+        String key = UserStore.normalizeEmail(user.getEmail());
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            if (usersByEmail.containsKey(key)) {
+                throw new DuplicateEmailException(user.getEmail());
+            }
+            UserVersions.assign(user, null);
+            fireBeforeChange(null, user);
+            usersByEmail.put(key, user);
+            usersByBirthDate.put(birthDateKey(key, user), user);
+            fireChange(null, user);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public InsertOutcome[] insertAll(List<UserEntity> users, boolean upsert) {
+        String[] keys = new String[users.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UserStore.normalizeEmail(users.get(i).getEmail());
+        }
+        InsertOutcome[] outcomes = new InsertOutcome[keys.length];
+        Arrays.fill(outcomes, InsertOutcome.SKIPPED);
+        forEachStripe(keys, i -> {
+            UserEntity user = users.get(i);
+            UserEntity previous = usersByEmail.get(keys[i]);
+            if (previous != null && !upsert) {
+                return;
+            }
+            UserVersions.assign(user, previous);
+            fireBeforeChange(previous, user);
+            usersByEmail.put(keys[i], user);
+            if (previous != null) {
+                usersByBirthDate.remove(birthDateKey(keys[i], previous));
+            }
+            usersByBirthDate.put(birthDateKey(keys[i], user), user);
+            fireChange(previous, user);
+            outcomes[i] = previous == null ? InsertOutcome.INSERTED : InsertOutcome.REPLACED;
+        });
+        return outcomes;
+    }
+
+    @Override
+    public boolean[] removeAll(List<String> emails) {
+        String[] keys = new String[emails.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UserStore.normalizeEmail(emails.get(i));
+        }
+        boolean[] removed = new boolean[keys.length];
+        forEachStripe(keys, i -> {
+            UserEntity user = usersByEmail.get(keys[i]);
+            if (user != null) {
+                fireBeforeChange(user, null);
+                usersByEmail.remove(keys[i]);
+                usersByBirthDate.remove(birthDateKey(keys[i], user));
+                fireChange(user, null);
+                removed[i] = true;
+            }
+        });
+        return removed;
+    }
+
+    /**
+     * The update is computed outside the lock and retried if the user was changed concurrently.
+     */
+    @Override
+    public Optional<UserEntity> replace(String email, Long expectedVersion, UnaryOperator<UserEntity> update) {
+        String oldKey = UserStore.normalizeEmail(email);
+        while (true) {
+            UserEntity current = usersByEmail.get(oldKey);
+            if (current == null) {
+                return Optional.empty();
+            }
+            UserVersions.check(email, expectedVersion, current.getVersion());
+            UserEntity updated = UserVersions.next(current, update.apply(current));
+            String newKey = UserStore.normalizeEmail(updated.getEmail());
+
+            ReentrantLock first = lockFor(oldKey);
+            ReentrantLock second = lockFor(newKey);
+            if (stripeOf(newKey) < stripeOf(oldKey)) {
+                first = second;
+                second = lockFor(oldKey);
+            }
+            first.lock();
+            second.lock();
+            try {
+                if (usersByEmail.get(oldKey) != current) {
+                    continue;
+                }
+                if (!newKey.equals(oldKey) && usersByEmail.containsKey(newKey)) {
+                    throw new DuplicateEmailException(updated.getEmail());
+                }
+                fireBeforeChange(current, updated);
+                usersByEmail.put(newKey, updated);
+                if (!newKey.equals(oldKey)) {
+                    usersByEmail.remove(oldKey);
+                }
+                BirthDateKey oldIndexKey = birthDateKey(oldKey, current);
+                BirthDateKey newIndexKey = birthDateKey(newKey, updated);
+                usersByBirthDate.put(newIndexKey, updated);
+                if (!newIndexKey.equals(oldIndexKey)) {
+                    usersByBirthDate.remove(oldIndexKey);
+                }
+                fireChange(current, updated);
+                return Optional.of(updated);
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Optional<UserEntity> remove(String email, Long expectedVersion) {
+        String key = UserStore.normalizeEmail(email);
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            UserEntity removed = usersByEmail.get(key);
+            if (removed != null) {
+                UserVersions.check(email, expectedVersion, removed.getVersion());
+                fireBeforeChange(removed, null);
+                usersByEmail.remove(key);
+                usersByBirthDate.remove(birthDateKey(key, removed));
+                fireChange(removed, null);
+            }
+            return Optional.ofNullable(removed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<UserEntity> findByBirthDateRange(LocalDate from, boolean fromInclusive,
+                                                       LocalDate to, boolean toInclusive, BirthDateKey after) {
+        BirthDateKey lower = fromInclusive ? BirthDateKey.lowest(from) : BirthDateKey.highest(from);
+        BirthDateKey upper = toInclusive ? BirthDateKey.highest(to) : BirthDateKey.lowest(to);
+        boolean lowerInclusive = true;
+        if (after != null && after.compareTo(lower) >= 0) {
+            lower = after;
+            lowerInclusive = false;
+        }
+        if (lower.compareTo(upper) >= 0) {
+            return Collections.emptyList();
+        }
+        return usersByBirthDate.subMap(lower, lowerInclusive, upper, false).values();
+    }
+
+    @Override
+    public Collection<UserEntity> values() {
+        return Collections.unmodifiableCollection(usersByEmail.values());
+    }
+
+    @Override
+    public int size() {
+        return usersByEmail.size();
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        return usersByBirthDate.size();
+    }
+
+    private static BirthDateKey birthDateKey(String key, UserEntity user) {
+        return new BirthDateKey(user.getBirthDate(), key);
+    }
+
+    private void fireBeforeChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(previous, current);
+        }
+    }
+
+    private void fireChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.onChange(previous, current);
+        }
+    }
+
+    private void forEachStripe(String[] keys, IntConsumer action) {
+        int[] stripeStart = new int[LOCK_STRIPES + 1];
+        for (String key : keys) {
+            stripeStart[stripeOf(key) + 1]++;
+        }
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            stripeStart[stripe + 1] += stripeStart[stripe];
+        }
+        int[] ordered = new int[keys.length];
+        int[] next = Arrays.copyOf(stripeStart, LOCK_STRIPES);
+        for (int i = 0; i < keys.length; i++) {
+            ordered[next[stripeOf(keys[i])]++] = i;
+        }
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if (stripeStart[stripe] == stripeStart[stripe + 1]) {
+                continue;
+            }
+            ReentrantLock lock = locks[stripe];
+            lock.lock();
+            try {
+                for (int j = stripeStart[stripe]; j < stripeStart[stripe + 1]; j++) {
+                    action.accept(ordered[j]);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(String key) {
+        return locks[stripeOf(key)];
+    }
+
+    private static int stripeOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+}
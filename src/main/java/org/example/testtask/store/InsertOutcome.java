@@ -0,0 +1,10 @@
+package org.example.testtask.store;
+
+/**
+ * What {@link UserStore#insertAll} did with one user of a batch.
+ */
+public enum InsertOutcome {
+    INSERTED,
+    REPLACED,
+    SKIPPED
+}
@@ -0,0 +1,484 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link UserStore} partitioned by email hash into independent shards, each with its own lock, email map and
+ * birth-date index, so writers to different shards never contend inside the store itself.
+ * <p>
+ * Change listeners are shared by all shards and run under the shard lock, so writes only scale across shards as
+ * far as the registered listeners do. The default ones keep that work short and mostly lock-free (a queue for the
+ * search index, atomic counters, stamps and slots for the statistics, range cache and change log), but the
+ * write-ahead log, when enabled, still serializes every append. {@code UserServiceBenchmark} measures the store
+ * with and without the default listeners.
+ * <p>
+ * Range views merge the sorted per-shard ranges lazily. Copying a range that is expected to hold many users
+ * ({@link Collection#toArray()}, which {@code new ArrayList<>(range)} uses) collects the shards in parallel on the
+ * common fork-join pool and merges the sorted parts afterwards.
+ */
+public class ShardedUserStore implements UserStore {
+    private static final int PARALLEL_COPY_THRESHOLD = 4096;
+
+    private final Shard[] shards;
+    private final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ShardedUserStore(int shardCount) {
+        if (shardCount <= 0 || Integer.bitCount(shardCount) != 1) {
+            throw new IllegalArgumentException("shard count must be a positive power of two: " + shardCount);
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    @Override
+    public void addListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(UserChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Optional<UserEntity> findByEmail(String email) {
+        String key = UserStore.normalizeEmail(email);
+        return Optional.ofNullable(shardFor(key).usersByEmail.get(key));
+    }
+
+    @Override
+    public void insert(UserEntity user) {
+        String key = UserStore.normalizeEmail(user.getEmail());
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            if (shard.usersByEmail.containsKey(key)) {
+                throw new DuplicateEmailException(user.getEmail());
+            }
+            UserVersions.assign(user, null);
+            fireBeforeChange(null, user);
+            shard.usersByEmail.put(key, user);
+            shard.usersByBirthDate.put(new BirthDateKey(user.getBirthDate(), key), user);
+            fireChange(null, user);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public InsertOutcome[] insertAll(List<UserEntity> users, boolean upsert) {
+        String[] keys = new String[users.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UserStore.normalizeEmail(users.get(i).getEmail());
+        }
+        InsertOutcome[] outcomes = new InsertOutcome[keys.length];
+        Arrays.fill(outcomes, InsertOutcome.SKIPPED);
+        forEachShard(keys, (shard, i) -> {
+            UserEntity user = users.get(i);
+            UserEntity previous = shard.usersByEmail.get(keys[i]);
+            if (previous != null && !upsert) {
+                return;
+            }
+            UserVersions.assign(user, previous);
+            fireBeforeChange(previous, user);
+            shard.usersByEmail.put(keys[i], user);
+            if (previous != null) {
+                shard.usersByBirthDate.remove(new BirthDateKey(previous.getBirthDate(), keys[i]));
+            }
+            shard.usersByBirthDate.put(new BirthDateKey(user.getBirthDate(), keys[i]), user);
+            fireChange(previous, user);
+            outcomes[i] = previous == null ? InsertOutcome.INSERTED : InsertOutcome.REPLACED;
+        });
+        return outcomes;
+    }
+
+    @Override
+    public boolean[] removeAll(List<String> emails) {
+        String[] keys = new String[emails.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = UserStore.normalizeEmail(emails.get(i));
+        }
+        boolean[] removed = new boolean[keys.length];
+        forEachShard(keys, (shard, i) -> {
+            UserEntity user = shard.usersByEmail.get(keys[i]);
+            if (user != null) {
+                fireBeforeChange(user, null);
+                shard.usersByEmail.remove(keys[i]);
+                shard.usersByBirthDate.remove(new BirthDateKey(user.getBirthDate(), keys[i]));
+                fireChange(user, null);
+                removed[i] = true;
+            }
+        });
+        return removed;
+    }
+
+    /**
+     * The update is computed outside the locks and retried if the user was changed concurrently. Moving a user
+     * to the shard of a new email locks both shards in index order.
+     */
+    @Override
+    public Optional<UserEntity> replace(String email, Long expectedVersion, UnaryOperator<UserEntity> update) {
+        String oldKey = UserStore.normalizeEmail(email);
+        Shard oldShard = shardFor(oldKey);
+        while (true) {
+            UserEntity current = oldShard.usersByEmail.get(oldKey);
+            if (current == null) {
+                return Optional.empty();
+            }
+            UserVersions.check(email, expectedVersion, current.getVersion());
+            UserEntity updated = UserVersions.next(current, update.apply(current));
+            String newKey = UserStore.normalizeEmail(updated.getEmail());
+            Shard newShard = shardFor(newKey);
+
+            Shard first = oldShard.index <= newShard.index ? oldShard : newShard;
+            Shard second = first == oldShard ? newShard : oldShard;
+            first.lock.lock();
+            if (second != first) {
+                second.lock.lock();
+            }
+            try {
+                if (oldShard.usersByEmail.get(oldKey) != current) {
+                    continue;
+                }
+                if (!newKey.equals(oldKey) && newShard.usersByEmail.containsKey(newKey)) {
+                    throw new DuplicateEmailException(updated.getEmail());
+                }
+                BirthDateKey oldIndexKey = new BirthDateKey(current.getBirthDate(), oldKey);
+                BirthDateKey newIndexKey = new BirthDateKey(updated.getBirthDate(), newKey);
+                fireBeforeChange(current, updated);
+                newShard.usersByEmail.put(newKey, updated);
+                newShard.usersByBirthDate.put(newIndexKey, updated);
+                if (!newKey.equals(oldKey)) {
+                    oldShard.usersByEmail.remove(oldKey);
+                }
+                if (!newIndexKey.equals(oldIndexKey)) {
+                    oldShard.usersByBirthDate.remove(oldIndexKey);
+                }
+                fireChange(current, updated);
+                return Optional.of(updated);
+            } finally {
+                if (second != first) {
+                    second.lock.unlock();
+                }
+                first.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Optional<UserEntity> remove(String email, Long expectedVersion) {
+        String key = UserStore.normalizeEmail(email);
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            UserEntity removed = shard.usersByEmail.get(key);
+            if (removed != null) {
+                UserVersions.check(email, expectedVersion, removed.getVersion());
+                fireBeforeChange(removed, null);
+                shard.usersByEmail.remove(key);
+                shard.usersByBirthDate.remove(new BirthDateKey(removed.getBirthDate(), key));
+                fireChange(removed, null);
+            }
+            return Optional.ofNullable(removed);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<UserEntity> findByBirthDateRange(LocalDate from, boolean fromInclusive,
+                                                       LocalDate to, boolean toInclusive, BirthDateKey after) {
+        BirthDateKey lower = fromInclusive ? BirthDateKey.lowest(from) : BirthDateKey.highest(from);
+        BirthDateKey upper = toInclusive ? BirthDateKey.highest(to) : BirthDateKey.lowest(to);
+        boolean lowerInclusive = true;
+        if (after != null && after.compareTo(lower) >= 0) {
+            lower = after;
+            lowerInclusive = false;
+        }
+        if (lower.compareTo(upper) >= 0) {
+            return Collections.emptyList();
+        }
+        List<ConcurrentNavigableMap<BirthDateKey, UserEntity>> ranges = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            ranges.add(shard.usersByBirthDate.subMap(lower, lowerInclusive, upper, false));
+        }
+        return new MergedRange(ranges, lower.birthDate(), upper.birthDate());
+    }
+
+    @Override
+    public Collection<UserEntity> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<UserEntity> iterator() {
+                return Arrays.stream(shards)
+                        .flatMap(shard -> shard.usersByEmail.values().stream())
+                        .iterator();
+            }
+
+            @Override
+            public int size() {
+                return ShardedUserStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.usersByEmail.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int birthDateIndexSize() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.usersByBirthDate.size();
+        }
+        return size;
+    }
+
+    private void fireBeforeChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.beforeChange(previous, current);
+        }
+    }
+
+    private void fireChange(UserEntity previous, UserEntity current) {
+        for (UserChangeListener listener : listeners) {
+            listener.onChange(previous, current);
+        }
+    }
+
+    private Shard shardFor(String key) {
+        return shards[shardOf(key)];
+    }
+
+    private int shardOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (shards.length - 1);
+    }
+
+    /**
+     * Applies {@code action} to every key position, grouped so that each shard is locked once per call.
+     */
+    private void forEachShard(String[] keys, ShardAction action) {
+        int[] shardStart = new int[shards.length + 1];
+        for (String key : keys) {
+            shardStart[shardOf(key) + 1]++;
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            shardStart[shard + 1] += shardStart[shard];
+        }
+        int[] ordered = new int[keys.length];
+        int[] next = Arrays.copyOf(shardStart, shards.length);
+        for (int i = 0; i < keys.length; i++) {
+            ordered[next[shardOf(keys[i])]++] = i;
+        }
+        for (int index = 0; index < shards.length; index++) {
+            if (shardStart[index] == shardStart[index + 1]) {
+                continue;
+            }
+            Shard shard = shards[index];
+            shard.lock.lock();
+            try {
+                for (int j = shardStart[index]; j < shardStart[index + 1]; j++) {
+                    action.apply(shard, ordered[j]);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardAction {
+        void apply(Shard shard, int position);
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ConcurrentHashMap<String, UserEntity> usersByEmail = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<BirthDateKey, UserEntity> usersByBirthDate = new ConcurrentSkipListMap<>();
+
+        Shard(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * The union of the per-shard ranges in birth-date and email order. Like the ranges it is built from, it is a
+     * weakly consistent view.
+     */
+    private final class MergedRange extends AbstractCollection<UserEntity> {
+        private final List<ConcurrentNavigableMap<BirthDateKey, UserEntity>> ranges;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        MergedRange(List<ConcurrentNavigableMap<BirthDateKey, UserEntity>> ranges, LocalDate from, LocalDate to) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<UserEntity> iterator() {
+            List<Iterator<Map.Entry<BirthDateKey, UserEntity>>> iterators = new ArrayList<>(ranges.size());
+            for (ConcurrentNavigableMap<BirthDateKey, UserEntity> range : ranges) {
+                iterators.add(range.entrySet().iterator());
+            }
+            return new MergingIterator(iterators);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (ConcurrentNavigableMap<BirthDateKey, UserEntity> range : ranges) {
+                size += range.size();
+            }
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            if (estimatedSize() < PARALLEL_COPY_THRESHOLD) {
+                return super.toArray();
+            }
+            List<RecursiveTask<List<Map.Entry<BirthDateKey, UserEntity>>>> copies = new ArrayList<>(ranges.size());
+            for (ConcurrentNavigableMap<BirthDateKey, UserEntity> range : ranges) {
+                copies.add(new RecursiveTask<>() {
+                    @Override
+                    protected List<Map.Entry<BirthDateKey, UserEntity>> compute() {
+                        return new ArrayList<>(range.entrySet());
+                    }
+                });
+            }
+            List<Iterator<Map.Entry<BirthDateKey, UserEntity>>> iterators = new ArrayList<>(copies.size());
+            for (RecursiveTask<List<Map.Entry<BirthDateKey, UserEntity>>> copy : ForkJoinTask.invokeAll(copies)) {
+                iterators.add(copy.join().iterator());
+            }
+            List<UserEntity> merged = new ArrayList<>();
+            new MergingIterator(iterators).forEachRemaining(merged::add);
+            return merged.toArray();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] array) {
+            Object[] users = toArray();
+            if (array.length < users.length) {
+                return (T[]) Arrays.copyOf(users, users.length, array.getClass());
+            }
+            System.arraycopy(users, 0, array, 0, users.length);
+            if (array.length > users.length) {
+                array[users.length] = null;
+            }
+            return array;
+        }
+
+        /**
+         * Scales the store size by the share of the indexed birth-date span that the range covers, reading only
+         * the first and last key of every shard.
+         */
+        private long estimatedSize() {
+            LocalDate first = null;
+            LocalDate last = null;
+            for (Shard shard : shards) {
+                Map.Entry<BirthDateKey, UserEntity> lowest = shard.usersByBirthDate.firstEntry();
+                Map.Entry<BirthDateKey, UserEntity> highest = shard.usersByBirthDate.lastEntry();
+                if (lowest == null || highest == null) {
+                    continue;
+                }
+                if (first == null || lowest.getKey().birthDate().isBefore(first)) {
+                    first = lowest.getKey().birthDate();
+                }
+                if (last == null || highest.getKey().birthDate().isAfter(last)) {
+                    last = highest.getKey().birthDate();
+                }
+            }
+            if (first == null) {
+                return 0;
+            }
+            long indexedDays = ChronoUnit.DAYS.between(first, last) + 1;
+            long rangeDays = Math.min(ChronoUnit.DAYS.between(from, to) + 1, indexedDays);
+            return (long) ShardedUserStore.this.size() * rangeDays / indexedDays;
+        }
+    }
+
+    /**
+     * K-way merge of iterators that are each sorted by {@link BirthDateKey}.
+     */
+    private static final class MergingIterator implements Iterator<UserEntity> {
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(List<Iterator<Map.Entry<BirthDateKey, UserEntity>>> iterators) {
+            heads = new PriorityQueue<>(Math.max(1, iterators.size()));
+            for (Iterator<Map.Entry<BirthDateKey, UserEntity>> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator, iterator.next()));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public UserEntity next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            UserEntity user = head.entry.getValue();
+            if (head.iterator.hasNext()) {
+                head.entry = head.iterator.next();
+                heads.add(head);
+            }
+            return user;
+        }
+
+        private static final class Head implements Comparable<Head> {
+            private final Iterator<Map.Entry<BirthDateKey, UserEntity>> iterator;
+            private Map.Entry<BirthDateKey, UserEntity> entry;
+
+            Head(Iterator<Map.Entry<BirthDateKey, UserEntity>> iterator, Map.Entry<BirthDateKey, UserEntity> entry) {
+                this.iterator = iterator;
+                this.entry = entry;
+            }
+
+            @Override
+            public int compareTo(Head other) {
+                return entry.getKey().compareTo(other.entry.getKey());
+            }
+        }
+    }
+}
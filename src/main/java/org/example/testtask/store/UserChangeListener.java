@@ -0,0 +1,25 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+/**
+ * Receives every mutation applied to a {@link UserStore}. Callbacks run while the store still holds
+ * the lock of the affected email, so mutations of one user are observed in the order they were applied;
+ * implementations must be fast and must not call back into the store.
+ */
+public interface UserChangeListener {
+    /**
+     * @param previous the user that was replaced or removed, {@code null} for an insert
+     * @param current  the user now stored, {@code null} for a delete
+     */
+    void onChange(UserEntity previous, UserEntity current);
+
+    /**
+     * Called under the same lock once the mutation has passed every check but before it is applied. An exception
+     * aborts the mutation, so neither the store nor any listener observes it; this is where a write-ahead log
+     * belongs. Once every listener has returned, the store applies the mutation and calls {@link #onChange} on
+     * the same thread.
+     */
+    default void beforeChange(UserEntity previous, UserEntity current) {
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory user storage keyed by normalized email with a secondary index ordered by birth date and then by
+ * normalized email. Implementations are thread-safe and notify {@link UserChangeListener}s of every mutation.
+ * <p>
+ * Every stored user carries a version. Inserts keep the version of a user that already has one and otherwise
+ * assign 1, or the overwritten user's version plus one; replacements always store the current version plus one.
+ */
+public interface UserStore {
+    static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static BirthDateKey birthDateKey(UserEntity user) {
+        return new BirthDateKey(user.getBirthDate(), normalizeEmail(user.getEmail()));
+    }
+
+    void addListener(UserChangeListener listener);
+
+    void removeListener(UserChangeListener listener);
+
+    Optional<UserEntity> findByEmail(String email);
+
+    /**
+     * @throws DuplicateEmailException if a user with the same normalized email is already stored
+     */
+    void insert(UserEntity user);
+
+    /**
+     * Inserts or, when {@code upsert} is set, overwrites every user in the batch. Returns, per input position,
+     * whether the user was inserted, replaced an existing user or, without {@code upsert}, was skipped because
+     * its email is already taken.
+     */
+    InsertOutcome[] insertAll(List<UserEntity> users, boolean upsert);
+
+    /**
+     * Atomically replaces the user stored under {@code email} with the result of {@code update}, which may be
+     * invoked more than once and must be free of side effects.
+     *
+     * @throws DuplicateEmailException if the updated email belongs to another user
+     */
+    default Optional<UserEntity> replace(String email, UnaryOperator<UserEntity> update) {
+        return replace(email, null, update);
+    }
+
+    /**
+     * Same as {@link #replace(String, UnaryOperator)}, but when {@code expectedVersion} is not {@code null} the
+     * replacement only happens if the stored user is still at that version, checked in the same critical section
+     * that swaps it.
+     *
+     * @throws VersionConflictException if the stored user is at a different version
+     */
+    Optional<UserEntity> replace(String email, Long expectedVersion, UnaryOperator<UserEntity> update);
+
+    default Optional<UserEntity> remove(String email) {
+        return remove(email, null);
+    }
+
+    /**
+     * @throws VersionConflictException if {@code expectedVersion} is not {@code null} and the stored user is at
+     *                                  a different version
+     */
+    Optional<UserEntity> remove(String email, Long expectedVersion);
+
+    boolean[] removeAll(List<String> emails);
+
+    /**
+     * Returns a weakly consistent view of the users born within the given range, ordered by birth date and
+     * then by email.
+     */
+    default Collection<UserEntity> findByBirthDateRange(LocalDate from, boolean fromInclusive,
+                                                        LocalDate to, boolean toInclusive) {
+        return findByBirthDateRange(from, fromInclusive, to, toInclusive, null);
+    }
+
+    /**
+     * Same as {@link #findByBirthDateRange(LocalDate, boolean, LocalDate, boolean)}, but starts strictly after
+     * {@code after} when it is not {@code null}, which makes it usable as a keyset cursor.
+     */
+    Collection<UserEntity> findByBirthDateRange(LocalDate from, boolean fromInclusive,
+                                                LocalDate to, boolean toInclusive, BirthDateKey after);
+
+    Collection<UserEntity> values();
+
+    int size();
+
+    int birthDateIndexSize();
+}
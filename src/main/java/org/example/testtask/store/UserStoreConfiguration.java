@@ -0,0 +1,29 @@
+package org.example.testtask.store;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "user.store.type", havingValue = "memory", matchIfMissing = true)
+public class UserStoreConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "user.store.memory.layout", havingValue = "compact")
+    public UserStore compactUserStore() {
+        return new CompactUserStore();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.store.memory.layout", havingValue = "sharded")
+    public UserStore shardedUserStore(@Value("${user.store.memory.shards:16}") int shards) {
+        return new ShardedUserStore(shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.store.memory.layout", havingValue = "objects", matchIfMissing = true)
+    public UserStore inMemoryUserStore() {
+        return new InMemoryUserStore();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.testtask.store;
+
+import org.example.testtask.entity.UserEntity;
+
+final class UserVersions {
+    static final long FIRST = 1;
+
+    private UserVersions() {
+    }
+
+    /**
+     * Gives an inserted user the version following the one it overwrites, unless it already carries a version,
+     * as users restored from a snapshot or the write-ahead log do.
+     */
+    static void assign(UserEntity user, UserEntity previous) {
+        if (user.getVersion() <= 0) {
+            user.setVersion(previous == null ? FIRST : previous.getVersion() + 1);
+        }
+    }
+
+    /**
+     * Returns the user to store in place of {@code current}, copied if the update handed back the stored instance.
+     */
+    static UserEntity next(UserEntity current, UserEntity updated) {
+        if (updated == current) {
+            updated = current.toBuilder().build();
+        }
+        updated.setVersion(current.getVersion() + 1);
+        return updated;
+    }
+
+    static void check(String email, Long expectedVersion, long actualVersion) {
+        if (expectedVersion != null && expectedVersion != actualVersion) {
+            throw new VersionConflictException(email, expectedVersion, actualVersion);
+        }
+    }
+}
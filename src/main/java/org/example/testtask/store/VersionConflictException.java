@@ -0,0 +1,7 @@
+package org.example.testtask.store;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String email, long expectedVersion, long actualVersion) {
+        super("user " + email + " is at version " + actualVersion + ", expected " + expectedVersion);
+    }
+}
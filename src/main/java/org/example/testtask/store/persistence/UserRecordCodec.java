@@ -0,0 +1,88 @@
+package org.example.testtask.store.persistence;
+
+import org.example.testtask.entity.UserEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Binary form of users shared by the write-ahead log, snapshots and binary exports.
+ */
+public final class UserRecordCodec {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte VERSIONED_PUT = 3;
+
+    private UserRecordCodec() {
+    }
+
+    static byte[] encodePut(String removedKey, UserEntity user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSIONED_PUT);
+            writeString(out, removedKey);
+            writeUser(out, user);
+            out.writeLong(user.getVersion());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static byte[] encodeDelete(String key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE);
+            writeString(out, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void writeUser(DataOutput out, UserEntity user) throws IOException {
+        writeString(out, user.getEmail());
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        out.writeLong(user.getBirthDate().toEpochDay());
+        writeString(out, user.getAddress());
+        writeString(out, user.getPhoneNumber());
+    }
+
+    public static UserEntity readUser(DataInput in) throws IOException {
+        return UserEntity.builder()
+                .email(readString(in))
+                .firstName(readString(in))
+                .lastName(readString(in))
+                .birthDate(LocalDate.ofEpochDay(in.readLong()))
+                .address(readString(in))
+                .phoneNumber(readString(in))
+                .build();
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
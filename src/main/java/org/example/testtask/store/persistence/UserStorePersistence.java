@@ -0,0 +1,284 @@
+package org.example.testtask.store.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Makes the in-memory {@link UserStore} durable: every mutation is appended to a {@link WriteAheadLog}, and the
+ * whole store is periodically written to a compact binary snapshot, after which older log segments are dropped.
+ * On startup the latest snapshot is loaded and the log tail replayed before the application serves requests.
+ * <p>
+ * A mutation is logged before the store applies it, so one that cannot be logged fails without becoming visible.
+ * Writes are acknowledged once logged, not once flushed: the log is flushed every {@code fsync-interval-ms}, and
+ * an OS crash or power loss can lose the writes acknowledged within that window. A JVM crash loses nothing.
+ * <p>
+ * Snapshots are taken without stopping writers. The log is rolled first, once every mutation already logged has
+ * been applied to the store, so the snapshot contains everything before the roll point and replaying the log from
+ * it re-applies every mutation that may have raced with the snapshot; replaying a put or delete is idempotent.
+ */
+@Component
+@ConditionalOnProperty(name = "user.store.persistence.enabled", havingValue = "true")
+public class UserStorePersistence implements UserChangeListener {
+    private static final Logger log = LoggerFactory.getLogger(UserStorePersistence.class);
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_MAGIC = 0x55534E50;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int UNVERSIONED_SNAPSHOT_VERSION = 1;
+    private static final int RECOVERY_BATCH_SIZE = 10_000;
+
+    private final UserStore userStore;
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncIntervalMs;
+    private final long snapshotIntervalMs;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    /**
+     * Held for reading by a mutation from its append until the store has applied it, and for writing while the
+     * log is rolled for a snapshot, so no mutation below the roll point can still be missing from the store.
+     */
+    private final ReentrantReadWriteLock applyGate = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3, runnable -> {
+        Thread thread = new Thread(runnable, "user-store-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private WriteAheadLog writeAheadLog;
+
+    public UserStorePersistence(UserStore userStore,
+                                @Value("${user.store.persistence.directory:data}") Path directory,
+                                @Value("${user.store.persistence.segment-size:67108864}") int segmentSize,
+                                @Value("${user.store.persistence.fsync-interval-ms:10}") long fsyncIntervalMs,
+                                @Value("${user.store.persistence.snapshot-interval-ms:300000}") long snapshotIntervalMs) {
+        this.userStore = userStore;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        long startedAt = System.nanoTime();
+        long nextLsn = recover();
+        log.info("Recovered {} users from {} in {} ms", userStore.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+
+        writeAheadLog = new WriteAheadLog(directory, segmentSize, nextLsn, scheduler);
+        userStore.addListener(this);
+        scheduler.scheduleWithFixedDelay(this::scheduledForce, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        userStore.removeListener(this);
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        writeAheadLog.close();
+    }
+
+    @Override
+    public void beforeChange(UserEntity previous, UserEntity current) {
+        applyGate.readLock().lock();
+        try {
+            writeAheadLog.append(encode(previous, current));
+        } catch (RuntimeException e) {
+            applyGate.readLock().unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void onChange(UserEntity previous, UserEntity current) {
+        applyGate.readLock().unlock();
+    }
+
+    private static byte[] encode(UserEntity previous, UserEntity current) {
+        if (current == null) {
+            return UserRecordCodec.encodeDelete(UserStore.normalizeEmail(previous.getEmail()));
+        }
+        String removedKey = null;
+        if (previous != null) {
+            String previousKey = UserStore.normalizeEmail(previous.getEmail());
+            if (!previousKey.equals(UserStore.normalizeEmail(current.getEmail()))) {
+                removedKey = previousKey;
+            }
+        }
+        return UserRecordCodec.encodePut(removedKey, current);
+    }
+
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        long startLsn;
+        applyGate.writeLock().lock();
+        try {
+            startLsn = writeAheadLog.roll();
+        } finally {
+            applyGate.writeLock().unlock();
+        }
+        writeAheadLog.force();
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(startLsn);
+            for (UserEntity user : userStore.values()) {
+                out.writeBoolean(true);
+                UserRecordCodec.writeUser(out, user);
+                out.writeLong(user.getVersion());
+                count++;
+            }
+            out.writeBoolean(false);
+            out.writeLong(count);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotPath(startLsn), StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path snapshot : snapshots()) {
+            if (snapshotLsn(snapshot) < startLsn) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        writeAheadLog.deleteSegmentsBefore(startLsn);
+        log.info("Wrote snapshot of {} users at LSN {}", count, startLsn);
+    }
+
+    private void scheduledForce() {
+        try {
+            writeAheadLog.force();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush the user store write-ahead log", e);
+        }
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write user store snapshot", e);
+        }
+    }
+
+    private long recover() throws IOException {
+        long snapshotLsn = 0;
+        Optional<Path> snapshot = snapshots().stream().reduce((first, second) -> second);
+        if (snapshot.isPresent()) {
+            snapshotLsn = loadSnapshot(snapshot.get());
+        }
+        return WriteAheadLog.replay(directory, snapshotLsn, this::applyRecord);
+    }
+
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16))) {
+            int version = in.readInt() == SNAPSHOT_MAGIC ? in.readInt() : -1;
+            if (version != SNAPSHOT_VERSION && version != UNVERSIONED_SNAPSHOT_VERSION) {
+                throw new IOException("unsupported snapshot format: " + snapshot);
+            }
+            long startLsn = in.readLong();
+            List<UserEntity> batch = new ArrayList<>(RECOVERY_BATCH_SIZE);
+            while (in.readBoolean()) {
+                UserEntity user = UserRecordCodec.readUser(in);
+                if (version == SNAPSHOT_VERSION) {
+                    user.setVersion(in.readLong());
+                }
+                batch.add(user);
+                if (batch.size() == RECOVERY_BATCH_SIZE) {
+                    userStore.insertAll(batch, true);
+                    batch.clear();
+                }
+            }
+            userStore.insertAll(batch, true);
+            return startLsn;
+        }
+    }
+
+    private void applyRecord(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte type = in.readByte();
+            String key = UserRecordCodec.readString(in);
+            if (key != null) {
+                userStore.remove(key);
+            }
+            if (type == UserRecordCodec.PUT || type == UserRecordCodec.VERSIONED_PUT) {
+                UserEntity user = UserRecordCodec.readUser(in);
+                if (type == UserRecordCodec.VERSIONED_PUT) {
+                    user.setVersion(in.readLong());
+                }
+                userStore.insertAll(List.of(user), true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted((left, right) -> Long.compare(snapshotLsn(left), snapshotLsn(right)))
+                    .toList();
+        }
+    }
+
+    private Path snapshotPath(long lsn) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(lsn) + SNAPSHOT_SUFFIX);
+    }
+
+    private static long snapshotLsn(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
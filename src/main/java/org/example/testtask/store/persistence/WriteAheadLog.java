@@ -0,0 +1,270 @@
+package org.example.testtask.store.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of store mutations split into fixed-size, memory-mapped segments named after the sequence
+ * number (LSN) of their first record. Each record is {@code [length][crc32][lsn][payload]}; a zero length,
+ * a short tail or a checksum mismatch marks the end of the valid data in a segment.
+ * <p>
+ * Appends only copy into the mapped buffer, which survives a JVM crash but not an OS crash or power loss until
+ * {@link #force()} has flushed it. Nothing on the append path waits for the disk: the next segment is created
+ * and mapped ahead of time on {@code executor}, so a roll only renames it, and the segment it replaces is
+ * flushed by the next {@link #force()}.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SPARE_SEGMENT = SEGMENT_PREFIX + "spare.tmp";
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Executor executor;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final List<Segment> retired = new ArrayList<>();
+
+    private Segment segment;
+    private CompletableFuture<Segment> spare;
+    private long nextLsn;
+    private long forcedLsn;
+
+    /**
+     * Opens the log for appending at {@code nextLsn}, the LSN {@link #replay} stopped at. Segments that start
+     * after it hold records past a gap left by a crash, which can never be replayed, and are deleted.
+     */
+    WriteAheadLog(Path directory, int segmentSize, long nextLsn, Executor executor) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.executor = executor;
+        this.nextLsn = nextLsn;
+        this.forcedLsn = nextLsn;
+        for (Path path : segments(directory)) {
+            if (firstLsn(path) > nextLsn) {
+                Files.delete(path);
+            }
+        }
+        segment = openSegment(segmentPath(nextLsn));
+        spare = prepareSpare();
+    }
+
+    long append(byte[] payload) {
+        int recordSize = HEADER_BYTES + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("record of " + recordSize + " bytes exceeds the segment size of " + segmentSize);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        appendLock.lock();
+        try {
+            MappedByteBuffer buffer = segment.buffer();
+            if (buffer.remaining() < recordSize) {
+                rollLocked();
+                buffer = segment.buffer();
+            }
+            long lsn = nextLsn++;
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.putLong(lsn);
+            buffer.put(payload);
+            return lsn;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes every record appended before the call, including those in segments retired since the last flush.
+     * Appenders are not blocked while the fsync runs.
+     */
+    void force() {
+        forceLock.lock();
+        try {
+            Segment current;
+            List<Segment> flushed;
+            long appendedLsn;
+            appendLock.lock();
+            try {
+                current = segment;
+                appendedLsn = nextLsn;
+                flushed = new ArrayList<>(retired);
+                retired.clear();
+            } finally {
+                appendLock.unlock();
+            }
+            for (Segment old : flushed) {
+                old.buffer().force();
+                old.channel().close();
+            }
+            if (appendedLsn != forcedLsn) {
+                current.buffer().force();
+                forcedLsn = appendedLsn;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment and returns the LSN its first record will get. Every record with a lower LSN
+     * lives in an older segment, which the next {@link #force()} flushes.
+     */
+    long roll() throws IOException {
+        appendLock.lock();
+        try {
+            rollLocked();
+            return nextLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void deleteSegmentsBefore(long lsn) throws IOException {
+        for (Path path : segments(directory)) {
+            if (firstLsn(path) < lsn) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        appendLock.lock();
+        try {
+            segment.buffer().force();
+            segment.channel().close();
+            Segment unused = spare.exceptionally(e -> null).join();
+            if (unused != null) {
+                unused.channel().close();
+                Files.deleteIfExists(unused.path());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Feeds the payload of every valid record with an LSN of at least {@code fromLsn} to {@code consumer},
+     * in LSN order, and returns the LSN that follows the last record found. Segments are flushed independently,
+     * so an OS crash can lose the tail of one segment but keep records of the next; replay stops at the first
+     * missing LSN rather than apply records past the gap.
+     */
+    static long replay(Path directory, long fromLsn, Consumer<ByteBuffer> consumer) throws IOException {
+        long nextLsn = fromLsn;
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstLsn(segments.get(i + 1)) <= fromLsn) {
+                continue;
+            }
+            try (FileChannel segmentChannel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                ByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+                while (buffer.remaining() >= HEADER_BYTES) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    long lsn = buffer.getLong();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer payload = buffer.slice(buffer.position(), length);
+                    buffer.position(buffer.position() + length);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    if (lsn >= fromLsn) {
+                        if (lsn != nextLsn) {
+                            return nextLsn;
+                        }
+                        consumer.accept(payload);
+                        nextLsn++;
+                    }
+                }
+            }
+        }
+        return nextLsn;
+    }
+
+    /**
+     * Swaps in the spare segment, waiting for it only if it is still being prepared, and leaves the full one
+     * to be flushed by the next {@link #force()}.
+     */
+    private void rollLocked() throws IOException {
+        Segment next;
+        try {
+            next = spare.join();
+        } catch (CompletionException e) {
+            next = openSegment(directory.resolve(SPARE_SEGMENT));
+        }
+        Path path = segmentPath(nextLsn);
+        Files.move(next.path(), path, StandardCopyOption.ATOMIC_MOVE);
+        retired.add(segment);
+        segment = new Segment(path, next.channel(), next.buffer());
+        spare = prepareSpare();
+    }
+
+    private CompletableFuture<Segment> prepareSpare() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return openSegment(directory.resolve(SPARE_SEGMENT));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    private Segment openSegment(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(firstLsn) + SEGMENT_SUFFIX);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .toList());
+            segments.sort((left, right) -> Long.compare(firstLsn(left), firstLsn(right)));
+            return segments;
+        }
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+    }
+}
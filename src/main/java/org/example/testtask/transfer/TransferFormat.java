@@ -0,0 +1,43 @@
+package org.example.testtask.transfer;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * File formats of bulk exports and imports. NDJSON holds one user object per line and CSV one user per record
+ * under a header row; neither carries versions. BINARY is the store's own record encoding with versions, so an
+ * import restores entity tags as well.
+ */
+public enum TransferFormat {
+    NDJSON("ndjson"),
+    CSV("csv"),
+    BINARY("bin");
+
+    static final String GZIP_EXTENSION = ".gz";
+
+    private final String extension;
+
+    TransferFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String fileName(String baseName, boolean gzip) {
+        return baseName + "." + extension + (gzip ? GZIP_EXTENSION : "");
+    }
+
+    /**
+     * Tells the format from a file name such as {@code users.csv.gz}.
+     */
+    public static Optional<TransferFormat> ofFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(GZIP_EXTENSION)) {
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+        }
+        for (TransferFormat format : values()) {
+            if (name.endsWith("." + format.extension)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,5 @@
+package org.example.testtask.transfer;
+
+public enum TransferJobState {
+    QUEUED, RUNNING, COMPLETED, FAILED
+}
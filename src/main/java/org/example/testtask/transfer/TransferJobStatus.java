@@ -0,0 +1,17 @@
+package org.example.testtask.transfer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Progress of an export or import. {@code snapshotSequence} is the change log sequence an export is consistent
+ * with; {@code totalUsers} is known for exports and {@code totalBytes} for imports. {@code rejectedUsers} counts
+ * imported users that failed validation or already existed, {@code updatedUsers} those an upsert replaced.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TransferJobStatus(String id, TransferJobType type, TransferFormat format, boolean gzip, String file,
+                                TransferJobState state, Long snapshotSequence, long processedUsers, Long totalUsers,
+                                long rejectedUsers, long updatedUsers, long processedBytes, Long totalBytes,
+                                Instant createdAt, Instant startedAt, Instant finishedAt, String error) {
+}
@@ -0,0 +1,239 @@
+package org.example.testtask.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.persistence.UserRecordCodec;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the users a {@link UserFileWriter} wrote. Content that cannot be parsed fails with an
+ * {@link IOException} naming the user it stopped at; checking the users themselves is left to the caller.
+ */
+abstract class UserFileReader {
+
+    static UserFileReader open(TransferFormat format, InputStream in, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonReader(in, objectMapper);
+            case CSV -> new CsvReader(in);
+            case BINARY -> new BinaryReader(in);
+        };
+    }
+
+    /**
+     * Returns the next user, or {@code null} after the last.
+     */
+    abstract UserEntity read() throws IOException;
+
+    private static final class NdjsonReader extends UserFileReader {
+        private final MappingIterator<UserEntity> users;
+        private long line;
+
+        NdjsonReader(InputStream in, ObjectMapper objectMapper) throws IOException {
+            this.users = objectMapper.readerFor(UserEntity.class).readValues(in);
+        }
+
+        @Override
+        UserEntity read() throws IOException {
+            try {
+                if (!users.hasNextValue()) {
+                    return null;
+                }
+                line++;
+                return users.nextValue();
+            } catch (JsonProcessingException e) {
+                throw new IOException("user " + (line + 1) + " is not valid JSON: " + e.getOriginalMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 records with a header row naming the columns, in any order. An empty unquoted field reads as
+     * {@code null}.
+     */
+    private static final class CsvReader extends UserFileReader {
+        private static final List<String> REQUIRED_COLUMNS = List.of("email", "firstName", "lastName", "birthDate");
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private final Map<String, Integer> columns = new HashMap<>();
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int position;
+        private int limit;
+        private long record;
+
+        CsvReader(InputStream in) throws IOException {
+            this.in = new InputStreamReader(in, StandardCharsets.UTF_8);
+            if (!readRecord()) {
+                throw new IOException("the file has no header row");
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                columns.put(fields.get(i), i);
+            }
+            for (String column : REQUIRED_COLUMNS) {
+                if (!columns.containsKey(column)) {
+                    throw new IOException("the header row has no " + column + " column");
+                }
+            }
+        }
+
+        @Override
+        UserEntity read() throws IOException {
+            if (!readRecord()) {
+                return null;
+            }
+            record++;
+            String birthDate = column("birthDate");
+            try {
+                return UserEntity.builder()
+                        .email(column("email"))
+                        .firstName(column("firstName"))
+                        .lastName(column("lastName"))
+                        .birthDate(birthDate == null ? null : LocalDate.parse(birthDate))
+                        .address(column("address"))
+                        .phoneNumber(column("phoneNumber"))
+                        .build();
+            } catch (DateTimeParseException e) {
+                throw new IOException("user " + record + " has an invalid birth date: " + birthDate, e);
+            }
+        }
+
+        private String column(String name) {
+            Integer index = columns.get(name);
+            return index == null || index >= fields.size() ? null : fields.get(index);
+        }
+
+        /**
+         * Reads the next record into {@link #fields}, skipping blank lines; {@code false} at the end of input.
+         */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean inQuotes = false;
+            while (true) {
+                int c = next();
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new IOException("user " + (record + 1) + " ends inside a quoted field");
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            next();
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                    continue;
+                }
+                if (c == '"' && field.isEmpty() && !quoted) {
+                    quoted = true;
+                    inQuotes = true;
+                } else if (c == ',') {
+                    endField(quoted);
+                    quoted = false;
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r' && peek() == '\n') {
+                        next();
+                    }
+                    if (fields.isEmpty() && field.isEmpty() && !quoted) {
+                        if (c == -1) {
+                            return false;
+                        }
+                        continue;
+                    }
+                    endField(quoted);
+                    return true;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private void endField(boolean quoted) {
+            fields.add(field.isEmpty() && !quoted ? null : field.toString());
+            field.setLength(0);
+        }
+
+        private int next() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                position++;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position];
+        }
+    }
+
+    private static final class BinaryReader extends UserFileReader {
+        private final DataInputStream in;
+        private long count;
+
+        BinaryReader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != UserFileWriter.BINARY_MAGIC) {
+                throw new IOException("not a binary user export");
+            }
+            int version = this.in.readInt();
+            if (version != UserFileWriter.BINARY_VERSION) {
+                throw new IOException("unsupported binary export version " + version);
+            }
+        }
+
+        @Override
+        UserEntity read() throws IOException {
+            try {
+                return readRecord();
+            } catch (EOFException e) {
+                throw new IOException("the file ends inside user " + (count + 1), e);
+            }
+        }
+
+        private UserEntity readRecord() throws IOException {
+            byte type = in.readByte();
+            if (type == UserFileWriter.BINARY_END) {
+                long expected = in.readLong();
+                if (expected != count) {
+                    throw new IOException("the file ends after " + count + " of " + expected + " users");
+                }
+                return null;
+            }
+            if (type != UserFileWriter.BINARY_USER) {
+                throw new IOException("user " + (count + 1) + " has an unknown record type " + type);
+            }
+            UserEntity user = UserRecordCodec.readUser(in);
+            user.setVersion(in.readLong());
+            count++;
+            return user;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.testtask.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.persistence.UserRecordCodec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes users in one {@link TransferFormat} to a buffered stream. Nothing is flushed per user; {@link #finish()}
+ * writes whatever the format puts after the last user and flushes once. Closing the stream is left to the caller.
+ */
+abstract class UserFileWriter {
+    static final int BINARY_MAGIC = 0x55535258;
+    static final int BINARY_VERSION = 1;
+    static final byte BINARY_USER = 1;
+    static final byte BINARY_END = 0;
+    static final String[] CSV_COLUMNS = {"email", "firstName", "lastName", "birthDate", "address", "phoneNumber"};
+
+    static UserFileWriter open(TransferFormat format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(out, objectMapper);
+            case CSV -> new CsvWriter(out);
+            case BINARY -> new BinaryWriter(out);
+        };
+    }
+
+    abstract void write(UserEntity user) throws IOException;
+
+    abstract void finish() throws IOException;
+
+    private static final class NdjsonWriter extends UserFileWriter {
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .setRootValueSeparator(null);
+            this.writer = objectMapper.writerFor(UserEntity.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        void write(UserEntity user) throws IOException {
+            writer.writeValue(generator, user);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvWriter extends UserFileWriter {
+        private final Writer out;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.out = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.out.write(String.join(",", CSV_COLUMNS));
+            this.out.write('\n');
+        }
+
+        @Override
+        void write(UserEntity user) throws IOException {
+            field(user.getEmail());
+            out.write(',');
+            field(user.getFirstName());
+            out.write(',');
+            field(user.getLastName());
+            out.write(',');
+            field(user.getBirthDate() == null ? null : user.getBirthDate().toString());
+            out.write(',');
+            field(user.getAddress());
+            out.write(',');
+            field(user.getPhoneNumber());
+            out.write('\n');
+        }
+
+        /**
+         * Quotes a field only when it needs it. An empty string is quoted so that it reads back apart from
+         * {@code null}, which is written as nothing.
+         */
+        private void field(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!value.isEmpty() && value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        void finish() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * A header, the store's record encoding of each user followed by its version, and an end marker with the
+     * user count, so that a truncated file is told apart from a complete one.
+     */
+    private static final class BinaryWriter extends UserFileWriter {
+        private final DataOutputStream out;
+        private long count;
+
+        BinaryWriter(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(BINARY_MAGIC);
+            this.out.writeInt(BINARY_VERSION);
+        }
+
+        @Override
+        void write(UserEntity user) throws IOException {
+            out.writeByte(BINARY_USER);
+            UserRecordCodec.writeUser(out, user);
+            out.writeLong(user.getVersion());
+            count++;
+        }
+
+        @Override
+        void finish() throws IOException {
+            out.writeByte(BINARY_END);
+            out.writeLong(count);
+            out.flush();
+        }
+    }
+}
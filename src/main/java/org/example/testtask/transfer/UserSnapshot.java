@@ -0,0 +1,123 @@
+package org.example.testtask.transfer;
+
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeEvent;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.UserStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Every user of the store as of one change log sequence, taken without stopping writers. The store's users are
+ * copied by reference, which costs a pointer per user and no I/O, while the change log sequence is noted before
+ * and after; replaying the events in between gives the final state of every user written during the copy, and
+ * users nobody wrote kept the state that was copied. Stored users are never modified in place, so holding the
+ * references keeps the snapshot intact while it is written out.
+ * <p>
+ * The one write the replay can miss is one whose store update the copy saw but whose log entry was not yet
+ * assigned a sequence when the copy ended; stores do both under the same lock, a few instructions apart.
+ */
+final class UserSnapshot implements Iterable<UserEntity> {
+    private static final int REPLAY_BATCH_SIZE = 4096;
+    private static final int ATTEMPTS = 3;
+
+    private final long sequence;
+    private final List<UserEntity> copied;
+    private final Map<String, UserEntity> replayed;
+    private final int size;
+
+    private UserSnapshot(long sequence, List<UserEntity> copied, Map<String, UserEntity> replayed) {
+        this.sequence = sequence;
+        this.copied = copied;
+        this.replayed = replayed;
+        int changedCopies = 0;
+        for (UserEntity user : copied) {
+            if (replayed.containsKey(UserStore.normalizeEmail(user.getEmail()))) {
+                changedCopies++;
+            }
+        }
+        int present = 0;
+        for (UserEntity user : replayed.values()) {
+            if (user != null) {
+                present++;
+            }
+        }
+        this.size = copied.size() - changedCopies + present;
+    }
+
+    /**
+     * Takes a snapshot, starting over when the change log overwrote events the replay still needed.
+     */
+    static UserSnapshot take(UserStore userStore, UserChangeLog changeLog) {
+        for (int attempt = 1; ; attempt++) {
+            long start = changeLog.lastSequence();
+            List<UserEntity> copied = new ArrayList<>(userStore.size() + REPLAY_BATCH_SIZE);
+            copied.addAll(userStore.values());
+            long end = changeLog.lastSequence();
+            Map<String, UserEntity> replayed = replay(changeLog, start, end);
+            if (replayed != null) {
+                return new UserSnapshot(end, copied, replayed);
+            }
+            if (attempt == ATTEMPTS) {
+                throw new IllegalStateException("the change log overwrote events written during the snapshot; "
+                        + "raise user.changes.capacity");
+            }
+        }
+    }
+
+    /**
+     * Final state of every email changed after {@code start} up to {@code end}, {@code null} for deleted users,
+     * or {@code null} when the log no longer holds those events.
+     */
+    private static Map<String, UserEntity> replay(UserChangeLog changeLog, long start, long end) {
+        Map<String, UserEntity> replayed = new HashMap<>();
+        long after = start;
+        while (after < end) {
+            UserChangeBatch batch = changeLog.readAfter(after, REPLAY_BATCH_SIZE);
+            if (batch.truncated()) {
+                return null;
+            }
+            if (batch.events().isEmpty()) {
+                // The next sequence is claimed but its event is not published yet.
+                Thread.yield();
+                continue;
+            }
+            for (UserChangeEvent event : batch.events()) {
+                if (event.sequence() > end) {
+                    return replayed;
+                }
+                if (event.previousEmail() != null) {
+                    replayed.put(UserStore.normalizeEmail(event.previousEmail()), null);
+                }
+                if (event.user() != null) {
+                    replayed.put(UserStore.normalizeEmail(event.email()),
+                            event.user().toBuilder().version(event.version()).build());
+                }
+            }
+            after = batch.lastSequence();
+        }
+        return replayed;
+    }
+
+    long sequence() {
+        return sequence;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<UserEntity> iterator() {
+        return Stream.concat(
+                copied.stream().filter(user -> !replayed.containsKey(UserStore.normalizeEmail(user.getEmail()))),
+                replayed.values().stream().filter(Objects::nonNull)).iterator();
+    }
+}
@@ -0,0 +1,394 @@
+package org.example.testtask.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.UserService;
+import org.example.testtask.store.UserStore;
+import org.example.testtask.validation.UserValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every user to a file and imports users from one, in the background. Jobs run one at a time on a
+ * single thread, so bulk I/O never competes with itself, and report their progress until they are among the
+ * last {@value #RETAINED_JOBS} jobs no longer.
+ * <p>
+ * An export writes a {@link UserSnapshot}, consistent as of one change log sequence, through a file channel in
+ * 64 KiB chunks, optionally gzip-compressed, to a temporary file that is moved into place once it is forced to
+ * disk; live traffic only pays for copying the store's references. An import reads a file of any format,
+ * compressed or not, validates each user as a batch request would and stores them through
+ * {@link UserService#createUsers}, a thousand at a time.
+ * <p>
+ * Files are named relative to {@code user.transfer.directory} and may not leave it. With
+ * {@code user.transfer.schedule.interval-ms} set, exports are also written on that interval, keeping the latest
+ * {@code user.transfer.schedule.keep}.
+ */
+@Component
+public class UserTransferJobs {
+    private static final Logger log = LoggerFactory.getLogger(UserTransferJobs.class);
+
+    static final int RETAINED_JOBS = 100;
+    private static final int BATCH_SIZE = 1000;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int PROGRESS_INTERVAL = 1024;
+    private static final String SCHEDULED_PREFIX = "scheduled-users-";
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS", Locale.ROOT).withZone(ZoneOffset.UTC);
+
+    private final Optional<UserStore> userStore;
+    private final UserChangeLog changeLog;
+    private final UserService userService;
+    private final UserValidator userValidator;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final TransferFormat scheduledFormat;
+    private final boolean scheduledGzip;
+    private final int scheduledKeep;
+    private final Map<String, TransferJob> jobs = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UserTransferJobs(Optional<UserStore> userStore, UserChangeLog changeLog, UserService userService,
+                            UserValidator userValidator, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            @Value("${user.transfer.directory:transfers}") Path directory,
+                            @Value("${user.transfer.schedule.interval-ms:0}") long scheduleIntervalMs,
+                            @Value("${user.transfer.schedule.format:BINARY}") TransferFormat scheduledFormat,
+                            @Value("${user.transfer.schedule.gzip:true}") boolean scheduledGzip,
+                            @Value("${user.transfer.schedule.keep:7}") int scheduledKeep) {
+        this.userStore = userStore;
+        this.changeLog = changeLog;
+        this.userService = userService;
+        this.userValidator = userValidator;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.scheduledFormat = scheduledFormat;
+        this.scheduledGzip = scheduledGzip;
+        this.scheduledKeep = scheduledKeep;
+        if (scheduleIntervalMs > 0) {
+            if (isExportEnabled()) {
+                executor.scheduleWithFixedDelay(this::scheduledExport, scheduleIntervalMs, scheduleIntervalMs,
+                        TimeUnit.MILLISECONDS);
+            } else {
+                log.warn("Scheduled user exports need the in-memory store and are disabled");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    public boolean isExportEnabled() {
+        return userStore.isPresent() && changeLog.isEnabled();
+    }
+
+    /**
+     * Queues an export to {@code fileName}, or to a timestamped name when it is {@code null}.
+     */
+    public TransferJobStatus export(TransferFormat format, boolean gzip, String fileName) {
+        if (!isExportEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_IMPLEMENTED, "exports require the in-memory store");
+        }
+        Path file = resolve(fileName != null ? fileName : format.fileName("users-" + FILE_TIMESTAMP.format(Instant.now()), gzip));
+        if (Files.exists(file)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "file already exists: " + directory.relativize(file));
+        }
+        TransferJob job = register(TransferJobType.EXPORT, format, gzip, file);
+        executor.execute(() -> run(job, () -> writeExport(job)));
+        return job.status();
+    }
+
+    /**
+     * Queues an import of {@code fileName}; the format is told from the file name when it is {@code null}, and
+     * compression from the content.
+     */
+    public TransferJobStatus importUsers(String fileName, TransferFormat format, boolean upsert) {
+        Path file = resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no such file: " + directory.relativize(file));
+        }
+        TransferFormat fileFormat = format != null ? format : TransferFormat.ofFileName(fileName).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "cannot tell the format of " + fileName));
+        TransferJob job = register(TransferJobType.IMPORT, fileFormat,
+                fileName.toLowerCase(Locale.ROOT).endsWith(TransferFormat.GZIP_EXTENSION), file);
+        executor.execute(() -> run(job, () -> readImport(job, upsert)));
+        return job.status();
+    }
+
+    public Optional<TransferJobStatus> job(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(TransferJob::status);
+        }
+    }
+
+    public List<TransferJobStatus> jobs() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(TransferJob::status).toList();
+        }
+    }
+
+    private Path resolve(String fileName) {
+        Path file = directory.resolve(fileName).normalize();
+        if (fileName.isBlank() || !directory.equals(file.getParent())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "file must be a plain file name inside the transfer directory");
+        }
+        return file;
+    }
+
+    private TransferJob register(TransferJobType type, TransferFormat format, boolean gzip, Path file) {
+        TransferJob job = new TransferJob(UUID.randomUUID().toString(), type, format, gzip,
+                directory.relativize(file).toString(), file);
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            if (jobs.size() > RETAINED_JOBS) {
+                jobs.values().stream()
+                        .filter(retained -> retained.state == TransferJobState.COMPLETED
+                                || retained.state == TransferJobState.FAILED)
+                        .findFirst()
+                        .ifPresent(oldest -> jobs.remove(oldest.id));
+            }
+        }
+        return job;
+    }
+
+    private void run(TransferJob job, JobBody body) {
+        job.startedAt = Instant.now();
+        job.state = TransferJobState.RUNNING;
+        try {
+            Files.createDirectories(directory);
+            body.run();
+            job.state = TransferJobState.COMPLETED;
+            log.info("{} of {} users {} {} completed", job.type, job.processedUsers,
+                    job.type == TransferJobType.IMPORT ? "from" : "to", job.file);
+        } catch (IOException | RuntimeException e) {
+            job.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            job.state = TransferJobState.FAILED;
+            log.error("{} of {} failed", job.type, job.file, e);
+        } finally {
+            job.finishedAt = Instant.now();
+            Counter.builder("users.transfer.jobs")
+                    .description("Finished bulk exports and imports")
+                    .tag("type", job.type.name().toLowerCase(Locale.ROOT))
+                    .tag("state", job.state.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private void writeExport(TransferJob job) throws IOException {
+        UserSnapshot snapshot = UserSnapshot.take(userStore.orElseThrow(), changeLog);
+        job.snapshotSequence = snapshot.sequence();
+        job.totalUsers = (long) snapshot.size();
+        Path temporary = job.path.resolveSibling(job.path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            BufferedOutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), CHUNK_SIZE);
+            GZIPOutputStream gzip = job.gzip ? new GZIPOutputStream(file, CHUNK_SIZE) : null;
+            // Writers emit a few bytes at a time, which the deflater should only see in chunks.
+            BufferedOutputStream out = gzip != null ? new BufferedOutputStream(gzip, CHUNK_SIZE) : file;
+            UserFileWriter writer = UserFileWriter.open(job.format, out, objectMapper);
+            for (UserEntity user : snapshot) {
+                writer.write(user);
+                if (++job.processedUsers % PROGRESS_INTERVAL == 0) {
+                    job.processedBytes = channel.position();
+                }
+            }
+            writer.finish();
+            if (gzip != null) {
+                out.flush();
+                gzip.finish();
+                file.flush();
+            }
+            channel.force(true);
+            job.processedBytes = channel.size();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, job.path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readImport(TransferJob job, boolean upsert) throws IOException {
+        try (FileChannel channel = FileChannel.open(job.path, StandardOpenOption.READ)) {
+            job.totalBytes = channel.size();
+            BufferedInputStream file = new BufferedInputStream(Channels.newInputStream(channel), CHUNK_SIZE);
+            job.gzip = isGzip(file);
+            InputStream in = job.gzip ? new BufferedInputStream(new GZIPInputStream(file, CHUNK_SIZE), CHUNK_SIZE) : file;
+            UserFileReader reader = UserFileReader.open(job.format, in, objectMapper);
+            List<UserEntity> batch = new ArrayList<>(BATCH_SIZE);
+            for (UserEntity user = next(job, reader, batch, upsert); user != null;
+                 user = next(job, reader, batch, upsert)) {
+                if (upsert) {
+                    // An older export must not move a live user's version backwards and revive issued ETags.
+                    user.setVersion(0);
+                }
+                if (userValidator.validateNewUser(user) != null) {
+                    job.rejectedUsers++;
+                } else {
+                    batch.add(user);
+                    if (batch.size() == BATCH_SIZE) {
+                        store(job, batch, upsert);
+                    }
+                }
+                if (++job.processedUsers % PROGRESS_INTERVAL == 0) {
+                    job.processedBytes = channel.position();
+                }
+            }
+            store(job, batch, upsert);
+            job.processedBytes = job.totalBytes;
+        }
+    }
+
+    /**
+     * Reads the next user, first storing the users already validated if the rest of the file cannot be read, so
+     * a failed import has stored exactly the users it counts as processed.
+     */
+    private UserEntity next(TransferJob job, UserFileReader reader, List<UserEntity> batch, boolean upsert)
+            throws IOException {
+        try {
+            return reader.read();
+        } catch (IOException | RuntimeException e) {
+            store(job, batch, upsert);
+            throw e;
+        }
+    }
+
+    private void store(TransferJob job, List<UserEntity> batch, boolean upsert) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (BatchItemResult result : userService.createUsers(batch, upsert)) {
+            if (result.getStatus() == HttpStatus.OK.value()) {
+                job.updatedUsers++;
+            } else if (result.getStatus() != HttpStatus.CREATED.value()) {
+                job.rejectedUsers++;
+            }
+        }
+        batch.clear();
+    }
+
+    private static boolean isGzip(BufferedInputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+
+    private void scheduledExport() {
+        try {
+            TransferJob job = register(TransferJobType.EXPORT, scheduledFormat, scheduledGzip, resolve(
+                    scheduledFormat.fileName(SCHEDULED_PREFIX + FILE_TIMESTAMP.format(Instant.now()), scheduledGzip)));
+            run(job, () -> writeExport(job));
+            if (job.state == TransferJobState.COMPLETED) {
+                deleteOldScheduledExports();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to schedule a user export", e);
+        }
+    }
+
+    private void deleteOldScheduledExports() throws IOException {
+        List<Path> exports = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SCHEDULED_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!file.getFileName().toString().endsWith(".tmp")) {
+                    exports.add(file);
+                }
+            }
+        }
+        exports.sort(Comparator.comparing(Path::getFileName));
+        for (int i = 0; i < exports.size() - scheduledKeep; i++) {
+            Files.deleteIfExists(exports.get(i));
+        }
+    }
+
+    private interface JobBody {
+        void run() throws IOException;
+    }
+
+    /**
+     * Progress is written by the transfer thread only and read by any.
+     */
+    private static final class TransferJob {
+        private final String id;
+        private final TransferJobType type;
+        private final TransferFormat format;
+        private final String file;
+        private final Path path;
+        private final Instant createdAt = Instant.now();
+        private volatile boolean gzip;
+        private volatile TransferJobState state = TransferJobState.QUEUED;
+        private volatile Long snapshotSequence;
+        private volatile long processedUsers;
+        private volatile Long totalUsers;
+        private volatile long rejectedUsers;
+        private volatile long updatedUsers;
+        private volatile long processedBytes;
+        private volatile Long totalBytes;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private TransferJob(String id, TransferJobType type, TransferFormat format, boolean gzip, String file,
+                            Path path) {
+            this.id = id;
+            this.type = type;
+            this.format = format;
+            this.gzip = gzip;
+            this.file = file;
+            this.path = path;
+        }
+
+        private TransferJobStatus status() {
+            return new TransferJobStatus(id, type, format, gzip, file, state, snapshotSequence, processedUsers,
+                    totalUsers, rejectedUsers, updatedUsers, processedBytes, totalBytes, createdAt, startedAt, finishedAt, error);
+        }
+    }
+}
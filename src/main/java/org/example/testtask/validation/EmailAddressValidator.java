@@ -0,0 +1,86 @@
+package org.example.testtask.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Single-pass, allocation-free replacement for {@code @Email(regexp = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\.[a-zA-Z]{2,}$")}.
+ * It accepts what that pattern accepted and Hibernate Validator's own email check let through: no leading,
+ * trailing or doubled dots in the local part, domain labels of at most 63 characters that neither start nor end
+ * with a hyphen, and a top-level domain of at least two letters.
+ */
+public class EmailAddressValidator implements ConstraintValidator<ValidEmail, CharSequence> {
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_DOMAIN_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence email) {
+        int length = email.length();
+        int at = -1;
+        for (int i = 0; i < length && at < 0; i++) {
+            if (email.charAt(i) == '@') {
+                at = i;
+            }
+        }
+        if (at <= 0 || at > MAX_LOCAL_PART_LENGTH || length - at - 1 > MAX_DOMAIN_LENGTH) {
+            return false;
+        }
+        return isValidLocalPart(email, at) && isValidDomain(email, at + 1, length);
+    }
+
+    private static boolean isValidLocalPart(CharSequence email, int end) {
+        char previous = '.';
+        for (int i = 0; i < end; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (previous == '.') {
+                    return false;
+                }
+            } else if (!isLetter(c) && !isDigit(c) && c != '_' && c != '%' && c != '+' && c != '-') {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != '.';
+    }
+
+    private static boolean isValidDomain(CharSequence email, int start, int end) {
+        int labelStart = start;
+        int labels = 0;
+        boolean lettersOnly = true;
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? email.charAt(i) : '.';
+            if (c == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                        || email.charAt(labelStart) == '-' || email.charAt(i - 1) == '-') {
+                    return false;
+                }
+                labels++;
+                if (i == end) {
+                    return labels > 1 && lettersOnly && labelLength > 1;
+                }
+                labelStart = i + 1;
+                lettersOnly = true;
+            } else if (isDigit(c) || c == '-') {
+                lettersOnly = false;
+            } else if (!isLetter(c)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
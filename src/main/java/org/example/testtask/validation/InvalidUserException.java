@@ -0,0 +1,23 @@
+package org.example.testtask.validation;
+
+import org.springframework.validation.FieldError;
+
+import java.util.List;
+
+/**
+ * A user rejected by {@link UserValidator}, answered with a problem response listing {@code fieldErrors}. Invalid
+ * requests are routine, so the exception records no stack trace, and rejections that never differ are thrown
+ * as shared instances.
+ */
+public class InvalidUserException extends RuntimeException {
+    private final transient List<FieldError> fieldErrors;
+
+    public InvalidUserException(List<FieldError> fieldErrors) {
+        super("Invalid user", null, false, false);
+        this.fieldErrors = fieldErrors;
+    }
+
+    public List<FieldError> getFieldErrors() {
+        return fieldErrors;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.testtask.validation;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.example.testtask.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.FieldError;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validation shared by both web stacks. The minimum-age cutoff is computed once per day: requests compare the
+ * clock's millis against the next midnight and only rebuild the cutoff after the date has rolled over.
+ */
+@Component
+public class UserValidator {
+    static final String MINIMUM_AGE_CODE = "MinimumAge";
+    static final String EARLIEST_BIRTH_DATE_CODE = "EarliestBirthDate";
+    /**
+     * Earliest birth date any store, the birth-date statistics and the JPA range bounds can all represent.
+     */
+    static final LocalDate EARLIEST_BIRTH_DATE = LocalDate.of(1, 1, 1);
+    private static final String OBJECT_NAME = "user";
+
+    private final Validator validator;
+    private final int minimumAge;
+    private final Clock clock;
+    private final String ageViolation;
+    private final InvalidUserException underage;
+    private final String birthDateViolation = "Birth dates before " + EARLIEST_BIRTH_DATE + " are not supported.";
+    private final InvalidUserException tooEarly = new InvalidUserException(List.of(new FieldError(OBJECT_NAME,
+            "birthDate", null, false, new String[]{EARLIEST_BIRTH_DATE_CODE}, null, birthDateViolation)));
+    private volatile Cutoff cutoff;
+
+    @Autowired
+    public UserValidator(Validator validator, @Value("${user.minimum.age}") int minimumAge) {
+        this(validator, minimumAge, Clock.systemDefaultZone());
+    }
+
+    UserValidator(Validator validator, int minimumAge, Clock clock) {
+        this.validator = validator;
+        this.minimumAge = minimumAge;
+        this.clock = clock;
+        this.ageViolation = "Users must be older than " + minimumAge + " years old to register.";
+        this.underage = new InvalidUserException(List.of(new FieldError(OBJECT_NAME, "birthDate", null, false,
+                new String[]{MINIMUM_AGE_CODE}, null, ageViolation)));
+        this.cutoff = computeCutoff();
+    }
+
+    public LocalDate minimumBirthDate() {
+        Cutoff current = cutoff;
+        if (clock.millis() >= current.expiresAt()) {
+            current = computeCutoff();
+            cutoff = current;
+        }
+        return current.minimumBirthDate();
+    }
+
+    /**
+     * {@code null} birth dates are left to the bean constraints and pass here.
+     */
+    public boolean isOldEnough(LocalDate birthDate) {
+        return birthDate == null || !birthDate.isAfter(minimumBirthDate());
+    }
+
+    public String ageViolation() {
+        return ageViolation;
+    }
+
+    /**
+     * Checks a request body against its bean constraints, and then the user's age, and throws
+     * {@link InvalidUserException} on the first that fails. Bodies are checked here rather than through
+     * {@code @Valid}, which would translate each violation into a binding error with its message codes and raise
+     * an exception with a full stack trace, only to be answered with a 400.
+     */
+    public void requireValid(Object body, LocalDate birthDate) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(body);
+        if (!violations.isEmpty()) {
+            List<FieldError> fieldErrors = new ArrayList<>(violations.size());
+            for (ConstraintViolation<Object> violation : violations) {
+                fieldErrors.add(new FieldError(OBJECT_NAME, violation.getPropertyPath().toString(), null, false,
+                        new String[]{violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName()},
+                        null, violation.getMessage()));
+            }
+            throw new InvalidUserException(fieldErrors);
+        }
+        if (birthDate != null && birthDate.isBefore(EARLIEST_BIRTH_DATE)) {
+            throw tooEarly;
+        }
+        requireOldEnough(birthDate);
+    }
+
+    public void requireOldEnough(LocalDate birthDate) {
+        if (!isOldEnough(birthDate)) {
+            throw underage;
+        }
+    }
+
+    /**
+     * Checks a user read outside of Spring's argument binding, such as a batch item: the bean constraints first,
+     * then the age rule. Returns the message to report, or {@code null} when the user is valid.
+     */
+    public String validateNewUser(UserEntity userEntity) {
+        Set<ConstraintViolation<UserEntity>> violations = validator.validate(userEntity);
+        if (!violations.isEmpty()) {
+            StringBuilder errorMessage = new StringBuilder("Validation failed for the following fields:");
+            for (ConstraintViolation<UserEntity> violation : violations) {
+                errorMessage.append(' ').append(violation.getPropertyPath()).append(" - ").append(violation.getMessage());
+            }
+            return errorMessage.toString();
+        }
+        LocalDate birthDate = userEntity.getBirthDate();
+        if (birthDate != null && birthDate.isBefore(EARLIEST_BIRTH_DATE)) {
+            return birthDateViolation;
+        }
+        return isOldEnough(birthDate) ? null : ageViolation;
+    }
+
+    private Cutoff computeCutoff() {
+        LocalDate today = LocalDate.now(clock);
+        long expiresAt = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return new Cutoff(today.minusYears(minimumAge), expiresAt);
+    }
+
+    private record Cutoff(LocalDate minimumBirthDate, long expiresAt) {
+    }
+}
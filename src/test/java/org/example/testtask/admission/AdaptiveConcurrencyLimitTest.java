@@ -0,0 +1,67 @@
+package org.example.testtask.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int slots = limit.limit();
+            int inFlight = 0;
+            for (int i = 0; i < slots; i++) {
+                inFlight = limit.tryAcquire();
+            }
+            for (int i = 0; i < slots; i++) {
+                limit.release(rttNanos, inFlight);
+            }
+        }
+    }
+
+    @Test
+    void tryAcquire_atLimit_shouldRefuseUntilReleased() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10);
+
+        assertEquals(1, limit.tryAcquire());
+        assertEquals(2, limit.tryAcquire());
+        assertEquals(0, limit.tryAcquire());
+
+        limit.cancel();
+
+        assertEquals(2, limit.tryAcquire());
+    }
+
+    @Test
+    void release_steadyLatencyUnderLoad_shouldGrowLimitUpToMaximum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 4, 64);
+
+        saturate(limit, TimeUnit.MILLISECONDS.toNanos(5), 200);
+
+        assertEquals(64, limit.limit());
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void release_risingLatency_shouldShrinkLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(64, 4, 64);
+        saturate(limit, TimeUnit.MILLISECONDS.toNanos(5), 20);
+
+        saturate(limit, TimeUnit.MILLISECONDS.toNanos(200), 10);
+
+        assertTrue(limit.limit() <= 8, "limit " + limit.limit());
+    }
+
+    @Test
+    void release_lightLoad_shouldNotGrowLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(16, 4, 64);
+
+        for (int i = 0; i < 1000; i++) {
+            limit.release(TimeUnit.MILLISECONDS.toNanos(5), limit.tryAcquire());
+        }
+
+        assertEquals(16, limit.limit());
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.testtask.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.statistics.BirthDateStatistics;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAdmissionControlTest {
+    private InMemoryUserStore userStore;
+
+    private UserAdmissionControl admissionControl;
+
+    @BeforeEach
+    public void init() {
+        userStore = new InMemoryUserStore();
+        BirthDateStatistics statistics = new BirthDateStatistics(Optional.of(userStore));
+        statistics.afterSingletonsInstantiated();
+        admissionControl = new UserAdmissionControl(statistics, new SimpleMeterRegistry(), true, 2, 1, 2, 100, 1);
+        for (int i = 0; i < 150; i++) {
+            userStore.insert(UserEntity.builder()
+                    .email("user" + i + "@example.com")
+                    .firstName("FirstName")
+                    .lastName("LastName")
+                    .birthDate(LocalDate.of(1990, 1, 1).plusDays(i))
+                    .build());
+        }
+    }
+
+    @Test
+    void classify_shouldSeparateRangesLookupsAndWrites() {
+        assertEquals(AdmissionClass.RANGE, UserAdmissionControl.classify("GET", "/users"));
+        assertEquals(AdmissionClass.LOOKUP, UserAdmissionControl.classify("GET", "/users/test@example.com"));
+        assertEquals(AdmissionClass.LOOKUP, UserAdmissionControl.classify("GET", "/users/search"));
+        assertEquals(AdmissionClass.WRITE, UserAdmissionControl.classify("POST", "/users/batch"));
+        assertEquals(AdmissionClass.WRITE, UserAdmissionControl.classify("DELETE", "/users/test@example.com"));
+        assertNull(UserAdmissionControl.classify("GET", "/users/changes"));
+        assertNull(UserAdmissionControl.classify("GET", "/actuator/prometheus"));
+    }
+
+    @Test
+    void admit_overConcurrencyLimit_shouldRejectWithServiceUnavailable() {
+        UserAdmissionControl.Permit first = admissionControl.admit("PUT", "/users/a@example.com", name -> null);
+        admissionControl.admit("PUT", "/users/b@example.com", name -> null);
+
+        AdmissionRejectedException exception = assertThrows(AdmissionRejectedException.class,
+                () -> admissionControl.admit("PUT", "/users/c@example.com", name -> null));
+        assertNotNull(admissionControl.admit("GET", "/users/c@example.com", name -> null));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        assertEquals("1", exception.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        first.release();
+        first.release();
+
+        assertNotNull(admissionControl.admit("PUT", "/users/c@example.com", name -> null));
+        assertThrows(AdmissionRejectedException.class,
+                () -> admissionControl.admit("PUT", "/users/d@example.com", name -> null));
+    }
+
+    @Test
+    void admit_rangesOverRowBudget_shouldRejectWithTooManyRequests() {
+        Map<String, String> wide = Map.of("from", "1989-12-31", "to", "1991-01-01");
+        Map<String, String> paged = Map.of("from", "1989-12-31", "to", "1991-01-01", "limit", "10");
+
+        UserAdmissionControl.Permit alone = admissionControl.admit("GET", "/users", wide::get);
+        AdmissionRejectedException exception = assertThrows(AdmissionRejectedException.class,
+                () -> admissionControl.admit("GET", "/users", paged::get));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+
+        alone.release();
+        UserAdmissionControl.Permit page = admissionControl.admit("GET", "/users", paged::get);
+
+        assertNotNull(admissionControl.admit("GET", "/users", Map.of("from", "1989-12-31", "to", "1990-01-05")::get));
+        page.release();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.testtask.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeResponseCacheTest {
+    private static final RangeResponseCache.Key NINETIES = new RangeResponseCache.Key(
+            LocalDate.of(1990, 1, 1), true, LocalDate.of(2000, 1, 1), false, null, null);
+    private static final RangeResponseCache.Key EIGHTIES = new RangeResponseCache.Key(
+            LocalDate.of(1980, 1, 1), true, LocalDate.of(1990, 1, 1), false, null, null);
+
+    private InMemoryUserStore userStore;
+
+    private RangeResponseCache cache;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void init() {
+        userStore = new InMemoryUserStore();
+        cache = new RangeResponseCache(Optional.of(userStore), new SimpleMeterRegistry(), 1024, 2);
+        cache.start();
+        loads = new AtomicInteger();
+    }
+
+    private CachedRange load(String body) {
+        loads.incrementAndGet();
+        return CachedRange.of(body.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    private UserEntity user(String email, LocalDate birthDate) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(birthDate)
+                .build();
+    }
+
+    @Test
+    void get_sameKey_shouldLoadOnce() {
+        CachedRange first = cache.get(NINETIES, () -> load("[1]"));
+        CachedRange second = cache.get(NINETIES, () -> load("[2]"));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void etag_shouldDependOnlyOnBody() {
+        assertEquals(load("[1]").etag(), load("[1]").etag());
+        assertNotEquals(load("[1]").etag(), load("[2]").etag());
+    }
+
+    @Test
+    void onChange_shouldInvalidateOnlyRangesContainingOldOrNewBirthDate() {
+        cache.get(NINETIES, () -> load("[]"));
+        cache.get(EIGHTIES, () -> load("[]"));
+
+        userStore.insert(user("test@example.com", LocalDate.of(1995, 5, 5)));
+
+        assertNull(cache.getIfPresent(NINETIES));
+        assertNotNull(cache.getIfPresent(EIGHTIES));
+
+        cache.get(NINETIES, () -> load("[]"));
+        userStore.replace("test@example.com", user -> user.toBuilder().birthDate(LocalDate.of(1985, 5, 5)).build());
+
+        assertNull(cache.getIfPresent(NINETIES));
+        assertNull(cache.getIfPresent(EIGHTIES));
+    }
+
+    @Test
+    void onChange_partialMonthsAndDays_shouldInvalidateOnlyOverlappingRanges() {
+        RangeResponseCache.Key march = new RangeResponseCache.Key(
+                LocalDate.of(1995, 2, 27), false, LocalDate.of(1995, 4, 2), false, null, null);
+        RangeResponseCache.Key wholeHistory = new RangeResponseCache.Key(
+                LocalDate.MIN, true, LocalDate.MAX, true, null, null);
+        cache = new RangeResponseCache(Optional.of(userStore), new SimpleMeterRegistry(), 1024, 4);
+        cache.start();
+        cache.get(march, () -> load("[]"));
+        cache.get(wholeHistory, () -> load("[]"));
+
+        userStore.insert(user("april@example.com", LocalDate.of(1995, 4, 2)));
+        userStore.insert(user("february@example.com", LocalDate.of(1995, 2, 27)));
+
+        assertNotNull(cache.getIfPresent(march));
+        assertNull(cache.getIfPresent(wholeHistory));
+
+        userStore.insert(user("march@example.com", LocalDate.of(1995, 2, 28)));
+
+        assertNull(cache.getIfPresent(march));
+    }
+
+    @Test
+    void onChange_exclusiveBound_shouldNotInvalidate() {
+        cache.get(NINETIES, () -> load("[]"));
+
+        userStore.insert(user("test@example.com", LocalDate.of(2000, 1, 1)));
+
+        assertNotNull(cache.getIfPresent(NINETIES));
+    }
+
+    @Test
+    void get_concurrentChange_shouldNotCacheStaleResult() {
+        cache.get(NINETIES, () -> {
+            userStore.insert(user("test@example.com", LocalDate.of(1995, 5, 5)));
+            return load("[]");
+        });
+
+        assertNull(cache.getIfPresent(NINETIES));
+    }
+
+    @Test
+    void get_overEntryLimit_shouldEvictLeastRecentlyUsed() {
+        RangeResponseCache.Key seventies = new RangeResponseCache.Key(
+                LocalDate.of(1970, 1, 1), true, LocalDate.of(1980, 1, 1), false, null, null);
+        cache.get(NINETIES, () -> load("[]"));
+        cache.get(EIGHTIES, () -> load("[]"));
+        cache.get(NINETIES, () -> load("[]"));
+
+        cache.get(seventies, () -> load("[]"));
+
+        assertNotNull(cache.getIfPresent(NINETIES));
+        assertNull(cache.getIfPresent(EIGHTIES));
+        assertNotNull(cache.getIfPresent(seventies));
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.testtask.changes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserChangeLogTest {
+    private InMemoryUserStore userStore;
+
+    private UserChangeLog changeLog;
+
+    @BeforeEach
+    public void init() {
+        userStore = new InMemoryUserStore();
+        changeLog = new UserChangeLog(Optional.of(userStore), new SimpleMeterRegistry(), 4);
+        changeLog.afterSingletonsInstantiated();
+    }
+
+    private UserEntity user(String email) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    @Test
+    void readAfter_mutations_shouldReturnEventsInSequence() {
+        userStore.insert(user("first@example.com"));
+        userStore.replace("first@example.com", user -> user.toBuilder().email("moved@example.com").build());
+        userStore.remove("moved@example.com");
+
+        UserChangeBatch batch = changeLog.readAfter(0, 10);
+
+        assertFalse(batch.truncated());
+        assertEquals(3, batch.lastSequence());
+        List<UserChangeEvent> events = batch.events();
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(UserChangeEvent::sequence).toList());
+        assertEquals(UserChangeEvent.Type.CREATED, events.get(0).type());
+        assertEquals(UserChangeEvent.Type.UPDATED, events.get(1).type());
+        assertEquals("first@example.com", events.get(1).previousEmail());
+        assertEquals("moved@example.com", events.get(1).email());
+        assertEquals(2, events.get(1).version());
+        assertEquals(UserChangeEvent.Type.DELETED, events.get(2).type());
+        assertNull(events.get(2).user());
+    }
+
+    @Test
+    void readAfter_limitAndCursor_shouldResumeAfterLastSequence() {
+        userStore.insert(user("first@example.com"));
+        userStore.insert(user("second@example.com"));
+
+        UserChangeBatch first = changeLog.readAfter(0, 1);
+        UserChangeBatch second = changeLog.readAfter(first.lastSequence(), 1);
+        UserChangeBatch third = changeLog.readAfter(second.lastSequence(), 1);
+
+        assertEquals("first@example.com", first.events().get(0).email());
+        assertEquals("second@example.com", second.events().get(0).email());
+        assertFalse(third.hasChanges());
+        assertEquals(2, third.lastSequence());
+    }
+
+    @Test
+    void readAfter_overwrittenEvents_shouldReportTruncation() {
+        for (int i = 0; i < 10; i++) {
+            userStore.insert(user("user" + i + "@example.com"));
+        }
+
+        UserChangeBatch batch = changeLog.readAfter(0, 10);
+
+        assertTrue(batch.truncated());
+        assertEquals(10, batch.headSequence());
+        assertEquals(List.of(7L, 8L, 9L, 10L), batch.events().stream().map(UserChangeEvent::sequence).toList());
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.testtask.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.ReactiveUserService;
+import org.example.testtask.validation.UserValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = ReactiveUserController.class)
+@Import({SimpleMeterRegistry.class, SmileConfiguration.class, UserValidator.class})
+class ReactiveUserControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveUserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private UserEntity user;
+
+    @BeforeEach
+    public void init() {
+        user = UserEntity.builder()
+                .email("test@example.com")
+                .firstName("TestFirstName")
+                .lastName("TestLastName")
+                .birthDate(LocalDate.now().minusYears(25))
+                .build();
+    }
+
+    @Test
+    void createUser_returnCreated() {
+        when(userService.createUser(user)).thenReturn(Mono.just(user));
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    void createUser_returnBadRequest_whenDateOfBirthIsNotValid() {
+        user.setBirthDate(LocalDate.now().minusYears(3));
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void createUser_returnBadRequest_whenEmailIsNotValid() {
+        user.setEmail("wrong_email");
+
+        webTestClient.post().uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.errors.length()").isEqualTo(1)
+                .jsonPath("$.errors[0].field").isEqualTo("email")
+                .jsonPath("$.errors[0].code").isEqualTo("ValidEmail");
+    }
+
+    @Test
+    void createUsers_ndjson_returnPerItemResults() throws Exception {
+        UserEntity underageUser = user.toBuilder().email("young@example.com").birthDate(LocalDate.now().minusYears(3)).build();
+        when(userService.createUsers(List.of(user), false))
+                .thenReturn(Mono.just(List.of(new BatchItemResult(0, user.getEmail(), HttpStatus.CREATED.value(), null))));
+
+        webTestClient.post().uri("/users/batch")
+                .contentType(MediaType.parseMediaType(UserController.NDJSON_VALUE))
+                .bodyValue(objectMapper.writeValueAsString(underageUser) + "\n" + objectMapper.writeValueAsString(user) + "\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].index").isEqualTo(0)
+                .jsonPath("$[0].status").isEqualTo(HttpStatus.BAD_REQUEST.value())
+                .jsonPath("$[1].index").isEqualTo(1)
+                .jsonPath("$[1].status").isEqualTo(HttpStatus.CREATED.value());
+    }
+
+    @Test
+    void createUsers_malformedItemAfterValidOnes_shouldStillCreateThem() throws Exception {
+        UserEntity second = user.toBuilder().email("second@example.com").build();
+        when(userService.createUsers(List.of(user, second), false))
+                .thenReturn(Mono.just(List.of(new BatchItemResult(0, user.getEmail(), HttpStatus.CREATED.value(), null),
+                        new BatchItemResult(1, second.getEmail(), HttpStatus.CREATED.value(), null))));
+
+        webTestClient.post().uri("/users/batch")
+                .contentType(MediaType.parseMediaType(UserController.NDJSON_VALUE))
+                .bodyValue(objectMapper.writeValueAsString(user) + "\n" + objectMapper.writeValueAsString(second)
+                        + "\n{\"email\": \n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].status").isEqualTo(HttpStatus.CREATED.value())
+                .jsonPath("$[1].status").isEqualTo(HttpStatus.CREATED.value())
+                .jsonPath("$[2].index").isEqualTo(2)
+                .jsonPath("$[2].status").isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void partiallyUpdateUser_nonExistingUser_returnNotFound() {
+        when(userService.patchUser(eq(user.getEmail()), any(PatchedUserDTO.class), isNull()))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+
+        webTestClient.patch().uri("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(PatchedUserDTO.builder().firstName("Patched").build())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_ndjson_streamsUsers() {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        UserEntity otherUser = user.toBuilder().email("other@example.com").build();
+        when(userService.findUsersForBirthDateRange(from, false, to, false)).thenReturn(Flux.just(user, otherUser));
+
+        Flux<UserEntity> body = webTestClient.get()
+                .uri(uri -> uri.path("/users").queryParam("from", from).queryParam("to", to).build())
+                .accept(MediaType.parseMediaType(UserController.NDJSON_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserEntity.class)
+                .getResponseBody();
+
+        StepVerifier.create(body, 1)
+                .expectNext(user)
+                .thenRequest(1)
+                .expectNext(otherUser)
+                .verifyComplete();
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_smile_returnArray() throws Exception {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        UserEntity otherUser = user.toBuilder().email("other@example.com").build();
+        when(userService.findUsersForBirthDateRange(from, false, to, false)).thenReturn(Flux.just(user, otherUser));
+
+        byte[] body = webTestClient.get()
+                .uri(uri -> uri.path("/users").queryParam("from", from).queryParam("to", to).build())
+                .accept(SmileConfiguration.SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(SmileConfiguration.SMILE)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        ObjectMapper smileMapper = SmileConfiguration.smileMapper(new Jackson2ObjectMapperBuilder());
+        assertEquals(List.of(user, otherUser), List.of(smileMapper.readValue(body, UserEntity[].class)));
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_withLimit_returnNextCursorHeader() {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        when(userService.findUsersForBirthDateRange(from, false, to, false, null, 1))
+                .thenReturn(Mono.just(new UserPage(List.of(user), "next")));
+
+        webTestClient.get()
+                .uri(uri -> uri.path("/users").queryParam("from", from).queryParam("to", to).queryParam("limit", 1).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(UserController.NEXT_CURSOR_HEADER, "next")
+                .expectBodyList(UserEntity.class).contains(user).hasSize(1);
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_invalidRange_returnBadRequest() {
+        webTestClient.get()
+                .uri("/users?from=2020-01-01&to=2010-01-01")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.testtask.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeEvent;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.entity.UserEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+@WebMvcTest(controllers = UserChangeController.class)
+@Import(SimpleMeterRegistry.class)
+class UserChangeControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserChangeLog changeLog;
+
+    @Test
+    void pollChanges_eventsAvailable_returnBatch() throws Exception {
+        UserEntity user = UserEntity.builder()
+                .email("test@example.com")
+                .firstName("TestFirstName")
+                .lastName("TestLastName")
+                .birthDate(LocalDate.now().minusYears(25))
+                .version(1)
+                .build();
+        when(changeLog.isEnabled()).thenReturn(true);
+        when(changeLog.readAfter(4, 1000)).thenReturn(new UserChangeBatch(
+                List.of(new UserChangeEvent(5, UserChangeEvent.Type.CREATED, user.getEmail(), null, user, 1)), 5, false, "log", 5));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users/changes")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("after", "4"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.lastSequence", is(5)))
+                .andExpect(jsonPath("$.events", hasSize(1)))
+                .andExpect(jsonPath("$.events[0].type", is("CREATED")))
+                .andExpect(jsonPath("$.events[0].user.email", is(user.getEmail())));
+    }
+
+    @Test
+    void pollChanges_noEventsWithinWait_returnEmptyBatch() throws Exception {
+        when(changeLog.isEnabled()).thenReturn(true);
+        when(changeLog.readAfter(7, 1000)).thenReturn(new UserChangeBatch(List.of(), 7, false, "log", 7));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users/changes")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .param("after", "7")
+                        .param("waitMs", "50"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$.lastSequence", is(7)))
+                .andExpect(jsonPath("$.events", hasSize(0)));
+    }
+
+    @Test
+    void pollChanges_withoutInMemoryStore_returnNotImplemented() throws Exception {
+        when(changeLog.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/changes").accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotImplemented());
+    }
+
+    @Test
+    void streamChanges_slowClient_shouldNotStallOtherConsumers() throws Exception {
+        UserChangeLog log = mock(UserChangeLog.class);
+        when(log.isEnabled()).thenReturn(true);
+        UserEntity user = UserEntity.builder().email("test@example.com").build();
+        UserChangeBatch created = new UserChangeBatch(
+                List.of(new UserChangeEvent(1, UserChangeEvent.Type.CREATED, user.getEmail(), null, user, 1)), 1, false, "log", 1);
+        when(log.readAfter(0, UserChangeController.MAX_BATCH_SIZE)).thenReturn(created);
+        when(log.readAfter(0, 1000)).thenReturn(new UserChangeBatch(List.of(), 0, false, "log", 0), created);
+        UserChangeController controller = new UserChangeController(log, 5, 1, 300);
+        StuckEmitter stuck = new StuckEmitter();
+        try {
+            controller.subscribe(stuck, 0);
+            assertTrue(stuck.sending.await(5, TimeUnit.SECONDS));
+
+            DeferredResult<UserChangeBatch> poll = controller.pollChanges(0, 1000, 5_000);
+
+            for (int i = 0; i < 200 && !poll.hasResult(); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(created, poll.getResult());
+            assertTrue(stuck.failed.await(5, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, stuck.error);
+        } finally {
+            controller.stop();
+        }
+    }
+
+    private static class StuckEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            error = ex;
+            failed.countDown();
+        }
+    }
+}
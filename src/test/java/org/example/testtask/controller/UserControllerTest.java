@@ -1,9 +1,16 @@
 package org.example.testtask.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.cache.RangeResponseCache;
+import org.example.testtask.config.SmileConfiguration;
+import org.example.testtask.dto.BatchItemResult;
 import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
 import org.example.testtask.entity.UserEntity;
 import org.example.testtask.service.UserService;
+import org.example.testtask.validation.UserValidator;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,32 +19,53 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
 @WebMvcTest(controllers = UserController.class)
 @ExtendWith(MockitoExtension.class)
+@Import({SimpleMeterRegistry.class, RangeResponseCache.class, SmileConfiguration.class, UserValidator.class})
 class UserControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private UserService userService;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
     private UserEntity user;
 
     @BeforeEach
@@ -77,12 +105,70 @@ class UserControllerTest {
     void createUser_returnBadRequest_whenEmailIsNotValid() throws Exception {
         user.setEmail("wrong_email");
         when(userService.createUser(user)).thenReturn(user);
+        double failuresBefore = meterRegistry.counter("users.validation.failures", "field", "email", "reason", "ValidEmail").count();
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/users")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(user)));
 
-        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status", CoreMatchers.is(400)))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].field", CoreMatchers.is("email")))
+                .andExpect(jsonPath("$.errors[0].code", CoreMatchers.is("ValidEmail")));
+        assertEquals(failuresBefore + 1, meterRegistry.counter("users.validation.failures", "field", "email", "reason", "ValidEmail").count());
+    }
+
+    @Test
+    void createUsers_ndjson_returnPerItemResults() throws Exception {
+        UserEntity invalidUser = UserEntity.builder()
+                .email("wrong_email")
+                .firstName("OtherFirstName")
+                .lastName("OtherLastName")
+                .birthDate(LocalDate.now().minusYears(30))
+                .build();
+        when(userService.createUsers(List.of(user), false))
+                .thenReturn(List.of(new BatchItemResult(0, user.getEmail(), HttpStatus.CREATED.value(), null)));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                .contentType(UserController.NDJSON_VALUE)
+                .content(objectMapper.writeValueAsString(invalidUser) + "\n" + objectMapper.writeValueAsString(user) + "\n"));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].index", CoreMatchers.is(0)))
+                .andExpect(jsonPath("$[0].status", CoreMatchers.is(HttpStatus.BAD_REQUEST.value())))
+                .andExpect(jsonPath("$[1].index", CoreMatchers.is(1)))
+                .andExpect(jsonPath("$[1].email", CoreMatchers.is(user.getEmail())))
+                .andExpect(jsonPath("$[1].status", CoreMatchers.is(HttpStatus.CREATED.value())));
+    }
+
+    @Test
+    void createUsers_smile_returnPerItemResults() throws Exception {
+        when(userService.createUsers(List.of(user), false))
+                .thenReturn(List.of(new BatchItemResult(0, user.getEmail(), HttpStatus.CREATED.value(), null)));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                .contentType(SmileConfiguration.SMILE)
+                .content(smileConverter.getObjectMapper().writeValueAsBytes(List.of(user))));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].status", CoreMatchers.is(HttpStatus.CREATED.value())));
+    }
+
+    @Test
+    void createUsers_jsonArray_rejectsUnderageUser() throws Exception {
+        user.setBirthDate(LocalDate.now().minusYears(3));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(user))));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].status", CoreMatchers.is(HttpStatus.BAD_REQUEST.value())));
     }
 
     @Test
@@ -90,15 +176,17 @@ class UserControllerTest {
         PatchedUserDTO patchedUserDTO = PatchedUserDTO.builder()
                 .email("newTest@email.com")
                 .build();
+        user.setVersion(2);
 
-        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        when(userService.patchUser(eq(user.getEmail()), any(PatchedUserDTO.class), isNull())).thenReturn(user);
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders
                 .patch("/users/{email}", user.getEmail())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(patchedUserDTO)));
 
-        response.andExpect(MockMvcResultMatchers.status().isOk());
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"2\""));
     }
 
     @Test
@@ -108,8 +196,6 @@ class UserControllerTest {
                 .birthDate(LocalDate.now().plusDays(1))
                 .build();
 
-        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
-
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders
                 .patch("/users/{email}", user.getEmail())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -118,20 +204,78 @@ class UserControllerTest {
         response.andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    void createUser_returnProblemListingEveryField_whenSeveralFieldsAreInvalid() throws Exception {
+        user.setEmail("wrong_email");
+        user.setFirstName("");
+        user.setLastName(" ");
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)));
+
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.type", CoreMatchers.is("/problems/invalid-user")))
+                .andExpect(jsonPath("$.errors", hasSize(3)))
+                .andExpect(jsonPath("$.errors[*].field", containsInAnyOrder("email", "firstName", "lastName")));
+        verify(userService, never()).createUser(any());
+    }
+
+    @Test
+    void partiallyUpdateUser_returnBadRequest_whenUserWouldBeUnderage() throws Exception {
+        PatchedUserDTO patchedUserDTO = PatchedUserDTO.builder()
+                .birthDate(LocalDate.now().minusYears(3))
+                .build();
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .patch("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(patchedUserDTO)));
+
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.errors[0].field", CoreMatchers.is("birthDate")))
+                .andExpect(jsonPath("$.errors[0].code", CoreMatchers.is("MinimumAge")))
+                .andExpect(jsonPath("$.errors[0].message", CoreMatchers.is("Users must be older than 18 years old to register.")));
+        verify(userService, never()).patchUser(any(), any(), any());
+    }
+
     @Test
     void deleteUser_existingUser_returnOk() throws Exception {
         String email = user.getEmail();
-        when(userService.findByEmail(email)).thenReturn(Optional.of(UserEntity.builder().build()));
+        when(userService.deleteUserByEmail(email, null)).thenReturn(true);
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/users/{email}", email));
 
         response.andExpect(MockMvcResultMatchers.status().isOk());
     }
 
+    @Test
+    void deleteUser_staleIfMatch_returnPreconditionFailed() throws Exception {
+        String email = user.getEmail();
+        when(userService.deleteUserByEmail(email, 3L))
+                .thenThrow(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/users/{email}", email)
+                .header(HttpHeaders.IF_MATCH, "\"3\""));
+
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
+    @Test
+    void deleteUser_malformedIfMatch_returnPreconditionFailed() throws Exception {
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/users/{email}", user.getEmail())
+                .header(HttpHeaders.IF_MATCH, "W/\"3\""));
+
+        response.andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+        verify(userService, never()).deleteUserByEmail(any(), any());
+    }
+
     @Test
     void deleteUser_nonExistingUser_returnNotFound() throws Exception {
         String email = "nonexistent@example.com";
-        when(userService.findByEmail(email)).thenReturn(Optional.empty());
+        when(userService.deleteUserByEmail(email, null)).thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.delete("/users/{email}", email));
 
@@ -144,7 +288,7 @@ class UserControllerTest {
         LocalDate to = LocalDate.now().minusYears(1);
 
         List<UserEntity> users = List.of(user);
-        when(userService.findUsersForBirthDateRange(from, to)).thenReturn(users);
+        when(userService.findUsersForBirthDateRange(from, false, to, false)).thenReturn(users);
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/users")
                 .param("from", from.toString())
@@ -158,6 +302,112 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].birthDate", CoreMatchers.is(user.getBirthDate().toString())));
     }
 
+    @Test
+    void searchUsersByBirthDateRange_matchingIfNoneMatch_returnNotModified() throws Exception {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        when(userService.findUsersForBirthDateRange(from, false, to, false)).thenReturn(List.of(user));
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_inclusiveBounds_passedToService() throws Exception {
+        LocalDate from = user.getBirthDate();
+        LocalDate to = LocalDate.now().minusYears(1);
+
+        when(userService.findUsersForBirthDateRange(from, true, to, true)).thenReturn(List.of(user));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("from", from.toString())
+                .param("to", to.toString())
+                .param("fromInclusive", "true")
+                .param("toInclusive", "true"));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void searchUsersByBirthDateRange_withLimit_returnPageAndNextCursor() throws Exception {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+
+        when(userService.findUsersForBirthDateRange(from, false, to, false, "abc", 1))
+                .thenReturn(new UserPage(List.of(user), "def"));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("from", from.toString())
+                .param("to", to.toString())
+                .param("limit", "1")
+                .param("cursor", "abc"));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(UserController.NEXT_CURSOR_HEADER, "def"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", CoreMatchers.is(user.getEmail())));
+    }
+
+    @Test
+    void streamUsersByBirthDateRange_returnNdjson() throws Exception {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+        UserEntity otherUser = UserEntity.builder()
+                .email("other@example.com")
+                .firstName("OtherFirstName")
+                .lastName("OtherLastName")
+                .birthDate(LocalDate.now().minusYears(26))
+                .build();
+
+        when(userService.streamUsersForBirthDateRange(from, false, to, false)).thenReturn(Stream.of(otherUser, user));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .accept(UserController.NDJSON_VALUE)
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(UserController.NDJSON_VALUE))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        objectMapper.writeValueAsString(otherUser) + "\n" + objectMapper.writeValueAsString(user) + "\n"));
+    }
+
+    @Test
+    void streamUsersByBirthDateRange_smile_returnArray() throws Exception {
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+
+        when(userService.streamUsersForBirthDateRange(from, false, to, false)).thenReturn(Stream.of(user));
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/users")
+                        .accept(SmileConfiguration.SMILE)
+                        .param("from", from.toString())
+                        .param("to", to.toString()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(SmileConfiguration.SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(List.of(user), List.of(smileConverter.getObjectMapper().readValue(body, UserEntity[].class)));
+    }
+
     @Test
     void searchUsersByBirthDateRange_invalidRange_returnBadRequest() throws Exception {
         LocalDate from = LocalDate.now().minusYears(1);
@@ -170,11 +420,40 @@ class UserControllerTest {
         response.andExpect(MockMvcResultMatchers.status().isBadRequest());
     }
 
+    @Test
+    void getUser_existingUser_returnUserWithETag() throws Exception {
+        user.setVersion(4);
+        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.get("/users/{email}", user.getEmail()));
+
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.email", CoreMatchers.is(user.getEmail())))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void getUser_smileAccepted_returnSmileWithEpochDayBirthDate() throws Exception {
+        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+        byte[] body = mockMvc.perform(MockMvcRequestBuilders.get("/users/{email}", user.getEmail())
+                        .accept(SmileConfiguration.SMILE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(SmileConfiguration.SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ObjectMapper smileMapper = smileConverter.getObjectMapper();
+        assertEquals(user, smileMapper.readValue(body, UserEntity.class));
+        assertEquals(user.getBirthDate().toEpochDay(), smileMapper.readTree(body).get("birthDate").longValue());
+    }
+
     @Test
     void fullUpdateUser_existingUser_returnOk() throws Exception {
-        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.of(UserEntity.builder().build()));
+        when(userService.updateUserByEmail(eq(user.getEmail()), any(UserEntity.class), eq(1L))).thenReturn(user);
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/users/{email}", user.getEmail())
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(user)));
 
@@ -183,7 +462,8 @@ class UserControllerTest {
 
     @Test
     void fullUpdateUser_nonExistingUser_returnNotFound() throws Exception {
-        when(userService.findByEmail(user.getEmail())).thenReturn(Optional.empty());
+        when(userService.updateUserByEmail(eq(user.getEmail()), any(UserEntity.class), isNull()))
+                .thenThrow(new ResponseStatusException(HttpStatus.NOT_FOUND));
 
         ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/users/{email}", user.getEmail())
                 .contentType(MediaType.APPLICATION_JSON)
@@ -191,4 +471,16 @@ class UserControllerTest {
 
         response.andExpect(MockMvcResultMatchers.status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    void fullUpdateUser_returnBadRequest_whenUserWouldBeUnderage() throws Exception {
+        user.setBirthDate(LocalDate.now().minusYears(3));
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders.put("/users/{email}", user.getEmail())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(user)));
+
+        response.andExpect(MockMvcResultMatchers.status().isBadRequest());
+        verify(userService, never()).updateUserByEmail(any(), any(), any());
+    }
+}
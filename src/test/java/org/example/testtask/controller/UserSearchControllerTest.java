@@ -0,0 +1,64 @@
+package org.example.testtask.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.search.SearchField;
+import org.example.testtask.search.SearchMatch;
+import org.example.testtask.search.UserSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+@WebMvcTest(controllers = UserSearchController.class)
+@Import(SimpleMeterRegistry.class)
+class UserSearchControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserSearchIndex searchIndex;
+
+    @Test
+    void searchUsers_returnMatches() throws Exception {
+        UserEntity user = UserEntity.builder()
+                .email("test@example.com")
+                .firstName("TestFirstName")
+                .lastName("TestLastName")
+                .birthDate(LocalDate.now().minusYears(25))
+                .build();
+        when(searchIndex.isEnabled()).thenReturn(true);
+        when(searchIndex.search("testl", SearchMatch.CONTAINS, EnumSet.of(SearchField.LAST_NAME), 5))
+                .thenReturn(List.of(user));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/search")
+                        .param("q", "testl")
+                        .param("match", "CONTAINS")
+                        .param("fields", "LAST_NAME")
+                        .param("limit", "5"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is(user.getEmail())));
+    }
+
+    @Test
+    void searchUsers_indexDisabled_returnNotImplemented() throws Exception {
+        when(searchIndex.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/search").param("q", "test"))
+                .andExpect(MockMvcResultMatchers.status().isNotImplemented());
+    }
+}
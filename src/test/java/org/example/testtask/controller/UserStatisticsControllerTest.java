@@ -0,0 +1,65 @@
+package org.example.testtask.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.dto.AgeBracketCount;
+import org.example.testtask.statistics.BirthDateStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+@WebMvcTest(controllers = UserStatisticsController.class)
+@Import(SimpleMeterRegistry.class)
+class UserStatisticsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BirthDateStatistics statistics;
+
+    @Test
+    void countUsersByBirthDateRange_returnCount() throws Exception {
+        when(statistics.isEnabled()).thenReturn(true);
+        when(statistics.count(LocalDate.of(1990, 1, 1), true, LocalDate.of(2000, 1, 1), false)).thenReturn(42L);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/stats/count")
+                        .param("from", "1990-01-01")
+                        .param("to", "2000-01-01")
+                        .param("fromInclusive", "true"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string("42"));
+    }
+
+    @Test
+    void ageBrackets_returnBrackets() throws Exception {
+        when(statistics.isEnabled()).thenReturn(true);
+        when(statistics.ageBrackets(List.of(18, 30))).thenReturn(
+                List.of(new AgeBracketCount(18, 30, 5), new AgeBracketCount(30, null, 2)));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/stats/age-brackets").param("bounds", "18,30"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].count", is(5)))
+                .andExpect(jsonPath("$[1].maxAge").doesNotExist());
+    }
+
+    @Test
+    void birthdays_storeWithoutStatistics_returnNotImplemented() throws Exception {
+        when(statistics.isEnabled()).thenReturn(false);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/users/stats/birthdays"))
+                .andExpect(MockMvcResultMatchers.status().isNotImplemented());
+    }
+}
@@ -0,0 +1,99 @@
+package org.example.testtask.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.changes.UserChangeBatch;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationFollowerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private InMemoryUserStore leaderStore;
+
+    private UserChangeLog leaderLog;
+
+    private InMemoryUserStore followerStore;
+
+    private ReplicationFollower follower;
+
+    @BeforeEach
+    public void init() {
+        leaderStore = new InMemoryUserStore();
+        leaderLog = new UserChangeLog(Optional.of(leaderStore), new SimpleMeterRegistry(), 1024);
+        leaderLog.afterSingletonsInstantiated();
+        followerStore = new InMemoryUserStore();
+        follower = new ReplicationFollower(Optional.of(followerStore), objectMapper, new SimpleMeterRegistry(),
+                "http://localhost:8080/", 1000, 0, 1000);
+    }
+
+    private UserEntity user(String email) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private UserChangeBatch shipped(long after, int limit) throws Exception {
+        return objectMapper.readValue(objectMapper.writeValueAsBytes(leaderLog.readAfter(after, limit)),
+                UserChangeBatch.class);
+    }
+
+    @Test
+    void apply_shippedBatches_shouldMirrorLeaderStoreWithVersions() throws Exception {
+        leaderStore.insert(user("first@example.com"));
+        leaderStore.insert(user("second@example.com"));
+        leaderStore.insert(user("third@example.com"));
+        leaderStore.replace("first@example.com", user -> user.toBuilder().email("moved@example.com").build());
+        leaderStore.replace("second@example.com", user -> user.toBuilder().firstName("Renamed").build());
+        leaderStore.remove("third@example.com");
+        leaderStore.insert(user("third@example.com"));
+
+        UserChangeBatch first = shipped(0, 4);
+        follower.apply(first);
+        follower.apply(shipped(first.lastSequence(), 100));
+
+        assertEquals(new HashSet<>(leaderStore.values()), new HashSet<>(followerStore.values()));
+        for (UserEntity user : leaderStore.values()) {
+            assertEquals(user.getVersion(), followerStore.findByEmail(user.getEmail()).orElseThrow().getVersion());
+        }
+        assertTrue(followerStore.findByEmail("first@example.com").isEmpty());
+        assertEquals(7, follower.status().sequence());
+        assertEquals(0, follower.status().lagEvents());
+        assertEquals(ReplicationState.STREAMING, follower.status().state());
+    }
+
+    @Test
+    void apply_partialBatch_shouldReportLagUntilCaughtUp() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            leaderStore.insert(user("user" + i + "@example.com"));
+        }
+
+        UserChangeBatch partial = shipped(0, 2);
+        follower.apply(partial);
+
+        assertEquals(3, follower.status().lagEvents());
+        assertEquals(2, followerStore.size());
+
+        follower.apply(shipped(partial.lastSequence(), 100));
+
+        assertEquals(0, follower.status().lagEvents());
+        assertEquals(0, follower.status().lagMillis());
+        assertEquals(List.of(), followerStore.values().stream()
+                .filter(user -> leaderStore.findByEmail(user.getEmail()).isEmpty())
+                .toList());
+        assertEquals(5, followerStore.size());
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.testtask.search;
+
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchIndexTest {
+    private static final Set<SearchField> ALL_FIELDS = EnumSet.allOf(SearchField.class);
+
+    private InMemoryUserStore userStore;
+
+    private UserSearchIndex searchIndex;
+
+    @BeforeEach
+    public void init() {
+        userStore = new InMemoryUserStore();
+        userStore.insert(user("john.smith@example.com", "John", "Smith", "12 Baker Street", "+1 555-0100"));
+        searchIndex = new UserSearchIndex(Optional.of(userStore), true);
+        searchIndex.afterSingletonsInstantiated();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        searchIndex.stop();
+    }
+
+    private UserEntity user(String email, String firstName, String lastName, String address, String phoneNumber) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName(firstName)
+                .lastName(lastName)
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .address(address)
+                .phoneNumber(phoneNumber)
+                .build();
+    }
+
+    private List<String> emails(String query, SearchMatch match, Set<SearchField> fields) {
+        searchIndex.awaitIndexed();
+        return searchIndex.search(query, match, fields, 10).stream().map(UserEntity::getEmail).toList();
+    }
+
+    @Test
+    void search_prefix_shouldMatchWordStartsNewestFirst() {
+        userStore.insert(user("jane.smithers@example.com", "Jane", "Smithers", "7 Oak Road", null));
+        userStore.insert(user("asmith@example.com", "Alex", "Asmith", null, null));
+
+        assertEquals(List.of("jane.smithers@example.com", "john.smith@example.com"),
+                emails("SMITH", SearchMatch.PREFIX, EnumSet.of(SearchField.LAST_NAME)));
+        assertEquals(List.of("jane.smithers@example.com", "john.smith@example.com"),
+                emails("s", SearchMatch.PREFIX, EnumSet.of(SearchField.LAST_NAME)));
+        assertEquals(List.of("john.smith@example.com"), emails("bak", SearchMatch.PREFIX, ALL_FIELDS));
+        assertEquals(List.of("john.smith@example.com"), emails("+1 555", SearchMatch.PREFIX, ALL_FIELDS));
+    }
+
+    @Test
+    void search_contains_shouldMatchAnywhere() {
+        userStore.insert(user("asmith@example.com", "Alex", "Asmith", null, null));
+
+        assertEquals(List.of("asmith@example.com", "john.smith@example.com"),
+                emails("mit", SearchMatch.CONTAINS, EnumSet.of(SearchField.LAST_NAME)));
+        assertEquals(List.of("john.smith@example.com"), emails("555-01", SearchMatch.CONTAINS, ALL_FIELDS));
+        assertEquals(List.of(), emails("mith", SearchMatch.CONTAINS, EnumSet.of(SearchField.ADDRESS)));
+        assertThrows(ResponseStatusException.class, () -> emails("mi", SearchMatch.CONTAINS, ALL_FIELDS));
+    }
+
+    @Test
+    void search_afterUpdateAndDelete_shouldReflectStore() {
+        userStore.replace("john.smith@example.com", user -> user.toBuilder().lastName("Brown").build());
+
+        assertEquals(List.of(), emails("smith", SearchMatch.PREFIX, EnumSet.of(SearchField.LAST_NAME)));
+        assertEquals(List.of("john.smith@example.com"), emails("brown", SearchMatch.PREFIX, ALL_FIELDS));
+
+        userStore.remove("john.smith@example.com");
+
+        assertEquals(List.of(), emails("brown", SearchMatch.PREFIX, ALL_FIELDS));
+    }
+
+    @Test
+    void search_manyRewrites_shouldStayExact() {
+        for (int i = 0; i < 200_000; i++) {
+            int n = i;
+            userStore.replace("john.smith@example.com", user -> user.toBuilder().firstName("John" + n).build());
+        }
+
+        assertEquals(List.of("john.smith@example.com"), emails("john199999", SearchMatch.PREFIX, ALL_FIELDS));
+        assertEquals(List.of(), emails("john199998", SearchMatch.PREFIX, ALL_FIELDS));
+        assertEquals(List.of("john.smith@example.com"), emails("smith", SearchMatch.PREFIX, ALL_FIELDS));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_writeDuringSeed_shouldBeIndexed() {
+        searchIndex.stop();
+        userStore = new InMemoryUserStore() {
+            @Override
+            public Collection<UserEntity> values() {
+                Collection<UserEntity> values = List.copyOf(super.values());
+                remove("john.smith@example.com");
+                insert(user("jane.doe@example.com", "Jane", "Doe", null, null));
+                return values;
+            }
+        };
+        userStore.insert(user("john.smith@example.com", "John", "Smith", "12 Baker Street", "+1 555-0100"));
+        searchIndex = new UserSearchIndex(Optional.of(userStore), true);
+        searchIndex.afterSingletonsInstantiated();
+
+        assertEquals(List.of("jane.doe@example.com"), emails("j", SearchMatch.PREFIX, ALL_FIELDS));
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.testtask.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.CompactUserStore;
+import org.example.testtask.store.UserStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactUserServiceTest extends UserServiceTest {
+
+    @Override
+    protected UserStore createStore() {
+        return new CompactUserStore();
+    }
+
+    @Test
+    void findUsersForBirthDateRange_moreUsersThanOneChunk_shouldReturnAllInOrder() {
+        UserStore userStore = createStore();
+        UserServiceImpl userService = new UserServiceImpl(userStore, new SimpleMeterRegistry());
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add(UserEntity.builder()
+                    .email(String.format("user%04d@example.com", i))
+                    .firstName("FirstName" + i % 10)
+                    .lastName("LastName")
+                    .birthDate(from.plusDays(i / 300))
+                    .address(i % 2 == 0 ? null : "Street " + i)
+                    .build());
+        }
+        userService.createUsers(users, false);
+        userStore.remove(users.remove(500).getEmail());
+
+        List<UserEntity> found = userService.findUsersForBirthDateRange(from, true, from.plusDays(10), false);
+
+        assertEquals(users, found);
+        assertEquals(999, userStore.values().size());
+        assertEquals(0, userStore.findByBirthDateRange(from.plusDays(4), true, from.plusDays(10), true).size());
+    }
+
+    @Test
+    void replace_birthDateBeyondEpochDayRange_shouldBeRejectedBeforeListenersSeeIt() {
+        UserStore userStore = createStore();
+        UserEntity user = UserEntity.builder()
+                .email("user@example.com")
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+        userStore.insert(user);
+        List<UserEntity> notified = new ArrayList<>();
+        userStore.addListener((previous, current) -> notified.add(current));
+
+        assertThrows(IllegalArgumentException.class, () -> userStore.replace(user.getEmail(),
+                current -> current.toBuilder().birthDate(LocalDate.of(-6_000_000, 1, 1)).build()));
+        assertThrows(IllegalArgumentException.class, () -> userStore.insertAll(
+                List.of(user.toBuilder().birthDate(LocalDate.MIN).build()), true));
+
+        assertEquals(Optional.of(user), userStore.findByEmail(user.getEmail()));
+        assertEquals(1, userStore.birthDateIndexSize());
+        assertTrue(notified.isEmpty());
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.testtask.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.dto.BatchItemResult;
+import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.repository.UserRecordRepository;
+import org.example.testtask.service.impl.JpaUserServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@DataJpaTest(properties = "user.store.type=jpa")
+@Import({JpaUserServiceImpl.class, SimpleMeterRegistry.class})
+class JpaUserServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @SpyBean
+    private UserRecordRepository userRecordRepository;
+
+    private UserEntity user;
+
+    @BeforeEach
+    public void init() {
+        user = UserEntity.builder()
+                .email("test@example.com")
+                .firstName("TestFirstName")
+                .lastName("TestLastName")
+                .birthDate(LocalDate.now().minusYears(25))
+                .build();
+    }
+
+    private static UserEntity user(int i) {
+        return UserEntity.builder()
+                .email("user" + i + "@example.com")
+                .firstName("FirstName" + i)
+                .lastName("LastName" + i)
+                .birthDate(LocalDate.now().minusYears(25).plusDays(i / 2))
+                .build();
+    }
+
+    @Test
+    void createUser_thenFindByEmail_returnUser() {
+        userService.createUser(user);
+
+        assertEquals(Optional.of(user), userService.findByEmail("TEST@example.com"));
+    }
+
+    @Test
+    void createUser_duplicateEmail_shouldThrowConflict() {
+        userService.createUser(user);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.createUser(user.toBuilder().build()));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void updateUserByEmail_newEmail_shouldMoveUser() {
+        userService.createUser(user);
+        UserEntity updatedUser = user.toBuilder().email("updated@example.com").build();
+
+        userService.updateUserByEmail(user.getEmail(), updatedUser);
+
+        assertTrue(userService.findByEmail(user.getEmail()).isEmpty());
+        assertEquals(Optional.of(updatedUser), userService.findByEmail(updatedUser.getEmail()));
+    }
+
+    @Test
+    void updateUserByEmail_renameRacingAnotherRename_shouldThrowConflict() {
+        userService.createUser(user);
+        userService.createUser(user(1));
+        doReturn(false).when(userRecordRepository).existsByEmailKey(user(1).getEmail());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.updateUserByEmail(user.getEmail(), user.toBuilder().email(user(1).getEmail()).build()));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    @Test
+    void patchUser_existingUser_shouldPatchUser() {
+        userService.createUser(user);
+
+        UserEntity result = userService.patchUser(user.getEmail(), PatchedUserDTO.builder().lastName("Patched").build());
+
+        assertEquals("Patched", result.getLastName());
+        assertEquals("Patched", userService.findByEmail(user.getEmail()).orElseThrow().getLastName());
+    }
+
+    @Test
+    void deleteUserByEmail_nonExistingUser_shouldThrowException() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.deleteUserByEmail(user.getEmail()));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void createUsers_upsert_shouldReportReplacedUsersAsOk() {
+        userService.createUser(user);
+
+        List<BatchItemResult> results = userService.createUsers(
+                List.of(user.toBuilder().lastName("Replaced").build(), user(1)), true);
+
+        assertEquals(HttpStatus.OK.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.CREATED.value(), results.get(1).getStatus());
+        assertEquals("Replaced", userService.findByEmail(user.getEmail()).orElseThrow().getLastName());
+    }
+
+    @Test
+    void findUsersForBirthDateRange_respectsBounds() {
+        userService.createUser(user);
+        LocalDate to = LocalDate.now().minusYears(20);
+
+        assertTrue(userService.findUsersForBirthDateRange(user.getBirthDate(), to).isEmpty());
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(user.getBirthDate(), true, to, false));
+    }
+
+    @Test
+    void findUsersForBirthDateRange_boundsAtEndsOfTheDateLine_shouldNotOverflow() {
+        userService.createUser(user);
+
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(LocalDate.MIN, false, LocalDate.MAX, true));
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(LocalDate.MIN, true, LocalDate.MAX, true, null, 10).getUsers());
+        assertEquals(List.of(user), userService.streamUsersForBirthDateRange(LocalDate.MIN, false, LocalDate.MAX, true).toList());
+        assertTrue(userService.findUsersForBirthDateRange(LocalDate.MAX, false, LocalDate.MAX, true).isEmpty());
+        assertTrue(userService.findUsersForBirthDateRange(LocalDate.MIN, true, LocalDate.MIN, false, null, 10).getUsers().isEmpty());
+    }
+
+    @Test
+    void findUsersForBirthDateRange_withCursorAndStream_shouldReturnSameOrder() {
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(user(i));
+        }
+        List<BatchItemResult> results = userService.createUsers(users, false);
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == HttpStatus.CREATED.value()));
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+
+        List<UserEntity> collected = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPage page = userService.findUsersForBirthDateRange(from, false, to, false, cursor, 2);
+            collected.addAll(page.getUsers());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(users, collected);
+        assertEquals(users, userService.streamUsersForBirthDateRange(from, false, to, false).toList());
+    }
+
+    @Test
+    void deleteUsersByEmail_shouldRemoveExistingAndReportMissing() {
+        userService.createUser(user);
+
+        List<BatchItemResult> results = userService.deleteUsersByEmail(List.of(user.getEmail(), "missing@example.com"));
+
+        assertEquals(HttpStatus.OK.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(1).getStatus());
+        assertTrue(userService.findByEmail(user.getEmail()).isEmpty());
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.testtask.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.dto.UserPage;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.ShardedUserStore;
+import org.example.testtask.store.UserStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedUserServiceTest extends UserServiceTest {
+
+    @Override
+    protected UserStore createStore() {
+        return new ShardedUserStore(4);
+    }
+
+    @Test
+    void findUsersForBirthDateRange_largeRange_shouldMergeShardsInOrder() {
+        UserServiceImpl userService = new UserServiceImpl(createStore(), new SimpleMeterRegistry());
+        LocalDate from = LocalDate.of(1990, 1, 1);
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            users.add(UserEntity.builder()
+                    .email("user" + i + "@example.com")
+                    .firstName("FirstName")
+                    .lastName("LastName")
+                    .birthDate(from.plusDays(i % 10))
+                    .build());
+        }
+        userService.createUsers(users, false);
+        users.sort(Comparator.comparing(UserEntity::getBirthDate)
+                .thenComparing(user -> user.getEmail().toLowerCase(Locale.ROOT)));
+
+        List<UserEntity> found = userService.findUsersForBirthDateRange(from, true, from.plusDays(10), false);
+        UserPage page = userService.findUsersForBirthDateRange(from, true, from.plusDays(10), false, null, 100);
+
+        assertEquals(users, found);
+        assertEquals(users.subList(0, 100), page.getUsers());
+    }
+}
@@ -1,40 +1,40 @@
 package org.example.testtask.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.fge.jsonpatch.JsonPatchException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.testtask.dto.BatchItemResult;
 import org.example.testtask.dto.PatchedUserDTO;
+import org.example.testtask.dto.UserPage;
 import org.example.testtask.entity.UserEntity;
 import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.InMemoryUserStore;
+import org.example.testtask.store.UserStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 class UserServiceTest {
 
-    @Mock
-    private List<UserEntity> listOfUsers;
+    private UserStore userStore;
+
+    private SimpleMeterRegistry meterRegistry;
 
-    @InjectMocks
     private UserServiceImpl userService;
 
     private UserEntity user;
 
     @BeforeEach
     public void init() {
+        userStore = createStore();
+        meterRegistry = new SimpleMeterRegistry();
+        userService = new UserServiceImpl(userStore, meterRegistry);
         user = UserEntity.builder()
                 .email("test@example.com")
                 .firstName("TestFirstName")
@@ -43,27 +43,145 @@ class UserServiceTest {
                 .build();
     }
 
+    protected UserStore createStore() {
+        return new InMemoryUserStore();
+    }
+
     @Test
     void createUser_shouldAddUserToList() {
         UserEntity result = userService.createUser(user);
 
         assertEquals(user, result);
+        assertEquals(Optional.of(user), userStore.findByEmail(user.getEmail()));
+    }
+
+    @Test
+    void operations_shouldRecordTimersAndSearchResultSizes() {
+        userService.createUser(user);
+        userService.findUsersForBirthDateRange(LocalDate.now().minusYears(30), LocalDate.now().minusYears(20));
+
+        assertEquals(1, meterRegistry.get("users.operation").tag("operation", "create").timer().count());
+        assertEquals(1, meterRegistry.get("users.operation").tag("operation", "search").timer().count());
+        assertEquals(1, meterRegistry.get("users.search.results").summary().totalAmount());
+    }
+
+    @Test
+    void createUser_duplicateEmail_shouldThrowConflict() {
+        userService.createUser(user);
+        UserEntity duplicate = UserEntity.builder()
+                .email("TEST@example.com")
+                .firstName("OtherFirstName")
+                .lastName("OtherLastName")
+                .birthDate(LocalDate.now().minusYears(30))
+                .build();
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.createUser(duplicate));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertEquals(1, userStore.size());
+    }
+
+    @Test
+    void writes_onFollower_shouldBeRejectedAsMisdirected() {
+        UserServiceImpl follower = new UserServiceImpl(userStore, meterRegistry, "follower");
+        userStore.insert(user);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> follower.createUser(user.toBuilder().email("other@example.com").build()));
+        assertThrows(ResponseStatusException.class, () -> follower.deleteUserByEmail(user.getEmail()));
+
+        assertEquals(421, exception.getStatusCode().value());
+        assertEquals(1, userStore.size());
+        assertEquals(Optional.of(user), follower.findByEmail(user.getEmail()));
+    }
+
+    @Test
+    void createUsers_shouldStoreNewUsersAndReportDuplicates() {
+        UserEntity otherUser = UserEntity.builder()
+                .email("other@example.com")
+                .firstName("OtherFirstName")
+                .lastName("OtherLastName")
+                .birthDate(LocalDate.now().minusYears(30))
+                .build();
+        userStore.insert(user);
+
+        List<BatchItemResult> results = userService.createUsers(List.of(otherUser, user), false);
+
+        assertEquals(HttpStatus.CREATED.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.CONFLICT.value(), results.get(1).getStatus());
+        assertEquals(2, userStore.size());
+        assertEquals(2, userStore.birthDateIndexSize());
+    }
+
+    @Test
+    void createUsers_upsert_shouldReplaceExistingUser() {
+        UserEntity replacement = UserEntity.builder()
+                .email(user.getEmail())
+                .firstName("ReplacedFirstName")
+                .lastName("ReplacedLastName")
+                .birthDate(LocalDate.now().minusYears(40))
+                .build();
+        userStore.insert(user);
+
+        List<BatchItemResult> results = userService.createUsers(List.of(replacement), true);
+
+        assertEquals(HttpStatus.OK.value(), results.get(0).getStatus());
+        assertEquals(Optional.of(replacement), userStore.findByEmail(user.getEmail()));
+        assertEquals(List.of(replacement),
+                userService.findUsersForBirthDateRange(LocalDate.now().minusYears(50), LocalDate.now().minusYears(35)));
+        assertEquals(1, userStore.birthDateIndexSize());
+    }
+
+    @Test
+    void deleteUsersByEmail_shouldRemoveExistingAndReportMissing() {
+        userStore.insert(user);
+
+        List<BatchItemResult> results = userService.deleteUsersByEmail(List.of(user.getEmail(), "missing@example.com"));
+
+        assertEquals(HttpStatus.OK.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND.value(), results.get(1).getStatus());
+        assertEquals(0, userStore.size());
+        assertEquals(0, userStore.birthDateIndexSize());
     }
 
     @Test
     void updateUserByEmail_existingUser_shouldUpdateAndReturnUpdatedUser() {
-        UserEntity updatedUser = UserEntity.builder().build();
-        when(listOfUsers.stream()).thenReturn(Stream.of(user));
+        UserEntity updatedUser = UserEntity.builder()
+                .email("updated@example.com")
+                .firstName("UpdatedFirstName")
+                .lastName("UpdatedLastName")
+                .birthDate(LocalDate.now().minusYears(40))
+                .build();
+        userStore.insert(user);
 
         UserEntity result = userService.updateUserByEmail(user.getEmail(), updatedUser);
 
         assertEquals(updatedUser, result);
+        assertTrue(userStore.findByEmail(user.getEmail()).isEmpty());
+        assertEquals(Optional.of(updatedUser), userStore.findByEmail(updatedUser.getEmail()));
     }
 
     @Test
-    void updateUserByEmail_nonExistingUser_shouldThrowException() {
-        when(listOfUsers.stream()).thenReturn(Stream.empty());
+    void updateUserByEmail_emailTakenByAnotherUser_shouldThrowConflict() {
+        UserEntity otherUser = UserEntity.builder()
+                .email("other@example.com")
+                .firstName("OtherFirstName")
+                .lastName("OtherLastName")
+                .birthDate(LocalDate.now().minusYears(30))
+                .build();
+        userStore.insert(user);
+        userStore.insert(otherUser);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.updateUserByEmail(user.getEmail(), otherUser));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        assertEquals(Optional.of(user), userStore.findByEmail(user.getEmail()));
+    }
 
+    @Test
+    void updateUserByEmail_nonExistingUser_shouldThrowException() {
         ResponseStatusException exception = assertThrowsExactly(ResponseStatusException.class,
                 () -> userService.updateUserByEmail(user.getEmail(), user));
         assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
@@ -71,7 +189,7 @@ class UserServiceTest {
 
     @Test
     void findByEmail_existingUser_returnOptionalContainingUser() {
-        when(listOfUsers.stream()).thenReturn(Stream.of(user));
+        userStore.insert(user);
 
         Optional<UserEntity> result = userService.findByEmail(user.getEmail());
 
@@ -81,8 +199,6 @@ class UserServiceTest {
 
     @Test
     void findByEmail_nonExistingUser_shouldReturnEmptyOptional() {
-        when(listOfUsers.stream()).thenReturn(Stream.empty());
-
         Optional<UserEntity> result = userService.findByEmail(user.getEmail());
 
         assertTrue(result.isEmpty());
@@ -90,18 +206,16 @@ class UserServiceTest {
 
     @Test
     void deleteUserByEmail_existingUser_shouldRemoveUserFromList() {
-        when(listOfUsers.stream()).thenReturn(Stream.of(user));
-        when(listOfUsers.remove(user)).thenReturn(true);
+        userStore.insert(user);
 
         boolean result = userService.deleteUserByEmail(user.getEmail());
 
         assertTrue(result);
+        assertEquals(0, userStore.size());
     }
 
     @Test
     void deleteUserByEmail_nonExistingUser_shouldThrowException() {
-        when(listOfUsers.stream()).thenReturn(Stream.empty());
-
         ResponseStatusException exception = assertThrows(ResponseStatusException.class,
                 () -> userService.deleteUserByEmail(user.getEmail()));
 
@@ -112,7 +226,7 @@ class UserServiceTest {
     void findUsersForBirthDateRange_usersExistInRange_shouldReturnListOfUsers() {
         LocalDate from = LocalDate.now().minusYears(30);
         LocalDate to = LocalDate.now().minusYears(20);
-        when(listOfUsers.stream()).thenReturn(Stream.of(user));
+        userStore.insert(user);
 
         List<UserEntity> result = userService.findUsersForBirthDateRange(from, to);
 
@@ -121,22 +235,137 @@ class UserServiceTest {
     }
 
     @Test
-    void patchUser_existingUser_shouldPatchUser() throws JsonProcessingException, JsonPatchException {
+    void findUsersForBirthDateRange_userBornOnBound_includedOnlyForInclusiveBound() {
+        LocalDate to = LocalDate.now().minusYears(20);
+        userStore.insert(user);
+
+        assertTrue(userService.findUsersForBirthDateRange(user.getBirthDate(), to).isEmpty());
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(user.getBirthDate(), true, to, false));
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(user.getBirthDate(), true, user.getBirthDate(), true));
+    }
+
+    @Test
+    void findUsersForBirthDateRange_boundsAtEndsOfTheDateLine_shouldNotOverflow() {
+        userStore.insert(user);
+
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(LocalDate.MIN, false, LocalDate.MAX, true));
+        assertEquals(List.of(user), userService.findUsersForBirthDateRange(LocalDate.MIN, true, LocalDate.MAX, true, null, 10).getUsers());
+        assertTrue(userService.findUsersForBirthDateRange(LocalDate.MAX, false, LocalDate.MAX, true).isEmpty());
+        assertTrue(userService.findUsersForBirthDateRange(LocalDate.MIN, true, LocalDate.MIN, false).isEmpty());
+    }
+
+    @Test
+    void findUsersForBirthDateRange_afterUpdate_shouldReflectNewBirthDate() {
+        userStore.insert(user);
+        UserEntity updatedUser = UserEntity.builder()
+                .email(user.getEmail())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .birthDate(LocalDate.now().minusYears(50))
+                .build();
+
+        userService.updateUserByEmail(user.getEmail(), updatedUser);
+
+        assertTrue(userService.findUsersForBirthDateRange(LocalDate.now().minusYears(30), LocalDate.now().minusYears(20)).isEmpty());
+        assertEquals(List.of(updatedUser),
+                userService.findUsersForBirthDateRange(LocalDate.now().minusYears(60), LocalDate.now().minusYears(40)));
+        assertEquals(1, userStore.birthDateIndexSize());
+    }
+
+    @Test
+    void findUsersForBirthDateRange_withCursor_shouldWalkAllPagesInOrder() {
+        List<UserEntity> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UserEntity pagedUser = UserEntity.builder()
+                    .email("user" + i + "@example.com")
+                    .firstName("FirstName" + i)
+                    .lastName("LastName" + i)
+                    .birthDate(LocalDate.now().minusYears(25).plusDays(i / 2))
+                    .build();
+            userStore.insert(pagedUser);
+            users.add(pagedUser);
+        }
+        LocalDate from = LocalDate.now().minusYears(30);
+        LocalDate to = LocalDate.now().minusYears(20);
+
+        List<UserEntity> collected = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserPage page = userService.findUsersForBirthDateRange(from, false, to, false, cursor, 2);
+            assertTrue(page.getUsers().size() <= 2);
+            collected.addAll(page.getUsers());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(users, collected);
+    }
+
+    @Test
+    void findUsersForBirthDateRange_invalidCursor_shouldThrowBadRequest() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.findUsersForBirthDateRange(LocalDate.now().minusYears(30), false,
+                        LocalDate.now().minusYears(20), false, "not-a-cursor", 10));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void patchUser_existingUser_shouldPatchUser() {
         String newEmail = "test@example.com";
         LocalDate newBirthDate = user.getBirthDate().minusYears(2);
         PatchedUserDTO patchedUserDTO = PatchedUserDTO.builder()
                 .email(newEmail)
                 .birthDate(newBirthDate)
                 .build();
-        String patchDetails = patchedUserDTO.toJson();
+        userStore.insert(user);
 
-
-        when(listOfUsers.stream()).thenReturn(Stream.of(user));
-
-        UserEntity result = userService.patchUser(user.getEmail(), patchDetails);
+        UserEntity result = userService.patchUser(user.getEmail(), patchedUserDTO);
         assertEquals(result.getEmail(), newEmail);
         assertEquals(result.getBirthDate(), newBirthDate);
         assertEquals(result.getFirstName(), user.getFirstName());
         assertEquals(result.getLastName(), user.getLastName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void patchUser_existingUser_shouldLeaveOriginalInstanceUntouched() {
+        LocalDate originalBirthDate = user.getBirthDate();
+        userStore.insert(user);
+
+        userService.patchUser(user.getEmail(), PatchedUserDTO.builder().birthDate(originalBirthDate.minusYears(1)).build());
+
+        assertEquals(originalBirthDate, user.getBirthDate());
+        assertEquals(originalBirthDate.minusYears(1), userStore.findByEmail(user.getEmail()).orElseThrow().getBirthDate());
+    }
+
+    @Test
+    void patchUser_nonExistingUser_shouldThrowException() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.patchUser(user.getEmail(), PatchedUserDTO.builder().firstName("Name").build()));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void updateUserByEmail_matchingVersion_shouldIncrementVersion() {
+        userService.createUser(user);
+        long version = userStore.findByEmail(user.getEmail()).orElseThrow().getVersion();
+
+        UserEntity result = userService.patchUser(user.getEmail(), PatchedUserDTO.builder().firstName("Name").build(), version);
+
+        assertEquals(version + 1, result.getVersion());
+        assertEquals(version + 1, userStore.findByEmail(user.getEmail()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void updateUserByEmail_staleVersion_shouldThrowPreconditionFailed() {
+        userService.createUser(user);
+        long version = userStore.findByEmail(user.getEmail()).orElseThrow().getVersion();
+        userService.patchUser(user.getEmail(), PatchedUserDTO.builder().firstName("Name").build());
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> userService.deleteUserByEmail(user.getEmail(), version));
+
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+        assertEquals("Name", userStore.findByEmail(user.getEmail()).orElseThrow().getFirstName());
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.testtask.statistics;
+
+import org.example.testtask.dto.AgeBracketCount;
+import org.example.testtask.dto.BirthDateBucketCount;
+import org.example.testtask.dto.BirthdayCount;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthDateStatisticsTest {
+    private InMemoryUserStore userStore;
+
+    private BirthDateStatistics statistics;
+
+    @BeforeEach
+    public void init() {
+        userStore = new InMemoryUserStore();
+        userStore.insert(user("seeded@example.com", LocalDate.of(1990, 3, 15)));
+        statistics = new BirthDateStatistics(Optional.of(userStore));
+        statistics.afterSingletonsInstantiated();
+    }
+
+    private UserEntity user(String email, LocalDate birthDate) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(birthDate)
+                .build();
+    }
+
+    @Test
+    void count_mutations_shouldFollowStore() {
+        userStore.insert(user("first@example.com", LocalDate.of(1990, 3, 20)));
+        userStore.insert(user("second@example.com", LocalDate.of(1995, 6, 1)));
+        userStore.replace("second@example.com", user -> user.toBuilder().birthDate(LocalDate.of(1990, 3, 31)).build());
+        userStore.remove("first@example.com");
+
+        assertEquals(2, statistics.count(LocalDate.of(1990, 3, 1), true, LocalDate.of(1990, 4, 1), false));
+        assertEquals(1, statistics.count(LocalDate.of(1990, 3, 15), false, LocalDate.of(1990, 3, 31), true));
+        assertEquals(0, statistics.count(LocalDate.of(1995, 1, 1), true, LocalDate.of(1996, 1, 1), false));
+        assertEquals(List.of(new BirthdayCount(3, 15, 1), new BirthdayCount(3, 31, 1)),
+                statistics.birthdays(Month.MARCH).stream().filter(count -> count.getCount() > 0).toList());
+    }
+
+    @Test
+    void histogram_shouldSplitRangeIntoBuckets() {
+        userStore.insert(user("first@example.com", LocalDate.of(1990, 4, 30)));
+
+        List<BirthDateBucketCount> buckets = statistics.histogram(LocalDate.of(1990, 3, 1), LocalDate.of(1990, 5, 10),
+                BucketSize.MONTH);
+
+        assertEquals(List.of(
+                new BirthDateBucketCount(LocalDate.of(1990, 3, 1), LocalDate.of(1990, 4, 1), 1),
+                new BirthDateBucketCount(LocalDate.of(1990, 4, 1), LocalDate.of(1990, 5, 1), 1),
+                new BirthDateBucketCount(LocalDate.of(1990, 5, 1), LocalDate.of(1990, 5, 10), 0)), buckets);
+    }
+
+    @Test
+    void ageBrackets_shouldCountByAgeToday() {
+        LocalDate today = LocalDate.now();
+        userStore.removeAll(List.of("seeded@example.com"));
+        userStore.insert(user("adult@example.com", today.minusYears(18)));
+        userStore.insert(user("almost@example.com", today.minusYears(25).plusDays(1)));
+        userStore.insert(user("older@example.com", today.minusYears(25)));
+        userStore.insert(user("senior@example.com", today.minusYears(70)));
+
+        assertEquals(List.of(new AgeBracketCount(18, 25, 2), new AgeBracketCount(25, 65, 1), new AgeBracketCount(65, null, 1)),
+                statistics.ageBrackets(List.of(18, 25, 65)));
+    }
+
+    @Test
+    void count_birthDateOutsideInitialSpan_shouldWidenTree() {
+        userStore.insert(user("ancient@example.com", LocalDate.of(1700, 1, 1)));
+        userStore.insert(user("future@example.com", LocalDate.of(2200, 1, 1)));
+
+        assertEquals(3, statistics.count(LocalDate.of(1600, 1, 1), true, LocalDate.of(2300, 1, 1), true));
+        assertEquals(1, statistics.count(LocalDate.of(1600, 1, 1), true, LocalDate.of(1800, 1, 1), true));
+        assertEquals(1, statistics.count(LocalDate.of(1980, 1, 1), true, LocalDate.of(2000, 1, 1), true));
+    }
+
+    @Test
+    void afterSingletonsInstantiated_writesDuringSeed_shouldBeCountedOnce() {
+        statistics.stop();
+        userStore = new InMemoryUserStore() {
+            @Override
+            public Collection<UserEntity> values() {
+                Collection<UserEntity> values = List.copyOf(super.values());
+                insert(user("first@example.com", LocalDate.of(1990, 3, 20)));
+                replace("seeded@example.com", user -> user.toBuilder().birthDate(LocalDate.of(1995, 6, 1)).build());
+                return values;
+            }
+        };
+        userStore.insert(user("seeded@example.com", LocalDate.of(1990, 3, 15)));
+        statistics = new BirthDateStatistics(Optional.of(userStore));
+        statistics.afterSingletonsInstantiated();
+
+        assertEquals(1, statistics.count(LocalDate.of(1990, 1, 1), true, LocalDate.of(1991, 1, 1), false));
+        assertEquals(1, statistics.count(LocalDate.of(1995, 1, 1), true, LocalDate.of(1996, 1, 1), false));
+        assertEquals(List.of(new BirthdayCount(3, 20, 1)),
+                statistics.birthdays(Month.MARCH).stream().filter(count -> count.getCount() > 0).toList());
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.testtask.store.persistence;
+
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.store.InMemoryUserStore;
+import org.example.testtask.store.UserChangeListener;
+import org.example.testtask.store.UserStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStorePersistenceTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    private Path directory;
+
+    private static UserEntity user(int i) {
+        return UserEntity.builder()
+                .email("user" + i + "@example.com")
+                .firstName("FirstName" + i)
+                .lastName("LastName" + i)
+                .birthDate(LocalDate.of(1980, 1, 1).plusDays(i))
+                .address(i % 2 == 0 ? null : i + " Main Street")
+                .build();
+    }
+
+    private UserStorePersistence start(UserStore userStore) throws Exception {
+        UserStorePersistence persistence = new UserStorePersistence(userStore, directory, SEGMENT_SIZE, 10, 3_600_000);
+        persistence.start();
+        return persistence;
+    }
+
+    @Test
+    void restart_shouldRecoverStoreFromLog() throws Exception {
+        UserStore userStore = new InMemoryUserStore();
+        UserStorePersistence persistence = start(userStore);
+        for (int i = 0; i < 100; i++) {
+            userStore.insert(user(i));
+        }
+        userStore.replace(user(1).getEmail(), user -> user.toBuilder().email("renamed@example.com").build());
+        userStore.replace(user(2).getEmail(), user -> user.toBuilder().firstName("Patched").build());
+        userStore.remove(user(3).getEmail());
+        persistence.stop();
+
+        UserStore recovered = new InMemoryUserStore();
+        start(recovered).stop();
+
+        assertEquals(new HashSet<>(userStore.values()), new HashSet<>(recovered.values()));
+        assertEquals(99, recovered.birthDateIndexSize());
+        assertTrue(recovered.findByEmail(user(1).getEmail()).isEmpty());
+        assertEquals("Patched", recovered.findByEmail(user(2).getEmail()).orElseThrow().getFirstName());
+    }
+
+    @Test
+    void restart_shouldRecoverStoreFromSnapshotAndLogTail() throws Exception {
+        UserStore userStore = new InMemoryUserStore();
+        UserStorePersistence persistence = start(userStore);
+        for (int i = 0; i < 100; i++) {
+            userStore.insert(user(i));
+        }
+        persistence.snapshot();
+        userStore.remove(user(0).getEmail());
+        userStore.insertAll(List.of(user(100), user(5).toBuilder().lastName("Upserted").build()), true);
+        persistence.stop();
+
+        UserStore recovered = new InMemoryUserStore();
+        UserStorePersistence recoveredPersistence = start(recovered);
+        recovered.insert(user(101));
+        recoveredPersistence.stop();
+
+        UserStore recoveredTwice = new InMemoryUserStore();
+        start(recoveredTwice).stop();
+
+        assertEquals(101, recoveredTwice.size());
+        assertEquals(Optional.empty(), recoveredTwice.findByEmail(user(0).getEmail()));
+        assertEquals("Upserted", recoveredTwice.findByEmail(user(5).getEmail()).orElseThrow().getLastName());
+        assertTrue(recoveredTwice.findByEmail(user(101).getEmail()).isPresent());
+    }
+
+    @Test
+    void write_thatCannotBeLogged_shouldNotBeApplied() throws Exception {
+        UserStore userStore = new InMemoryUserStore();
+        UserStorePersistence persistence = start(userStore);
+        List<UserEntity> notified = new ArrayList<>();
+        userStore.addListener((previous, current) -> notified.add(current));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userStore.insert(user(0).toBuilder().address("x".repeat(SEGMENT_SIZE)).build()));
+        persistence.stop();
+
+        assertEquals(0, userStore.size());
+        assertEquals(0, userStore.birthDateIndexSize());
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void restart_afterLosingASegment_shouldRecoverTheLogUpToTheGap() throws Exception {
+        UserStore userStore = new InMemoryUserStore();
+        UserStorePersistence persistence = start(userStore);
+        for (int i = 0; i < 100; i++) {
+            userStore.insert(user(i));
+        }
+        persistence.stop();
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+        Files.delete(segments.get(1));
+
+        UserStore recovered = new InMemoryUserStore();
+        UserStorePersistence recoveredPersistence = start(recovered);
+        int prefix = recovered.size();
+        recovered.insert(user(200));
+        recoveredPersistence.stop();
+        UserStore recoveredTwice = new InMemoryUserStore();
+        start(recoveredTwice).stop();
+
+        assertTrue(prefix > 0 && prefix < 100);
+        for (int i = 0; i < prefix; i++) {
+            assertTrue(recovered.findByEmail(user(i).getEmail()).isPresent());
+        }
+        assertEquals(prefix + 1, recoveredTwice.size());
+        assertTrue(recoveredTwice.findByEmail(user(200).getEmail()).isPresent());
+    }
+
+    @Test
+    void snapshot_racingAWriteBetweenLogAndApply_shouldNotLoseIt() throws Exception {
+        UserStore userStore = new InMemoryUserStore();
+        UserStorePersistence persistence = start(userStore);
+        for (int i = 0; i < 100; i++) {
+            userStore.insert(user(i));
+        }
+        CountDownLatch logged = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        userStore.addListener(new UserChangeListener() {
+            @Override
+            public void beforeChange(UserEntity previous, UserEntity current) {
+                if (current != null && current.getEmail().equals(user(100).getEmail())) {
+                    logged.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onChange(UserEntity previous, UserEntity current) {
+            }
+        });
+
+        CompletableFuture<Void> write = CompletableFuture.runAsync(() -> userStore.insert(user(100)));
+        assertTrue(logged.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> snapshot = CompletableFuture.runAsync(() -> {
+            try {
+                persistence.snapshot();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        release.countDown();
+        write.get(10, TimeUnit.SECONDS);
+        snapshot.get(10, TimeUnit.SECONDS);
+        persistence.stop();
+
+        UserStore recovered = new InMemoryUserStore();
+        start(recovered).stop();
+
+        assertEquals(101, recovered.size());
+        assertTrue(recovered.findByEmail(user(100).getEmail()).isPresent());
+    }
+}
@@ -0,0 +1,234 @@
+package org.example.testtask.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.example.testtask.changes.UserChangeLog;
+import org.example.testtask.entity.UserEntity;
+import org.example.testtask.service.impl.UserServiceImpl;
+import org.example.testtask.store.InMemoryUserStore;
+import org.example.testtask.store.UserStore;
+import org.example.testtask.validation.UserValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserTransferJobsTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    private ValidatorFactory validatorFactory;
+
+    private InMemoryUserStore userStore;
+
+    private UserTransferJobs transferJobs;
+
+    @BeforeEach
+    public void init() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        userStore = new InMemoryUserStore();
+        transferJobs = transferJobs(userStore);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        transferJobs.stop();
+        validatorFactory.close();
+    }
+
+    private UserTransferJobs transferJobs(UserStore store) {
+        UserChangeLog changeLog = new UserChangeLog(Optional.of(store), new SimpleMeterRegistry(), 1024);
+        changeLog.afterSingletonsInstantiated();
+        return new UserTransferJobs(Optional.of(store), changeLog,
+                new UserServiceImpl(store, new SimpleMeterRegistry()),
+                new UserValidator(validatorFactory.getValidator(), 18), objectMapper, new SimpleMeterRegistry(),
+                directory, 0, TransferFormat.BINARY, true, 7);
+    }
+
+    private UserEntity user(String email) {
+        return UserEntity.builder()
+                .email(email)
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private TransferJobStatus await(TransferJobStatus job) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            TransferJobStatus status = transferJobs.job(job.id()).orElseThrow();
+            if (status.state() == TransferJobState.COMPLETED || status.state() == TransferJobState.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("job did not finish: " + job);
+    }
+
+    private static Map<String, UserEntity> byEmail(Collection<UserEntity> users) {
+        Map<String, UserEntity> byEmail = new HashMap<>();
+        users.forEach(user -> byEmail.put(user.getEmail(), user));
+        return byEmail;
+    }
+
+    @ParameterizedTest
+    @CsvSource({"NDJSON, false", "NDJSON, true", "CSV, false", "CSV, true", "BINARY, false", "BINARY, true"})
+    void exportThenImport_shouldRoundTripEveryUser(TransferFormat format, boolean gzip) throws Exception {
+        userStore.insert(user("plain@example.com"));
+        userStore.insert(user("quoted@example.com").toBuilder()
+                .firstName("Anne, \"Annie\"")
+                .address("1 Main St\nSpringfield")
+                .phoneNumber("")
+                .build());
+        for (int i = 0; i < 2500; i++) {
+            userStore.insert(user("user" + i + "@example.com"));
+        }
+        userStore.replace("plain@example.com", user -> user.toBuilder().lastName("Updated").build());
+
+        TransferJobStatus export = await(transferJobs.export(format, gzip, null));
+
+        assertEquals(TransferJobState.COMPLETED, export.state(), export.error());
+        assertEquals(2502, export.processedUsers());
+        assertEquals(2502, export.totalUsers());
+        assertEquals(2503, export.snapshotSequence());
+        assertTrue(Files.size(directory.resolve(export.file())) > 0);
+
+        InMemoryUserStore restoredStore = new InMemoryUserStore();
+        transferJobs.stop();
+        transferJobs = transferJobs(restoredStore);
+        TransferJobStatus imported = await(transferJobs.importUsers(export.file(), null, false));
+
+        assertEquals(TransferJobState.COMPLETED, imported.state(), imported.error());
+        assertEquals(gzip, imported.gzip());
+        assertEquals(2502, imported.processedUsers());
+        assertEquals(0, imported.rejectedUsers());
+        assertEquals(byEmail(userStore.values()), byEmail(restoredStore.values()));
+        assertEquals(format == TransferFormat.BINARY ? 2 : 1,
+                restoredStore.findByEmail("plain@example.com").orElseThrow().getVersion());
+    }
+
+    @Test
+    void export_shouldBeConsistentWithWritesMadeWhileCopying() throws Exception {
+        transferJobs.stop();
+        InMemoryUserStore racingStore = new InMemoryUserStore() {
+            private boolean copied;
+
+            @Override
+            public Collection<UserEntity> values() {
+                Collection<UserEntity> values = new ArrayList<>(super.values());
+                if (!copied) {
+                    copied = true;
+                    insert(user("added@example.com"));
+                    remove("removed@example.com");
+                    replace("moved@example.com", user -> user.toBuilder().email("renamed@example.com").build());
+                }
+                return values;
+            }
+        };
+        transferJobs = transferJobs(racingStore);
+        racingStore.insert(user("kept@example.com"));
+        racingStore.insert(user("removed@example.com"));
+        racingStore.insert(user("moved@example.com"));
+
+        TransferJobStatus export = await(transferJobs.export(TransferFormat.NDJSON, false, "racing.ndjson"));
+
+        assertEquals(TransferJobState.COMPLETED, export.state(), export.error());
+        assertEquals(3, export.totalUsers());
+        assertEquals(6, export.snapshotSequence());
+        HashSet<String> exported = new HashSet<>();
+        for (String line : Files.readAllLines(directory.resolve("racing.ndjson"))) {
+            exported.add(objectMapper.readValue(line, UserEntity.class).getEmail());
+        }
+        assertEquals(new HashSet<>(byEmail(racingStore.values()).keySet()), exported);
+    }
+
+    @Test
+    void import_shouldRejectInvalidAndExistingUsersThroughTheBatchPath() throws Exception {
+        userStore.insert(user("existing@example.com"));
+        Files.writeString(directory.resolve("users.csv"), """
+                lastName,firstName,email,birthDate
+                Doe,John,new@example.com,1990-01-01
+                Doe,Jane,existing@example.com,1990-01-01
+                Doe,Young,young@example.com,%s
+                Doe,,blank@example.com,1990-01-01
+                """.formatted(LocalDate.now().minusYears(1)), StandardCharsets.UTF_8);
+
+        TransferJobStatus imported = await(transferJobs.importUsers("users.csv", null, false));
+
+        assertEquals(TransferJobState.COMPLETED, imported.state(), imported.error());
+        assertEquals(4, imported.processedUsers());
+        assertEquals(3, imported.rejectedUsers());
+        assertEquals("John", userStore.findByEmail("new@example.com").orElseThrow().getFirstName());
+        assertEquals(2, userStore.size());
+    }
+
+    @Test
+    void import_upsertOverNewerUser_shouldNotMoveItsVersionBackwards() throws Exception {
+        userStore.insert(user("existing@example.com"));
+        userStore.replace("existing@example.com", user -> user.toBuilder().lastName("Exported").build());
+        TransferJobStatus export = await(transferJobs.export(TransferFormat.BINARY, false, "users.bin"));
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            userStore.replace("existing@example.com", user -> user.toBuilder().lastName("Live" + n).build());
+        }
+
+        TransferJobStatus imported = await(transferJobs.importUsers(export.file(), null, true));
+
+        assertEquals(TransferJobState.COMPLETED, imported.state(), imported.error());
+        assertEquals(1, imported.updatedUsers());
+        assertEquals(0, imported.rejectedUsers());
+        UserEntity restored = userStore.findByEmail("existing@example.com").orElseThrow();
+        assertEquals("Exported", restored.getLastName());
+        assertEquals(8, restored.getVersion());
+    }
+
+    @Test
+    void import_truncatedFile_shouldFail() throws Exception {
+        userStore.insert(user("first@example.com"));
+        userStore.insert(user("second@example.com"));
+        TransferJobStatus export = await(transferJobs.export(TransferFormat.BINARY, false, "users.bin"));
+        byte[] bytes = Files.readAllBytes(directory.resolve(export.file()));
+        Files.write(directory.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 20));
+        userStore.remove("first@example.com");
+        userStore.remove("second@example.com");
+
+        TransferJobStatus imported = await(transferJobs.importUsers("truncated.bin", null, true));
+
+        assertEquals(TransferJobState.FAILED, imported.state());
+        assertEquals("the file ends inside user 2", imported.error());
+        assertEquals(1, imported.processedUsers());
+        assertTrue(userStore.findByEmail("first@example.com").isPresent());
+        assertEquals(1, userStore.size());
+    }
+
+    @Test
+    void files_outsideTheTransferDirectory_shouldBeRejected() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> transferJobs.importUsers("../users.csv", null, false));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        assertThrows(ResponseStatusException.class, () -> transferJobs.export(TransferFormat.CSV, false, "nested/users.csv"));
+    }
+}
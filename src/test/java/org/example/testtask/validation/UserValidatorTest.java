@@ -0,0 +1,134 @@
+package org.example.testtask.validation;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.example.testtask.entity.UserEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserValidatorTest {
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+
+    private ValidatorFactory validatorFactory;
+
+    private MutableClock clock;
+
+    private UserValidator userValidator;
+
+    @BeforeEach
+    public void init() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        clock = new MutableClock(Instant.parse("2024-02-28T23:59:59Z"));
+        userValidator = new UserValidator(validatorFactory.getValidator(), 18, clock);
+    }
+
+    @AfterEach
+    public void close() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void minimumBirthDate_dateRollsOver_shouldMoveCutoff() {
+        assertEquals(LocalDate.of(2006, 2, 28), userValidator.minimumBirthDate());
+        assertFalse(userValidator.isOldEnough(LocalDate.of(2006, 3, 1)));
+
+        clock.instant = Instant.parse("2024-02-29T00:00:00Z");
+
+        assertEquals(LocalDate.of(2006, 2, 28), userValidator.minimumBirthDate());
+        clock.instant = Instant.parse("2024-03-01T00:00:00Z");
+        assertEquals(LocalDate.of(2006, 3, 1), userValidator.minimumBirthDate());
+        assertTrue(userValidator.isOldEnough(LocalDate.of(2006, 3, 1)));
+    }
+
+    @Test
+    void validateNewUser_shouldReportConstraintsBeforeAge() {
+        UserEntity user = UserEntity.builder()
+                .email("not-an-email")
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(2020, 1, 1))
+                .build();
+
+        assertEquals("Validation failed for the following fields: email - The provided email is invalid",
+                userValidator.validateNewUser(user));
+        user.setEmail("valid@example.com");
+        assertEquals("Users must be older than 18 years old to register.", userValidator.validateNewUser(user));
+        user.setBirthDate(LocalDate.of(1990, 1, 1));
+        assertNull(userValidator.validateNewUser(user));
+    }
+
+    @Test
+    void validateNewUser_birthDateBeforeYearOne_shouldBeRejected() {
+        UserEntity user = UserEntity.builder()
+                .email("valid@example.com")
+                .firstName("FirstName")
+                .lastName("LastName")
+                .birthDate(LocalDate.of(-6_000_000, 1, 1))
+                .build();
+
+        assertEquals("Birth dates before 0001-01-01 are not supported.", userValidator.validateNewUser(user));
+        InvalidUserException exception = assertThrows(InvalidUserException.class,
+                () -> userValidator.requireValid(user, user.getBirthDate()));
+        assertEquals(UserValidator.EARLIEST_BIRTH_DATE_CODE, exception.getFieldErrors().get(0).getCode());
+        user.setBirthDate(UserValidator.EARLIEST_BIRTH_DATE);
+        assertNull(userValidator.validateNewUser(user));
+    }
+
+    @Test
+    void isValid_shouldAgreeWithPreviousPatternOnWellFormedAddresses() {
+        List<String> emails = List.of("test@example.com", "first.last+tag@sub.example.co", "a_b%c-d@x-y.org",
+                "UPPER@EXAMPLE.COM", "digits123@123.example.io", "x@y.z", "no-at-sign.example.com",
+                "two@@example.com", "a@b@example.com", "user@example", "user@example.c", "user@example.c0m",
+                "user@example.com.", "@example.com", "user@.com", "user@exa_mple.com", "us er@example.com",
+                "user@example.comé", "");
+        for (String email : emails) {
+            assertEquals(EMAIL_PATTERN.matcher(email).matches(), EmailAddressValidator.isValid(email), email);
+        }
+    }
+
+    @Test
+    void isValid_shouldRejectWhatHibernateRejectedBeyondThePattern() {
+        assertFalse(EmailAddressValidator.isValid(".user@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user.@example.com"));
+        assertFalse(EmailAddressValidator.isValid("us..er@example.com"));
+        assertFalse(EmailAddressValidator.isValid("user@example..com"));
+        assertFalse(EmailAddressValidator.isValid("user@-example.com"));
+        assertFalse(EmailAddressValidator.isValid("user@example-.com"));
+        assertFalse(EmailAddressValidator.isValid("user@" + "a".repeat(64) + ".com"));
+        assertFalse(EmailAddressValidator.isValid("a".repeat(65) + "@example.com"));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}